@@ -36,6 +36,7 @@ CREATE TABLE IF NOT EXISTS `trip` (
   `visibility`      INT          DEFAULT 0               COMMENT '0私有 1好友可见 2公开',
   `like_count`      INT          DEFAULT 0               COMMENT '点赞数',
   `view_count`      INT          DEFAULT 0               COMMENT '浏览数',
+  `unique_visitor_count` INT     DEFAULT 0               COMMENT '独立访客数（HyperLogLog 估算）',
   `create_time`     DATETIME     DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
   `update_time`     DATETIME     DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
   `create_user`     BIGINT       DEFAULT NULL            COMMENT '创建人ID',
@@ -44,6 +45,9 @@ CREATE TABLE IF NOT EXISTS `trip` (
   KEY `idx_trip_user` (`user_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='行程主表';
 
+-- 存量库迁移提示（如果你已经执行过旧版脚本）：
+-- ALTER TABLE trip ADD COLUMN unique_visitor_count INT DEFAULT 0 COMMENT '独立访客数（HyperLogLog 估算）' AFTER view_count;
+
 -- 4. 行程天（TripDay）
 CREATE TABLE IF NOT EXISTS `trip_day` (
   `id`       BIGINT       NOT NULL AUTO_INCREMENT COMMENT '主键ID',
@@ -93,3 +97,14 @@ CREATE TABLE IF NOT EXISTS `trip_favorite` (
   KEY `idx_favorite_trip` (`trip_id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='行程收藏表';
 
+-- 8. 行程浏览量日汇总表（TripViewDaily），由浏览量落库任务写入，用于重建日榜/周榜
+CREATE TABLE IF NOT EXISTS `trip_view_daily` (
+  `id`          BIGINT       NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `trip_id`     BIGINT       NOT NULL                COMMENT '行程ID',
+  `stat_date`   DATE         NOT NULL                COMMENT '统计日期（按增量落库时间归属）',
+  `view_count`  INT          NOT NULL DEFAULT 0      COMMENT '当日浏览数',
+  `update_time` DATETIME     DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_view_daily_trip_date` (`trip_id`, `stat_date`),
+  KEY `idx_view_daily_date` (`stat_date`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='行程浏览量日汇总表';
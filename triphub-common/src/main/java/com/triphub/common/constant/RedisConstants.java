@@ -38,15 +38,126 @@ public class RedisConstants {
     /** 热门目的地周榜 ZSet key 前缀：hot:dest:week:YYYYww */
     public static final String HOT_DEST_WEEK_ZSET_PREFIX = "hot:dest:week:";
 
+    /** 热门行程小时桶 ZSet key 前缀：hot:trip:hour:yyyyMMddHH */
+    public static final String HOT_TRIP_HOUR_ZSET_PREFIX = "hot:trip:hour:";
+
+    /** 热门目的地小时桶 ZSet key 前缀：hot:dest:hour:yyyyMMddHH */
+    public static final String HOT_DEST_HOUR_ZSET_PREFIX = "hot:dest:hour:";
+
+    /** 城市内热门行程 ZSet key 前缀：hot:trip:city:{city}，日/周榜为 hot:trip:city:{city}:day:yyyyMMdd / :week:YYYYww */
+    public static final String HOT_TRIP_CITY_ZSET_PREFIX = "hot:trip:city:";
+
+    /** 小时桶 TTL（小时）：覆盖 7 天滑动窗口 + 少量余量 */
+    public static final long HOT_HOUR_TTL_HOURS = 24L * 7 + 2;
+
+    /** 滑动窗口合并守卫 key 前缀：hot:window:refresh:{trip|dest}:{24h|7d}（结果 key 为 hot:{trip|dest}:last{24h|7d}） */
+    public static final String HOT_WINDOW_REFRESH_GUARD_PREFIX = "hot:window:refresh:";
+
+    /** 滑动窗口结果 key 最短刷新间隔（秒） */
+    public static final long HOT_WINDOW_REFRESH_INTERVAL_SECONDS = 60L;
+
+    /** 滑动窗口结果 key TTL（秒），合并停摆时自动失效 */
+    public static final long HOT_WINDOW_RESULT_TTL_SECONDS = 300L;
+
+    /** 时间衰减热门行程 ZSet key（period=trending） */
+    public static final String HOT_TRIP_TRENDING_ZSET = "hot:trip:trending";
+
+    /** 时间衰减热门目的地 ZSet key（period=trending） */
+    public static final String HOT_DEST_TRENDING_ZSET = "hot:dest:trending";
+
+    /** 时间衰减榜的基准时间（epoch 秒），单次浏览权重 = e^(λ·(now - epoch)) */
+    public static final String HOT_TRENDING_EPOCH_KEY = "hot:trending:epoch";
+
     /** 日榜 TTL（天） */
     public static final long HOT_DAY_TTL_DAYS = 3L;
 
     /** 周榜 TTL（天） */
     public static final long HOT_WEEK_TTL_DAYS = 15L;
 
-    /** 行程浏览量增量 Hash key（field=tripId, value=delta） */
+    /** 日榜/周榜哨兵 key（无 TTL）：缺失即视为 Redis 丢过数据，触发基于 trip_view_daily 的重建 */
+    public static final String HOT_WINDOW_SENTINEL_KEY = "hot:window:sentinel";
+
+    /** 目的地统计 Hash（field=destinationCity, value=公开行程数），创建行程时增量维护，热榜重建时校正 */
+    public static final String HOT_DEST_STATS_HASH = "hot:dest:stats";
+
+    /** 上升最快行程 ZSet（score = 平滑后的浏览加速度，后台每分钟整体重算） */
+    public static final String HOT_TRIP_RISING_ZSET = "hot:trip:rising";
+
+    /** 上升榜结果 TTL（秒）：重算任务停摆时自动失效，而不是一直返回过期的排名 */
+    public static final long HOT_RISING_TTL_SECONDS = 600L;
+
+    /** 创作者榜 ZSet（member = 作者 userId，score = 浏览量 + 收藏权重 × 收藏数，仅统计公开行程） */
+    public static final String HOT_CREATOR_ZSET = "hot:creator";
+
+    /** 创作者日榜 ZSet key 前缀：hot:creator:day:yyyyMMdd */
+    public static final String HOT_CREATOR_DAY_ZSET_PREFIX = "hot:creator:day:";
+
+    /** 创作者周榜 ZSet key 前缀：hot:creator:week:YYYYww */
+    public static final String HOT_CREATOR_WEEK_ZSET_PREFIX = "hot:creator:week:";
+
+    /** 创作者累计统计 Hash：field = {userId}:views / {userId}:favorites / {userId}:trips */
+    public static final String HOT_CREATOR_STATS_HASH = "hot:creator:stats";
+
+    /** 全集群突增行程 ZSet（score = 本窗口较上一窗口的浏览增量，各节点结果合并） */
+    public static final String HOT_SPIKE_ZSET = "hot:spike";
+
+    /** 单节点突增行程 ZSet 前缀：hot:spike:node:{nodeId} */
+    public static final String HOT_SPIKE_NODE_ZSET_PREFIX = "hot:spike:node:";
+
+    /**
+     * 榜单裁剪水位 key 前缀：hot:trim:floor:{rankingKey}，value 为最近一次裁剪后保留的最低分，
+     * 存在即表示该榜单裁剪过，重新进入的成员需要按 DB 汇总补齐历史分数。
+     */
+    public static final String HOT_TRIM_FLOOR_KEY_PREFIX = "hot:trim:floor:";
+
+    /** 关键词倒排 Set 前缀：idx:kw:{token}（member = 公开行程 id），token 来自标题与目的地城市的二元组分词 */
+    public static final String IDX_KW_SET_PREFIX = "idx:kw:";
+
+    /** 关键词倒排的就绪哨兵：缺失表示 Redis 丢过数据，需要按 DB 全量补建 */
+    public static final String IDX_KW_READY_KEY = "idx:ready:kw";
+
+    /** 公开行程创建通知频道（Pub/Sub，消息为行程 id），各节点据此增量更新进程内搜索索引 */
+    public static final String SEARCH_TRIP_CHANNEL = "search:trip:created";
+
+    /** 共同收藏相似行程 ZSet 前缀：rec:cofav:{tripId}（member = 相似行程 id，score = 余弦相似度） */
+    public static final String REC_COFAV_ZSET_PREFIX = "rec:cofav:";
+
+    /** 共同收藏任务的分区游标（INCR 后对分区数取模得到本轮分区） */
+    public static final String REC_COFAV_CURSOR_KEY = "rec:cursor:cofav";
+
+    /** 推荐结果缓存 Hash 前缀：rec:result:{userId}（field = period，value = 带版本号的 JSON 结果） */
+    public static final String REC_RESULT_HASH_PREFIX = "rec:result:";
+
+    /** 推荐结果版本号前缀：rec:ver:{userId}，画像或收藏变更时 INCR，旧版本的缓存结果随之失效 */
+    public static final String REC_VERSION_KEY_PREFIX = "rec:ver:";
+
+    /** 推荐结果版本号 TTL（天），需远大于结果缓存 TTL */
+    public static final long REC_VERSION_TTL_DAYS = 1L;
+
+    /** 最近请求过推荐的用户 ZSet（member = userId，score = 最近一次请求的毫秒时间戳），供后台预计算 */
+    public static final String REC_ACTIVE_ZSET = "rec:active";
+
+    /** 热门榜单物化快照 key 前缀：hot:snapshot:{period}（value 为整份 JSON 快照） */
+    public static final String HOT_SNAPSHOT_KEY_PREFIX = "hot:snapshot:";
+
+    /** 物化快照 TTL（秒），物化任务停摆时自动失效，读路径回退到实时拼装 */
+    public static final long HOT_SNAPSHOT_TTL_SECONDS = 120L;
+
+    /**
+     * 行程浏览量增量 Hash key（field=tripId, value=delta）。
+     * 写入按 tripId 分片到 trip:view:delta:{shard}，不带分片后缀的 key 仅用于兼容升级前遗留的数据。
+     */
     public static final String TRIP_VIEW_COUNT_DELTA_HASH = "trip:view:delta";
 
+    /** 落库中的增量 Hash 后缀：{deltaKey}:processing，DB 提交成功后才删除 */
+    public static final String TRIP_VIEW_DELTA_PROCESSING_SUFFIX = ":processing";
+
+    /** processing key 的占用者 key 后缀：{deltaKey}:processing:owner（value = nodeId，带租约） */
+    public static final String TRIP_VIEW_DELTA_OWNER_SUFFIX = ":processing:owner";
+
+    /** 浏览量增量 Hash 分片数（shard = tripId mod N）；调整前需先排空全部分片 */
+    public static final int TRIP_VIEW_COUNT_DELTA_SHARDS = 16;
+
     /** 行程浏览量增量 Hash key TTL（小时） */
     public static final long TRIP_VIEW_COUNT_DELTA_TTL_HOURS = 48L;
 
@@ -56,6 +167,24 @@ public class RedisConstants {
     /** 浏览量去重窗口（秒）：同一用户短时间重复刷新不计数 */
     public static final long TRIP_VIEW_DEDUP_TTL_SECONDS = 10L;
 
+    /** 行程独立访客 HyperLogLog key 前缀：uv:trip:{tripId}:{yyyyMMdd|all} */
+    public static final String UV_TRIP_KEY_PREFIX = "uv:trip:";
+
+    /** 目的地独立访客 HyperLogLog key 前缀：uv:dest:{city}:{yyyyMMdd|all} */
+    public static final String UV_DEST_KEY_PREFIX = "uv:dest:";
+
+    /** 独立访客全量 HLL 的 bucket 名（由落库任务从日桶 PFMERGE 而来） */
+    public static final String UV_ALL_BUCKET = "all";
+
+    /** 独立访客日桶 TTL（天）：需覆盖周窗口 7 天 + 1 天跨天余量 */
+    public static final long UV_DAY_TTL_DAYS = 8L;
+
+    /** 有新访客的行程 id 集合，落库任务据此合并全量 HLL 并回写 DB */
+    public static final String UV_DIRTY_TRIP_SET = "uv:dirty:trip";
+
+    /** 有新访客的目的地集合，落库任务据此合并目的地全量 HLL */
+    public static final String UV_DIRTY_DEST_SET = "uv:dirty:dest";
+
     /** 行程摘要缓存前缀 cache:trip:summary:{id} */
     public static final String CACHE_TRIP_SUMMARY_KEY = "cache:trip:summary:";
 
@@ -67,6 +196,55 @@ public class RedisConstants {
 
     /** 行程缓存 TTL（分钟） */
     public static final long CACHE_TRIP_TTL = 30L;
-}
 
+    /** 行程浏览事件 Stream（Stream 模式下由浏览路径 XADD，消费组批量应用） */
+    public static final String TRIP_VIEW_STREAM = "stream:trip:view";
 
+    /** 集群成员 ZSet（member=nodeId, score=最近一次心跳的毫秒时间戳） */
+    public static final String CLUSTER_NODES_ZSET = "cluster:nodes";
+
+    /** 单例任务租约 key 前缀：cluster:lease:{job}（value=持有者 nodeId） */
+    public static final String CLUSTER_LEASE_KEY_PREFIX = "cluster:lease:";
+
+    /**
+     * 某个行程所在的浏览量增量分片 key。
+     */
+    public static String tripViewDeltaKey(long tripId) {
+        return tripViewDeltaShardKey((int) Math.floorMod(tripId, (long) TRIP_VIEW_COUNT_DELTA_SHARDS));
+    }
+
+    /**
+     * 某个行程所在分片的落库中增量 key：{deltaKey}:processing。读取未落库增量时需与分片 key 一起读取。
+     */
+    public static String tripViewDeltaProcessingKey(long tripId) {
+        return tripViewDeltaKey(tripId) + TRIP_VIEW_DELTA_PROCESSING_SUFFIX;
+    }
+
+    /**
+     * 城市内热门行程（全量）key：hot:trip:city:{city}。
+     */
+    public static String hotTripCityKey(String city) {
+        return HOT_TRIP_CITY_ZSET_PREFIX + city;
+    }
+
+    /**
+     * 城市内热门行程日榜 key：hot:trip:city:{city}:day:yyyyMMdd。
+     */
+    public static String hotTripCityDayKey(String city, String ymd) {
+        return hotTripCityKey(city) + ":day:" + ymd;
+    }
+
+    /**
+     * 城市内热门行程周榜 key：hot:trip:city:{city}:week:YYYYww。
+     */
+    public static String hotTripCityWeekKey(String city, String yearWeek) {
+        return hotTripCityKey(city) + ":week:" + yearWeek;
+    }
+
+    /**
+     * 第 shard 个浏览量增量分片 key：trip:view:delta:{shard}。
+     */
+    public static String tripViewDeltaShardKey(int shard) {
+        return TRIP_VIEW_COUNT_DELTA_HASH + ":" + shard;
+    }
+}
@@ -0,0 +1,33 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 请求内并行加载（fan-out）使用的线程池配置。
+ * Bounded executor for in-request fan-out.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.async")
+public class AsyncProperties {
+
+    /**
+     * 核心线程数。
+     */
+    private int corePoolSize = 8;
+
+    /**
+     * 最大线程数（队列满后才会扩容到该值）。
+     */
+    private int maxPoolSize = 32;
+
+    /**
+     * 等待队列容量；线程与队列都满时由调用线程直接执行，退化为串行而不是拒绝请求。
+     */
+    private int queueCapacity = 200;
+
+    /**
+     * 单个分支等待的超时时间（毫秒）。
+     */
+    private long branchTimeoutMillis = 2000L;
+}
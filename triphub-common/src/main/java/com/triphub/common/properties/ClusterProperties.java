@@ -0,0 +1,33 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 多实例部署下定时任务协调相关配置。
+ * Cluster job coordination configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.cluster")
+public class ClusterProperties {
+
+    /**
+     * 节点标识；为空时使用 hostname + 随机后缀。
+     */
+    private String nodeId;
+
+    /**
+     * 成员心跳间隔（毫秒）。
+     */
+    private long heartbeatIntervalMillis = 5000L;
+
+    /**
+     * 超过该时长（毫秒）没有心跳的节点视为下线，其分片由剩余节点接管。
+     */
+    private long nodeTimeoutMillis = 15000L;
+
+    /**
+     * 单例任务租约时长（毫秒）；持有者每次心跳续约，宕机后最多经过该时长由其他节点接管。
+     */
+    private long leaseMillis = 30000L;
+}
@@ -0,0 +1,119 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 热门榜单相关配置。
+ * Hot ranking configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.hot-ranking")
+public class HotRankingProperties {
+
+    /**
+     * 时间衰减榜（period=trending）的半衰期（小时）：一次浏览的权重每经过一个半衰期减半。
+     */
+    private double trendingHalfLifeHours = 24D;
+
+    /**
+     * 时间衰减榜重新归一化后，低于该分数的成员会被移除（约等于衰减了 log2(1/x) 个半衰期的单次浏览）。
+     */
+    private double trendingMinScore = 0.01D;
+
+    /**
+     * 物化快照中每个 period 保留的行程 / 目的地条数；请求 limit 超过该值时回退到实时拼装。
+     */
+    private int snapshotSize = 100;
+
+    /**
+     * 物化任务执行间隔（毫秒）。
+     */
+    private long snapshotRefreshMillis = 5000L;
+
+    /**
+     * 快照最大可接受年龄（秒），超过视为过期，读路径回退到实时拼装。
+     */
+    private long snapshotMaxAgeSeconds = 30L;
+
+    /**
+     * 突增检测的统计窗口（毫秒）：每个窗口结束时导出本节点 Top K 并与上一窗口比较。
+     */
+    private long spikeWindowMillis = 10000L;
+
+    /**
+     * 每个节点每个窗口导出的 heavy hitter 数量。
+     */
+    private int spikeTopK = 50;
+
+    /**
+     * 当前窗口较上一窗口至少增加这么多次浏览才视为突增。
+     */
+    private long spikeMinDelta = 5L;
+
+    /**
+     * 上升榜（period=rising）的比较窗口（小时）：最近 N 小时与再往前 N 小时的浏览量比较。
+     */
+    private int risingWindowHours = 3;
+
+    /**
+     * 上升榜每轮参与计算的候选数（按当前窗口浏览量取前 N）。
+     */
+    private int risingCandidates = 1000;
+
+    /**
+     * 上升榜加速度的平滑先验：score = (当前 - 上一窗口) / (上一窗口 + prior)，避免个位数浏览的新行程分数暴涨。
+     */
+    private double risingPrior = 10D;
+
+    /**
+     * 上升榜分数的指数平滑系数（0~1），越大越跟随最新一轮结果。
+     */
+    private double risingSmoothing = 0.5D;
+
+    /**
+     * 城市内热门行程榜（hot:trip:city:*）每个 ZSet 保留的最大成员数，超出部分按分数从低到高裁剪。
+     */
+    private int cityRankingMaxSize = 500;
+
+    /**
+     * 热门行程 / 热门目的地的全量榜与日榜、周榜每个 ZSet 保留的最大成员数；读路径最多只取前几百名，
+     * 长尾由裁剪任务按分数从低到高移除，保持 ZINCRBY 成本与内存不随行程总数增长。
+     */
+    private int rankingMaxSize = 10000;
+
+    /**
+     * 榜单裁剪任务的执行间隔（毫秒）。
+     */
+    private long rankingTrimIntervalMillis = 60000L;
+
+    /**
+     * 裁剪后重新进入榜单的行程补分任务的执行间隔（毫秒），每个节点处理自己收集到的成员。
+     */
+    private long rankingReseedIntervalMillis = 5000L;
+
+    /**
+     * 创作者榜中一次收藏折算的浏览量（score = 浏览量 + 该权重 × 收藏数）。
+     */
+    private long creatorFavoriteWeight = 5L;
+
+    /**
+     * 是否开启榜单 checkpoint（hot:* 落本地二进制文件，Redis 丢数据后启动时秒级恢复）。
+     */
+    private boolean checkpointEnabled = true;
+
+    /**
+     * checkpoint 文件路径。
+     */
+    private String checkpointPath = "data/ranking.ckpt";
+
+    /**
+     * checkpoint 间隔（毫秒）。
+     */
+    private long checkpointIntervalMillis = 300000L;
+
+    /**
+     * 启动恢复时 checkpoint 文件的最大年龄（按 checkpoint 间隔的倍数），超过则跳过恢复。
+     */
+    private int checkpointMaxAgeIntervals = 3;
+}
@@ -0,0 +1,123 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 推荐行程（候选召回 + 规则打分）相关配置。
+ * Trip recommendation configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.recommend")
+public class RecommendProperties {
+
+    /**
+     * 热门榜召回的候选数 = limit × 该倍数（不超过 hotCandidateMax）。
+     */
+    private int hotCandidateFactor = 5;
+
+    /**
+     * 热门榜召回的候选数上限。
+     */
+    private int hotCandidateMax = 100;
+
+    /**
+     * 参与倒排召回的画像标签数（按权重取前 N 个）。
+     */
+    private int maxTags = 5;
+
+    /**
+     * 每个标签最多召回的行程数（城市榜与关键词倒排各自计数）。
+     */
+    private int tagPostingLimit = 50;
+
+    /**
+     * 去重后参与打分的候选总数上限。
+     */
+    private int maxCandidates = 300;
+
+    /**
+     * 共同收藏矩阵的分区数：每轮任务只为一个分区的行程计算相似行程，分区数 × 任务间隔 = 全量刷新周期。
+     */
+    private int cofavPartitions = 24;
+
+    /**
+     * 共同收藏任务的执行间隔（毫秒）。
+     */
+    private long cofavIntervalMillis = 3_600_000L;
+
+    /**
+     * 每个行程保留的相似行程数。
+     */
+    private int cofavTopK = 50;
+
+    /**
+     * 单个用户的收藏篮最多参与配对的行程数。
+     */
+    private int cofavMaxBasket = 200;
+
+    /**
+     * 单轮矩阵允许的非零单元格数（每个约占 12~16 字节），超过后裁剪低频配对。
+     */
+    private long cofavMaxCells = 5_000_000L;
+
+    /**
+     * 共同收藏人数低于该值的配对不进入相似行程。
+     */
+    private int cofavMinCoCount = 2;
+
+    /**
+     * 推荐时取用户最近收藏的 N 个行程作为种子。
+     */
+    private int cofavSeedTrips = 10;
+
+    /**
+     * 每个种子行程取前 N 个相似行程。
+     */
+    private int cofavPerSeed = 20;
+
+    /**
+     * 共同收藏召回并入候选的行程数上限。
+     */
+    private int cofavCandidates = 50;
+
+    /**
+     * 共同收藏相似度在规则打分中的权重：加分 = 相似度之和 × 该值。
+     */
+    private int cofavWeight = 1000;
+
+    /**
+     * 推荐结果缓存 TTL（秒），过期后重新计算（热门榜与共同收藏的变化最多滞后这么久）。
+     */
+    private long cacheTtlSeconds = 300L;
+
+    /**
+     * 每个用户、每个 period 缓存的推荐条数；请求的 limit 超过该值时不走缓存。
+     */
+    private int cacheSize = 50;
+
+    /**
+     * 是否为最近活跃用户在后台预计算推荐结果。
+     */
+    private boolean precomputeEnabled = true;
+
+    /**
+     * 预计算任务执行间隔（毫秒）。
+     */
+    private long precomputeIntervalMillis = 60_000L;
+
+    /**
+     * 最近多少分钟内请求过推荐的用户视为活跃用户。
+     */
+    private int precomputeActiveMinutes = 30;
+
+    /**
+     * 每轮最多检查的活跃用户数。
+     */
+    private int precomputeBatch = 200;
+
+    /**
+     * 单轮预计算的时间预算（毫秒），超出后剩余用户留到下一轮。
+     */
+    private long precomputeMaxRunMillis = 10_000L;
+}
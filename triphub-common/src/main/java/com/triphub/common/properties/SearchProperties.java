@@ -0,0 +1,48 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 行程搜索（进程内 BM25 倒排与分面位图索引）相关配置。
+ * Trip full-text search and faceted filtering configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.search")
+public class SearchProperties {
+
+    /**
+     * 是否启用搜索与分面筛选；关闭后不在启动时构建索引，也不订阅行程写入通知。
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次搜索返回条数上限。
+     */
+    private int maxLimit = 50;
+
+    /**
+     * 查询最多使用的不重复 token 数，限制超长查询的归并成本。
+     */
+    private int maxQueryTerms = 16;
+
+    /**
+     * 分面筛选单页条数上限。
+     */
+    private int facetMaxPageSize = 50;
+
+    /**
+     * 分面筛选可翻到的最大深度（page × pageSize），限制取页时堆的大小。
+     */
+    private int facetMaxDepth = 1000;
+
+    /**
+     * 分面结果中返回的城市计数个数上限。
+     */
+    private int facetCityLimit = 20;
+
+    /**
+     * 分面索引中浏览量副本的刷新间隔（毫秒），按 DB 的 view_count 全量刷新。
+     */
+    private long facetViewRefreshMillis = 300_000L;
+}
@@ -0,0 +1,70 @@
+package com.triphub.common.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 行程浏览事件管道配置。
+ * Trip view event pipeline configuration.
+ */
+@Data
+@ConfigurationProperties(prefix = "triphub.view-events")
+public class ViewEventProperties {
+
+    public static final String MODE_DIRECT = "direct";
+    public static final String MODE_STREAM = "stream";
+
+    /**
+     * direct：请求线程内直接更新计数（默认）；stream：写入 Redis Stream，由消费组批量应用。
+     */
+    private String mode = MODE_DIRECT;
+
+    /**
+     * 消费组名称。
+     */
+    private String consumerGroup = "triphub-view";
+
+    /**
+     * 单批最多应用的事件数。
+     */
+    private int batchSize = 1000;
+
+    /**
+     * 攒批最长等待时间（毫秒）：自收到本批第一条事件起计时。
+     */
+    private long batchWaitMillis = 200L;
+
+    /**
+     * Stream 近似保留长度（XTRIM MAXLEN ~），用于回放/补数/其他消费者。
+     */
+    private long maxLen = 1_000_000L;
+
+    /**
+     * 投递后超过该时长（毫秒）仍未 ACK 的事件视为消费者已失效，由其他消费者认领重放。
+     */
+    private long pendingIdleMillis = 60_000L;
+
+    /**
+     * 浏览量增量落库的最短间隔（毫秒）：积压大时间隔逐步缩短到该值。
+     */
+    private long flushMinIntervalMillis = 1_000L;
+
+    /**
+     * 浏览量增量落库的最长间隔（毫秒）：空闲时间隔逐步放大到该值。
+     */
+    private long flushMaxIntervalMillis = 30_000L;
+
+    /**
+     * 单轮排空的行程数达到该值视为积压，下一轮间隔减半。
+     */
+    private int flushTargetBatch = 5_000;
+
+    /**
+     * 排空分片时占用 processing key 的租约（毫秒）：落库失败后租约到期前由同一节点重试，到期后任意持有该分片的节点接手。
+     */
+    private long flushClaimMillis = 60_000L;
+
+    public boolean isStreamMode() {
+        return MODE_STREAM.equalsIgnoreCase(mode);
+    }
+}
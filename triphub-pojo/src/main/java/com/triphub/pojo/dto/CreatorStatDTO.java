@@ -0,0 +1,17 @@
+package com.triphub.pojo.dto;
+
+import lombok.Data;
+
+/**
+ * 创作者维度的聚合结果（按 trip.user_id 汇总公开行程），用于重建创作者榜。
+ */
+@Data
+public class CreatorStatDTO {
+    private Long userId;
+    /** 浏览量合计 */
+    private Long views;
+    /** 被收藏数合计 */
+    private Long favorites;
+    /** 公开行程数 */
+    private Long tripCount;
+}
@@ -0,0 +1,15 @@
+package com.triphub.pojo.dto;
+
+import lombok.Data;
+
+/**
+ * 目的地聚合统计 DTO：由 trip 表按 destination_city GROUP BY 得到，用于重建热门目的地榜单。
+ */
+@Data
+public class DestinationStatDTO {
+    private String city;
+    /** 该城市下公开行程的浏览量合计（view_count 为 0 的行程按 1 计，与增量写入口径一致） */
+    private Long totalViews;
+    /** 该城市下公开行程数 */
+    private Long tripCount;
+}
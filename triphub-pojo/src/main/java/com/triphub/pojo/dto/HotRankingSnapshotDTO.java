@@ -0,0 +1,32 @@
+package com.triphub.pojo.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热门榜单物化快照：某个 period 下已渲染好的 Top N 行程摘要与热门目的地。
+ *
+ * 由后台物化任务周期性生成并整体写入一个 Redis key，读接口只需一次读取即可返回，无需逐请求拼装。
+ */
+@Data
+public class HotRankingSnapshotDTO {
+    /** all / day / week / trending / 24h / 7d */
+    private String period;
+    /** 生成时间（epoch 毫秒），同时作为快照版本号 */
+    private Long generatedAt;
+    /** 热门行程摘要（按分数倒序） */
+    private List<TripSummaryDTO> trips = new ArrayList<>();
+    /** 与 trips 一一对应的榜单分数 */
+    private List<Double> tripScores = new ArrayList<>();
+    /**
+     * 物化时从 ZSet 读到的条数是否达到快照容量（即榜单在快照之后可能还有成员）。
+     * trips 会过滤掉非公开 / 已删除的行程，不能用 trips 的条数判断榜单是否到底；旧快照没有该字段时为 null，按可能还有处理。
+     */
+    private Boolean truncated;
+    /** 热门目的地城市（按分数倒序） */
+    private List<String> destinations = new ArrayList<>();
+    /** 与 destinations 一一对应的榜单分数 */
+    private List<Double> destinationScores = new ArrayList<>();
+}
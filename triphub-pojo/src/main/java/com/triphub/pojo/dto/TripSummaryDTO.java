@@ -18,6 +18,8 @@ public class TripSummaryDTO {
     private LocalDate endDate;
     private Integer days;
     private Integer viewCount;
+    /** 独立访客数（HyperLogLog 估算，约 0.81% 标准误差） */
+    private Integer uniqueVisitorCount;
     private Integer likeCount;
 }
 
@@ -0,0 +1,14 @@
+package com.triphub.pojo.dto;
+
+import lombok.Data;
+
+/**
+ * 行程在某个时间窗口内的浏览量聚合结果（trip_view_daily 按 trip_id 汇总）。
+ */
+@Data
+public class TripViewCountDTO {
+    private Long tripId;
+    private Long views;
+    /** 行程目的地城市（用于同时重建城市内榜单，可能为空） */
+    private String destCity;
+}
@@ -0,0 +1,27 @@
+package com.triphub.pojo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 行程浏览事件：一次通过防刷去重的有效浏览。
+ *
+ * 直写模式下在请求线程内立即应用；Stream 模式下以紧凑字段写入 Redis Stream，由消费组批量应用。
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TripViewEventDTO {
+    private Long tripId;
+    /** 目的地城市，非公开行程为空 */
+    private String destCity;
+    /** 是否公开行程（只有公开行程进入热榜） */
+    private boolean publicTrip;
+    /** 行程作者 userId（创作者榜） */
+    private Long authorId;
+    /** 浏览者 userId，匿名访问为空 */
+    private Long userId;
+    /** 浏览发生时间（epoch 毫秒） */
+    private long timestamp;
+}
@@ -36,6 +36,11 @@ public class Trip {
 
     private Integer viewCount;
 
+    /**
+     * 独立访客数（HyperLogLog 估算值，由浏览量落库任务批量回写）
+     */
+    private Integer uniqueVisitorCount;
+
     private LocalDateTime createTime;
 
     private LocalDateTime updateTime;
@@ -0,0 +1,30 @@
+package com.triphub.pojo.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 行程浏览量日汇总实体，对应 trip_view_daily 表。
+ *
+ * 由浏览量落库任务按「落库当天」累加写入，是日榜/周榜在 Redis 丢失后的重建数据源。
+ */
+@Data
+@TableName("trip_view_daily")
+public class TripViewDaily {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long tripId;
+
+    private LocalDate statDate;
+
+    private Integer viewCount;
+
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,32 @@
+package com.triphub.pojo.vo;
+
+import lombok.Data;
+
+/**
+ * 创作者榜单条目。
+ * Creator leaderboard entry.
+ */
+@Data
+public class CreatorRankVO {
+
+    private Long userId;
+
+    private String nickname;
+
+    private String avatar;
+
+    /** 名次，从 1 开始 */
+    private Long rank;
+
+    /** 当前窗口的榜单分数（浏览量 + 收藏权重 × 收藏数） */
+    private Double score;
+
+    /** 累计浏览量（全部公开行程） */
+    private Long totalViews;
+
+    /** 累计被收藏数 */
+    private Long favoriteCount;
+
+    /** 公开行程数 */
+    private Long publicTripCount;
+}
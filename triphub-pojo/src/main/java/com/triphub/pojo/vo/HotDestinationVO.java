@@ -0,0 +1,31 @@
+package com.triphub.pojo.vo;
+
+import lombok.Data;
+
+/**
+ * 热门目的地（带分数与窗口统计）视图 VO。
+ * Hot destination with score, rank and window-over-window change.
+ */
+@Data
+public class HotDestinationVO {
+
+    private String city;
+
+    /** 当前窗口的榜单分数 */
+    private Double score;
+
+    /** 名次，从 1 开始 */
+    private Integer rank;
+
+    /** 该城市的公开行程数 */
+    private Long publicTripCount;
+
+    /**
+     * 上一窗口的分数（day → 昨日，week → 上周，24h → 前一个 24 小时）；
+     * all / trending / 7d 没有可比较的上一窗口，为空。
+     */
+    private Double previousScore;
+
+    /** score - previousScore；没有上一窗口时为空，上一窗口未上榜时按 0 计 */
+    private Double delta;
+}
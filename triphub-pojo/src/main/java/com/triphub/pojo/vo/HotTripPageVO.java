@@ -0,0 +1,22 @@
+package com.triphub.pojo.vo;
+
+import com.triphub.pojo.dto.TripSummaryDTO;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 热门行程游标分页结果。
+ * One page of hot trips with an opaque cursor for the next page.
+ */
+@Data
+public class HotTripPageVO {
+
+    private List<TripSummaryDTO> records = new ArrayList<>();
+
+    /** 下一页游标（不透明字符串），没有更多数据时为空 */
+    private String nextCursor;
+
+    private boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.triphub.pojo.vo;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.triphub.pojo.entity.Trip;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 行程详情 VO：行程本身 + 热门榜单名次。
+ * Trip detail with its positions in the hot rankings.
+ *
+ * trip 按原字段平铺输出，与直接返回 Trip 的 JSON 结构一致；ranks 仅 withRank=true 时填充。
+ */
+@Data
+public class TripDetailVO {
+
+    @JsonUnwrapped
+    private Trip trip;
+
+    /** 行程在全站与所在城市热门榜单中的名次 */
+    private List<TripRankVO> ranks;
+}
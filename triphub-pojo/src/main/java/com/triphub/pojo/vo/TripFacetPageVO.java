@@ -0,0 +1,30 @@
+package com.triphub.pojo.vo;
+
+import com.triphub.pojo.dto.TripSummaryDTO;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面筛选结果：当前页行程、命中总数与各分面计数。
+ * One page of faceted trip filtering with per-facet counts.
+ */
+@Data
+public class TripFacetPageVO {
+
+    private Long total;
+
+    private List<TripSummaryDTO> records = new ArrayList<>();
+
+    /** 城市 -> 行程数，按数量降序（不受已选城市影响） */
+    private Map<String, Integer> cityFacets = new LinkedHashMap<>();
+
+    /** 天数分桶（1 / 2 / 3 / 4-5 / 6-7 / 8+）-> 行程数 */
+    private Map<String, Integer> dayFacets = new LinkedHashMap<>();
+
+    /** 出发月份（1 - 12）-> 行程数 */
+    private Map<Integer, Integer> monthFacets = new LinkedHashMap<>();
+}
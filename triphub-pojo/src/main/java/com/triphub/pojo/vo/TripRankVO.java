@@ -0,0 +1,25 @@
+package com.triphub.pojo.vo;
+
+import lombok.Data;
+
+/**
+ * 单个行程在某个热门榜单中的名次与分数。
+ * Rank and score of a trip in one hot ranking.
+ */
+@Data
+public class TripRankVO {
+
+    private Long tripId;
+
+    /** 榜单范围：all / day / week（全站）、city / city_day / city_week（目的地城市内） */
+    private String scope;
+
+    /** 城市内榜单对应的城市，全站榜单为空 */
+    private String city;
+
+    /** 名次，从 1 开始 */
+    private Long rank;
+
+    /** 榜单分数 */
+    private Double score;
+}
@@ -1,14 +1,22 @@
 package com.triphub.server;
 
 import com.triphub.common.properties.AiProperties;
+import com.triphub.common.properties.AsyncProperties;
+import com.triphub.common.properties.ClusterProperties;
+import com.triphub.common.properties.HotRankingProperties;
 import com.triphub.common.properties.JwtProperties;
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.common.properties.SearchProperties;
+import com.triphub.common.properties.ViewEventProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
-@EnableConfigurationProperties({JwtProperties.class, AiProperties.class})
+@EnableConfigurationProperties({JwtProperties.class, AiProperties.class, HotRankingProperties.class,
+        ClusterProperties.class, ViewEventProperties.class, RecommendProperties.class,
+        AsyncProperties.class, SearchProperties.class})
 @EnableScheduling
 public class TriphubServerApplication {
 
@@ -326,6 +326,7 @@ public class TripPlanOrchestrator {
         Trip trip = ctx.getTrip();
         // 先落库，再返回 Trip + 解释。
         tripService.save(trip);
+        tripService.afterTripSaved(trip);
 
         AiTripPlanVO vo = new AiTripPlanVO();
         vo.setTrip(trip);
@@ -0,0 +1,43 @@
+package com.triphub.server.async;
+
+import com.triphub.common.context.BaseContext;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+
+/**
+ * 把提交线程的 MDC（traceId / userId）与 {@link BaseContext} 带到线程池线程：
+ * 提交时拷贝，执行前写入，执行后恢复线程原有的值，避免线程复用导致数据串线。
+ */
+public class ContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Long currentId = BaseContext.getCurrentId();
+        return () -> {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            Long previousId = BaseContext.getCurrentId();
+            apply(mdc, currentId);
+            try {
+                runnable.run();
+            } finally {
+                apply(previousMdc, previousId);
+            }
+        };
+    }
+
+    private static void apply(Map<String, String> mdc, Long currentId) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+        if (currentId == null) {
+            BaseContext.clear();
+        } else {
+            BaseContext.setCurrentId(currentId);
+        }
+    }
+}
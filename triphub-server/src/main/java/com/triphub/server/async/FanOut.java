@@ -0,0 +1,84 @@
+package com.triphub.server.async;
+
+import com.triphub.common.properties.AsyncProperties;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 请求内的并行加载：把互不依赖的分支提交到有界线程池，整体耗时约为最慢分支的耗时。
+ *
+ * - fork：提交一个分支，完成时按 operation / branch 记录耗时与结果；
+ * - join：等待必需分支，超时或失败时把原始异常抛给调用方（与串行执行时的行为一致）；
+ * - joinOrDefault：等待可降级分支，超时或失败时返回默认值并记日志。
+ */
+@Component
+@Slf4j
+public class FanOut {
+
+    private final ThreadPoolTaskExecutor executor;
+    private final MetricsRecorder metricsRecorder;
+    private final AsyncProperties asyncProperties;
+
+    public FanOut(@Qualifier("fanOutExecutor") ThreadPoolTaskExecutor executor,
+                  MetricsRecorder metricsRecorder,
+                  AsyncProperties asyncProperties) {
+        this.executor = executor;
+        this.metricsRecorder = metricsRecorder;
+        this.asyncProperties = asyncProperties;
+    }
+
+    public <T> CompletableFuture<T> fork(String operation, String branch, Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            String outcome = "error";
+            try {
+                T value = supplier.get();
+                outcome = "success";
+                return value;
+            } finally {
+                metricsRecorder.recordFanOutBranch(operation, branch, outcome,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }, executor);
+    }
+
+    public <T> T join(Future<T> future) {
+        try {
+            return future.get(asyncProperties.getBranchTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("并行加载分支超时", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("并行加载被中断", e);
+        }
+    }
+
+    public <T> T joinOrDefault(Future<T> future, T defaultValue) {
+        try {
+            return join(future);
+        } catch (RuntimeException e) {
+            log.warn("并行加载分支失败, 使用默认值: {}", e.getMessage());
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.triphub.server.cluster;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.ClusterProperties;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 Redis 的轻量定时任务协调器，解决多实例部署时每个节点都跑同一批 @Scheduled 任务的问题。
+ *
+ * - 成员：每个节点周期性 ZADD cluster:nodes {now} {nodeId} 作为心跳，超时未心跳的节点视为下线；
+ * - 单例任务：cluster:lease:{job} 租约（SET NX PX），持有者每次心跳续约，只有持有者执行；
+ *   持有者宕机后租约自然过期，由下一个触发该任务的节点接管；
+ * - 可分片任务：存活节点按 nodeId 排序，shard mod 存活节点数 == 本节点下标 的分片归本节点处理，
+ *   节点上下线后下一次心跳即重新分配。
+ *
+ * 成员变化的瞬间两个节点可能短暂认领同一分片，分片任务需保证单分片处理本身是原子/幂等的。
+ *
+ * 心跳与续约跑在独立的单线程调度器上，不与 @Scheduled 任务共用线程：长任务（全量重建、checkpoint 等）
+ * 占住调度线程时本节点仍按时心跳，不会被误判下线而导致租约、分片漂移。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JobCoordinator {
+
+    /**
+     * KEYS: [leaseKey]
+     * ARGV: [nodeId, leaseMillis]
+     * 已由本节点持有则续约，空闲则抢占，否则失败。
+     */
+    private static final DefaultRedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('GET', KEYS[1]); " +
+                    "if v == ARGV[1] then redis.call('PEXPIRE', KEYS[1], ARGV[2]); return 1; end; " +
+                    "if not v then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]); return 1; end; " +
+                    "return 0;",
+            Long.class
+    );
+
+    /**
+     * KEYS: [leaseKey]
+     * ARGV: [nodeId]
+     */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]); end; " +
+                    "return 0;",
+            Long.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ClusterProperties clusterProperties;
+    private final MetricsRecorder metricsRecorder;
+
+    /** 本节点当前持有的单例任务租约 */
+    private final Set<String> heldJobs = ConcurrentHashMap.newKeySet();
+
+    /** 最近一次心跳看到的存活节点（按 nodeId 排序） */
+    private volatile List<String> liveNodes = Collections.emptyList();
+
+    private final AtomicLong liveNodeGauge = new AtomicLong();
+
+    private String nodeId;
+
+    private ScheduledExecutorService heartbeatExecutor;
+
+    @PostConstruct
+    public void init() {
+        nodeId = StringUtils.hasText(clusterProperties.getNodeId())
+                ? clusterProperties.getNodeId().trim()
+                : defaultNodeId();
+        metricsRecorder.registerClusterLiveNodes(nodeId, liveNodeGauge);
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            log.warn("节点首次注册失败, 等待下次心跳重试, nodeId={}", nodeId, e);
+        }
+        heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cluster-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = clusterProperties.getHeartbeatIntervalMillis();
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeatSafely, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("任务协调器已启动, nodeId={}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 最近一次心跳看到的存活节点（按 nodeId 排序）。
+     */
+    public List<String> liveNodes() {
+        return liveNodes;
+    }
+
+    /**
+     * 心跳：刷新本节点成员记录、清理超时节点、续约持有的租约，并刷新本地的存活节点视图。
+     */
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        long deadline = now - clusterProperties.getNodeTimeoutMillis();
+        stringRedisTemplate.opsForZSet().add(RedisConstants.CLUSTER_NODES_ZSET, nodeId, now);
+        stringRedisTemplate.opsForZSet().removeRangeByScore(RedisConstants.CLUSTER_NODES_ZSET, Double.NEGATIVE_INFINITY, deadline);
+
+        for (String job : heldJobs) {
+            if (!acquire(job)) {
+                heldJobs.remove(job);
+                log.warn("单例任务租约已丢失, job={}, nodeId={}", job, nodeId);
+            }
+        }
+
+        Set<String> members = stringRedisTemplate.opsForZSet()
+                .rangeByScore(RedisConstants.CLUSTER_NODES_ZSET, deadline, Double.POSITIVE_INFINITY);
+        List<String> sorted = members == null ? new ArrayList<>() : new ArrayList<>(members);
+        Collections.sort(sorted);
+        if (!sorted.equals(liveNodes)) {
+            log.info("集群成员变化, nodeId={}, liveNodes={}", nodeId, sorted);
+        }
+        liveNodes = Collections.unmodifiableList(sorted);
+        liveNodeGauge.set(sorted.size());
+    }
+
+    /**
+     * 调度器中的任务抛出异常后不再执行，这里吞掉异常只记日志，下一轮照常心跳。
+     */
+    private void heartbeatSafely() {
+        try {
+            heartbeat();
+        } catch (Exception e) {
+            log.warn("节点心跳失败, 等待下次重试, nodeId={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 单例任务入口：本节点持有（或成功抢到）该任务的租约时返回 true。
+     */
+    public boolean tryRunAsLeader(String job) {
+        boolean leader;
+        try {
+            leader = acquire(job);
+        } catch (Exception e) {
+            log.warn("获取单例任务租约失败, 本轮跳过, job={}", job, e);
+            leader = false;
+        }
+        if (leader) {
+            heldJobs.add(job);
+        } else {
+            heldJobs.remove(job);
+        }
+        metricsRecorder.recordClusterJob(job, nodeId, leader ? "run" : "skip");
+        return leader;
+    }
+
+    /**
+     * 可分片任务入口：返回 [0, totalShards) 中归本节点处理的分片。
+     * 尚未看到任何存活节点（首次心跳失败等）时按单机处理，全部分片归本节点；
+     * 其他节点存活而本节点不在成员列表中时不认领任何分片，由其他节点处理。
+     */
+    public List<Integer> ownedShards(String job, int totalShards) {
+        List<String> nodes = liveNodes;
+        int size = nodes.size();
+        int index = nodes.indexOf(nodeId);
+        List<Integer> owned = new ArrayList<>();
+        for (int shard = 0; shard < totalShards; shard++) {
+            boolean mine = size == 0 || (index >= 0 && shard % size == index);
+            if (mine) {
+                owned.add(shard);
+            }
+        }
+        metricsRecorder.recordClusterShards(job, nodeId, owned.size());
+        return owned;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeatExecutor != null) {
+            heartbeatExecutor.shutdownNow();
+        }
+        try {
+            for (String job : heldJobs) {
+                stringRedisTemplate.execute(RELEASE_SCRIPT,
+                        Collections.singletonList(RedisConstants.CLUSTER_LEASE_KEY_PREFIX + job), nodeId);
+            }
+            heldJobs.clear();
+            stringRedisTemplate.opsForZSet().remove(RedisConstants.CLUSTER_NODES_ZSET, nodeId);
+            log.info("节点已退出集群, 租约已释放, nodeId={}", nodeId);
+        } catch (Exception e) {
+            log.warn("节点退出时清理失败, 依赖超时自动下线, nodeId={}", nodeId, e);
+        }
+    }
+
+    private boolean acquire(String job) {
+        Long res = stringRedisTemplate.execute(
+                ACQUIRE_SCRIPT,
+                Collections.singletonList(RedisConstants.CLUSTER_LEASE_KEY_PREFIX + job),
+                nodeId,
+                String.valueOf(clusterProperties.getLeaseMillis())
+        );
+        return res != null && res == 1L;
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,37 @@
+package com.triphub.server.config;
+
+import com.triphub.common.properties.AsyncProperties;
+import com.triphub.server.async.ContextTaskDecorator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 请求内并行加载使用的有界线程池：
+ * - 线程数与队列容量由 AsyncProperties 控制；
+ * - 线程与队列都满时由调用线程执行（CallerRunsPolicy），高峰期退化为串行，不丢任务也不抛拒绝异常；
+ * - 通过 {@link ContextTaskDecorator} 传递 MDC 与 BaseContext。
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AsyncExecutorConfig {
+
+    private final AsyncProperties asyncProperties;
+
+    @Bean
+    public ThreadPoolTaskExecutor fanOutExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("fan-out-");
+        executor.setCorePoolSize(asyncProperties.getCorePoolSize());
+        executor.setMaxPoolSize(Math.max(asyncProperties.getMaxPoolSize(), asyncProperties.getCorePoolSize()));
+        executor.setQueueCapacity(asyncProperties.getQueueCapacity());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(new ContextTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(5);
+        return executor;
+    }
+}
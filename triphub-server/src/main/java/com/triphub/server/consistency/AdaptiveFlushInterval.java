@@ -0,0 +1,55 @@
+package com.triphub.server.consistency;
+
+/**
+ * 浏览量落库任务的自适应间隔（下一轮相对本轮结束的延迟）：
+ * - 本轮排空的行程数 ≥ target：积压，间隔减半；
+ * - 本轮为空：间隔翻倍；不足 target / 4：间隔放大到 1.5 倍；其余保持；
+ * - 落库失败按空闲处理（翻倍退避），避免 DB 故障时高频重试；
+ * - 间隔不小于本轮耗时的 2 倍，落库占用的时间比例不超过 1/3；
+ * 最终结果夹在 [min, max] 内。非线程安全，只由调度线程调用。
+ */
+final class AdaptiveFlushInterval {
+
+    private final long minMillis;
+    private final long maxMillis;
+    private final int targetBatch;
+    private long currentMillis;
+
+    AdaptiveFlushInterval(long minMillis, long maxMillis, int targetBatch, long initialMillis) {
+        this.minMillis = Math.max(minMillis, 1L);
+        this.maxMillis = Math.max(maxMillis, this.minMillis);
+        this.targetBatch = Math.max(targetBatch, 1);
+        this.currentMillis = clamp(initialMillis);
+    }
+
+    long currentMillis() {
+        return currentMillis;
+    }
+
+    /**
+     * 根据本轮排空的行程数与耗时计算并记住下一轮间隔。
+     */
+    long onSuccess(int drained, long durationMillis) {
+        long next;
+        if (drained >= targetBatch) {
+            next = currentMillis / 2;
+        } else if (drained == 0) {
+            next = currentMillis * 2;
+        } else if (drained < targetBatch / 4) {
+            next = currentMillis * 3 / 2;
+        } else {
+            next = currentMillis;
+        }
+        currentMillis = clamp(Math.max(next, durationMillis * 2));
+        return currentMillis;
+    }
+
+    long onFailure() {
+        currentMillis = clamp(currentMillis * 2);
+        return currentMillis;
+    }
+
+    private long clamp(long millis) {
+        return Math.min(Math.max(millis, minMillis), maxMillis);
+    }
+}
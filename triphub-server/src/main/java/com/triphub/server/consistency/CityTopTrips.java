@@ -0,0 +1,72 @@
+package com.triphub.server.consistency;
+
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 重建城市内热门行程榜时使用的内存缓冲：每个城市只保留分数最高的 capacity 个行程（小顶堆），
+ * 与线上 ZSet 的裁剪上限一致，内存占用为 城市数 × capacity。
+ */
+public final class CityTopTrips {
+
+    private static final Comparator<ZSetOperations.TypedTuple<String>> BY_SCORE =
+            Comparator.comparingDouble(t -> t.getScore() == null ? 0D : t.getScore());
+
+    private final int capacity;
+    private final Map<String, PriorityQueue<ZSetOperations.TypedTuple<String>>> heaps = new HashMap<>();
+
+    public CityTopTrips(int capacity) {
+        this.capacity = Math.max(capacity, 1);
+    }
+
+    public void offer(String city, Long tripId, double score) {
+        if (city == null || city.isEmpty() || tripId == null) {
+            return;
+        }
+        PriorityQueue<ZSetOperations.TypedTuple<String>> heap =
+                heaps.computeIfAbsent(city, c -> new PriorityQueue<>(BY_SCORE));
+        if (heap.size() < capacity) {
+            heap.add(new DefaultTypedTuple<>(String.valueOf(tripId), score));
+        } else if (score > heap.peek().getScore()) {
+            heap.poll();
+            heap.add(new DefaultTypedTuple<>(String.valueOf(tripId), score));
+        }
+    }
+
+    /**
+     * 每个城市写入 {liveKey}:tmp:{suffix} 后 RENAME 覆盖线上 key；ttlSeconds <= 0 表示不设置过期。
+     *
+     * @return 成功切换的城市数
+     */
+    public int swapInto(StringRedisTemplate redis, Function<String, String> liveKeyOf, long ttlSeconds, String suffix) {
+        int swapped = 0;
+        for (Map.Entry<String, PriorityQueue<ZSetOperations.TypedTuple<String>>> e : heaps.entrySet()) {
+            String liveKey = liveKeyOf.apply(e.getKey());
+            String tmpKey = liveKey + ":tmp:" + suffix;
+            Set<ZSetOperations.TypedTuple<String>> members = new HashSet<>(e.getValue());
+            try {
+                redis.delete(tmpKey);
+                redis.opsForZSet().add(tmpKey, members);
+                redis.rename(tmpKey, liveKey);
+                if (ttlSeconds > 0) {
+                    redis.expire(liveKey, ttlSeconds, TimeUnit.SECONDS);
+                }
+                swapped++;
+            } catch (Exception ex) {
+                redis.delete(tmpKey);
+                throw ex;
+            }
+        }
+        return swapped;
+    }
+}
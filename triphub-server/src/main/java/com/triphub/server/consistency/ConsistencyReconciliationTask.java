@@ -1,15 +1,34 @@
 package com.triphub.server.consistency;
 
 import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.DestinationStatDTO;
 import com.triphub.pojo.entity.Trip;
-import com.triphub.server.service.TripService;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.ranking.RankingTrimmer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 热门行程 / 热门目的地榜单的一致性重建任务。
@@ -20,14 +39,34 @@ import java.util.List;
  *     <li>支持 Redis 丢数据或被清空后自动恢复排行榜。</li>
  * </ul>
  * 该组件永远不修改 DB，只基于 DB 作为单一事实源（single source of truth）去修正 Redis。
+ *
+ * <p>重建是全量的：行程榜通过 MyBatis 流式 Cursor 逐行读取整张 trip 表（内存占用恒定），
+ * 目的地榜直接用 DB 侧 GROUP BY 聚合；两者都先分块 pipeline 写入临时 key，再 RENAME 原子切换。
+ * 城市内热门行程榜（hot:trip:city:{city}）在同一次遍历中按城市取 Top N，逐城市切换。
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class ConsistencyReconciliationTask {
 
+    private static final String JOB_HOT_RANKING = "hot_ranking";
+
+    /** 单条 ZADD 携带的成员数 */
+    private static final int ZADD_CHUNK_SIZE = 500;
+
+    /** 一次 pipeline 发送的 ZADD 条数 */
+    private static final int CHUNKS_PER_PIPELINE = 4;
+
+    /** 进度日志间隔（行） */
+    private static final long PROGRESS_LOG_INTERVAL = 50_000L;
+
     private final StringRedisTemplate stringRedisTemplate;
-    private final TripService tripService;
+    private final TripMapper tripMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsRecorder metricsRecorder;
+    private final JobCoordinator jobCoordinator;
+    private final HotRankingProperties hotRankingProperties;
+    private final RankingTrimmer rankingTrimmer;
 
     /**
      * 定期基于 DB 的 view_count 重建热门行程 / 热门目的地 ZSet，
@@ -35,81 +74,163 @@ public class ConsistencyReconciliationTask {
      */
     @Scheduled(cron = "0 0 * * * ?")
     public void rebuildHotRankingFromDb() {
-        int limit = 100;
-
-        @SuppressWarnings({"unchecked", "varargs"})
-        List<Trip> trips = tripService.lambdaQuery()
-                .eq(Trip::getVisibility, 2)
-                .orderByDesc(Trip::getViewCount)
-                .last("limit " + limit)
-                .list();
-
-        if (trips == null || trips.isEmpty()) {
-            // 无数据时直接清空线上榜单即可
-            stringRedisTemplate.delete(RedisConstants.HOT_TRIP_ZSET);
-            stringRedisTemplate.delete(RedisConstants.HOT_DEST_ZSET);
-            log.info("重建热门榜单完成: 当前没有公开行程数据，已清空榜单");
+        if (!jobCoordinator.tryRunAsLeader(JOB_HOT_RANKING)) {
             return;
         }
+        long start = System.currentTimeMillis();
+        AtomicLong progress = metricsRecorder.reconciliationProgress(JOB_HOT_RANKING);
+        progress.set(0L);
 
         // 原子切换：先写入临时 key，重建完毕后用 RENAME 覆盖线上 key，避免 DEL 导致的空窗
-        String suffix = String.valueOf(System.currentTimeMillis());
+        String suffix = String.valueOf(start);
         String tmpTripKey = RedisConstants.HOT_TRIP_ZSET + ":tmp:" + suffix;
         String tmpDestKey = RedisConstants.HOT_DEST_ZSET + ":tmp:" + suffix;
+        String tmpStatsKey = RedisConstants.HOT_DEST_STATS_HASH + ":tmp:" + suffix;
         // 清理可能遗留的临时 key（理论上不会重名，但以防万一）
         stringRedisTemplate.delete(tmpTripKey);
         stringRedisTemplate.delete(tmpDestKey);
+        stringRedisTemplate.delete(tmpStatsKey);
 
-        boolean wroteDest = false;
-        for (Trip trip : trips) {
-            if (trip == null || trip.getId() == null) {
-                continue;
-            }
-            Long tripId = trip.getId();
-            int viewCount = trip.getViewCount() == null ? 0 : trip.getViewCount();
-
-            // hot:trip 使用 tripId 作为 member，view_count 作为 score。
-            stringRedisTemplate.opsForZSet().add(
-                    tmpTripKey,
-                    String.valueOf(tripId),
-                    viewCount
-            );
-
-            // hot:dest 使用 destinationCity 作为 member，score 为该城市下所有行程 view_count 的累计值。
-            String destCity = trip.getDestinationCity();
-            if (destCity != null && !destCity.isEmpty()) {
-                double score = viewCount > 0 ? viewCount : 1D;
-                stringRedisTemplate.opsForZSet().incrementScore(
-                        tmpDestKey,
-                        destCity,
-                        score
-                );
-                wroteDest = true;
-            }
+        CityTopTrips cityTop = new CityTopTrips(hotRankingProperties.getCityRankingMaxSize());
+        long tripRows;
+        long destRows;
+        try {
+            // Cursor 依赖底层连接，必须在事务内遍历完
+            Long rows = transactionTemplate.execute(status -> streamTripsInto(tmpTripKey, progress, cityTop));
+            tripRows = rows == null ? 0L : rows;
+            destRows = writeDestinationTotals(tmpDestKey, tmpStatsKey);
+        } catch (Exception e) {
+            stringRedisTemplate.delete(tmpTripKey);
+            stringRedisTemplate.delete(tmpDestKey);
+            stringRedisTemplate.delete(tmpStatsKey);
+            metricsRecorder.recordReconciliation(JOB_HOT_RANKING, "error", progress.get(),
+                    System.currentTimeMillis() - start);
+            log.warn("重建热门榜单失败, 线上榜单保持不变", e);
+            return;
         }
 
-        // 覆盖线上 key（RENAME 原子切换）
+        swap(tmpTripKey, RedisConstants.HOT_TRIP_ZSET, tripRows);
+        swap(tmpDestKey, RedisConstants.HOT_DEST_ZSET, destRows);
+        // 全量重建会带回整张 trip 表，切换后立即按上限裁剪
+        rankingTrimmer.trim(RedisConstants.HOT_TRIP_ZSET);
+        rankingTrimmer.trim(RedisConstants.HOT_DEST_ZSET);
+        swap(tmpStatsKey, RedisConstants.HOT_DEST_STATS_HASH, destRows);
+        int cityCount = 0;
         try {
-            stringRedisTemplate.rename(tmpTripKey, RedisConstants.HOT_TRIP_ZSET);
+            cityCount = cityTop.swapInto(stringRedisTemplate, RedisConstants::hotTripCityKey, 0L, suffix);
         } catch (Exception e) {
-            // rename 失败时回退：至少保证线上 key 不会被我们清空
-            log.warn("重建热门行程榜单切换失败, tmpKey={}", tmpTripKey, e);
+            log.warn("重建城市内热门行程榜失败, 未切换的城市保持不变", e);
         }
 
-        if (wroteDest) {
-            try {
-                stringRedisTemplate.rename(tmpDestKey, RedisConstants.HOT_DEST_ZSET);
-            } catch (Exception e) {
-                log.warn("重建热门目的地榜单切换失败, tmpKey={}", tmpDestKey, e);
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_HOT_RANKING, "success", tripRows + destRows, duration);
+        log.info("基于 DB 成功重建热门行程 / 热门目的地 ZSet, tripCount={}, destCount={}, cityRankings={}, durationMs={}",
+                tripRows, destRows, cityCount, duration);
+    }
+
+    /**
+     * 流式遍历全部公开行程，分块写入临时行程榜：hot:trip 使用 tripId 作为 member，view_count 作为 score；
+     * 同时按 destinationCity 收集城市内 Top N。
+     */
+    private long streamTripsInto(String tmpTripKey, AtomicLong progress, CityTopTrips cityTop) {
+        long rows = 0L;
+        long nextProgressLog = PROGRESS_LOG_INTERVAL;
+        List<ZSetOperations.TypedTuple<String>> buffer = new ArrayList<>(ZADD_CHUNK_SIZE * CHUNKS_PER_PIPELINE);
+        try (Cursor<Trip> cursor = tripMapper.streamPublicTripViewCounts()) {
+            for (Trip trip : cursor) {
+                if (trip == null || trip.getId() == null) {
+                    continue;
+                }
+                int viewCount = trip.getViewCount() == null ? 0 : trip.getViewCount();
+                buffer.add(new DefaultTypedTuple<>(String.valueOf(trip.getId()), (double) viewCount));
+                cityTop.offer(trip.getDestinationCity(), trip.getId(), viewCount);
+                if (buffer.size() >= ZADD_CHUNK_SIZE * CHUNKS_PER_PIPELINE) {
+                    rows += flushChunks(tmpTripKey, buffer);
+                    progress.set(rows);
+                    if (rows >= nextProgressLog) {
+                        log.info("重建热门行程榜进行中, processedRows={}", rows);
+                        nextProgressLog += PROGRESS_LOG_INTERVAL;
+                    }
+                }
             }
-        } else {
-            // 没有任何有效城市写入时，目的地榜单应为空
-            stringRedisTemplate.delete(RedisConstants.HOT_DEST_ZSET);
-            stringRedisTemplate.delete(tmpDestKey);
+        } catch (IOException e) {
+            log.warn("关闭行程流式游标失败", e);
         }
+        rows += flushChunks(tmpTripKey, buffer);
+        progress.set(rows);
+        return rows;
+    }
 
-        log.info("基于 DB 成功重建热门行程 / 热门目的地 ZSet, tripCount={}", trips.size());
+    /**
+     * hot:dest 使用 destinationCity 作为 member，score 为该城市下所有公开行程 view_count 的累计值（DB 聚合）；
+     * 同一份聚合结果顺带校正目的地统计 Hash 中的公开行程数。
+     */
+    private long writeDestinationTotals(String tmpDestKey, String tmpStatsKey) {
+        List<DestinationStatDTO> stats = tripMapper.aggregatePublicDestinationStats();
+        if (stats == null || stats.isEmpty()) {
+            return 0L;
+        }
+        List<ZSetOperations.TypedTuple<String>> buffer = new ArrayList<>(ZADD_CHUNK_SIZE * CHUNKS_PER_PIPELINE);
+        Map<String, String> tripCounts = new HashMap<>();
+        long rows = 0L;
+        for (DestinationStatDTO stat : stats) {
+            if (stat == null || stat.getCity() == null || stat.getCity().isEmpty()) {
+                continue;
+            }
+            double score = stat.getTotalViews() == null ? 0D : stat.getTotalViews();
+            buffer.add(new DefaultTypedTuple<>(stat.getCity(), score));
+            tripCounts.put(stat.getCity(), String.valueOf(stat.getTripCount() == null ? 0L : stat.getTripCount()));
+            if (buffer.size() >= ZADD_CHUNK_SIZE * CHUNKS_PER_PIPELINE) {
+                rows += flushChunks(tmpDestKey, buffer);
+                stringRedisTemplate.opsForHash().putAll(tmpStatsKey, tripCounts);
+                tripCounts.clear();
+            }
+        }
+        rows += flushChunks(tmpDestKey, buffer);
+        if (!tripCounts.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(tmpStatsKey, tripCounts);
+        }
+        return rows;
     }
-}
 
+    /**
+     * 把缓冲区按 ZADD_CHUNK_SIZE 切成多条变参 ZADD，一次 pipeline 发出，然后清空缓冲区。
+     */
+    private int flushChunks(String key, List<ZSetOperations.TypedTuple<String>> buffer) {
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        int size = buffer.size();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (int from = 0; from < size; from += ZADD_CHUNK_SIZE) {
+                    int to = Math.min(from + ZADD_CHUNK_SIZE, size);
+                    Set<ZSetOperations.TypedTuple<String>> chunk = new HashSet<>(buffer.subList(from, to));
+                    operations.opsForZSet().add(key, chunk);
+                }
+                return null;
+            }
+        });
+        buffer.clear();
+        return size;
+    }
 
+    /**
+     * 覆盖线上 key（RENAME 原子切换）；没有任何数据写入时线上榜单应为空。
+     */
+    private void swap(String tmpKey, String liveKey, long rows) {
+        if (rows <= 0) {
+            stringRedisTemplate.delete(liveKey);
+            stringRedisTemplate.delete(tmpKey);
+            return;
+        }
+        try {
+            stringRedisTemplate.rename(tmpKey, liveKey);
+        } catch (Exception e) {
+            // rename 失败时回退：至少保证线上 key 不会被我们清空
+            log.warn("重建热门榜单切换失败, tmpKey={}", tmpKey, e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.triphub.server.consistency;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.CreatorStatDTO;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripFavoriteMapper;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.mapper.TripViewDailyMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.ranking.CreatorRanking;
+import com.triphub.server.ranking.HotRankingKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创作者榜（hot:creator*）的一致性重建任务。
+ *
+ * <p>全量榜与累计统计 Hash：每小时按 trip.user_id 在 DB 侧 GROUP BY，流式 Cursor 逐行读取，
+ * 分块 pipeline 写入临时 key 后 RENAME 原子切换（score = 浏览量 + 收藏权重 × like_count）。
+ *
+ * <p>今日 / 本周榜：只在线上 key 缺失（Redis 丢数据）时，用 trip_view_daily 与 trip_favorite 的窗口聚合重建；
+ * trip_view_daily 落后于实时增量约一个落库周期，平时不覆盖增量维护的结果。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CreatorRankingReconciliationTask {
+
+    private static final String JOB_CREATOR_RANKING = "creator_ranking";
+
+    private static final int CHUNK_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripMapper tripMapper;
+    private final TripViewDailyMapper tripViewDailyMapper;
+    private final TripFavoriteMapper tripFavoriteMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final MetricsRecorder metricsRecorder;
+    private final JobCoordinator jobCoordinator;
+
+    @Scheduled(cron = "0 15 * * * ?")
+    public void reconcile() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_CREATOR_RANKING)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String suffix = String.valueOf(start);
+        String tmpRankKey = RedisConstants.HOT_CREATOR_ZSET + ":tmp:" + suffix;
+        String tmpStatsKey = RedisConstants.HOT_CREATOR_STATS_HASH + ":tmp:" + suffix;
+        long rows;
+        try {
+            Long n = transactionTemplate.execute(status -> streamCreatorsInto(tmpRankKey, tmpStatsKey));
+            rows = n == null ? 0L : n;
+            if (rows > 0) {
+                stringRedisTemplate.rename(tmpRankKey, RedisConstants.HOT_CREATOR_ZSET);
+                stringRedisTemplate.rename(tmpStatsKey, RedisConstants.HOT_CREATOR_STATS_HASH);
+            } else {
+                stringRedisTemplate.delete(RedisConstants.HOT_CREATOR_ZSET);
+                stringRedisTemplate.delete(RedisConstants.HOT_CREATOR_STATS_HASH);
+            }
+            rebuildWindowIfMissing(true);
+            rebuildWindowIfMissing(false);
+        } catch (Exception e) {
+            stringRedisTemplate.delete(tmpRankKey);
+            stringRedisTemplate.delete(tmpStatsKey);
+            metricsRecorder.recordReconciliation(JOB_CREATOR_RANKING, "error", 0L, System.currentTimeMillis() - start);
+            log.warn("重建创作者榜失败, 线上榜单保持不变", e);
+            return;
+        }
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_CREATOR_RANKING, "success", rows, duration);
+        log.info("基于 DB 重建创作者榜完成, creatorCount={}, durationMs={}", rows, duration);
+    }
+
+    private long streamCreatorsInto(String tmpRankKey, String tmpStatsKey) {
+        long weight = hotRankingProperties.getCreatorFavoriteWeight();
+        long rows = 0L;
+        List<ZSetOperations.TypedTuple<String>> ranks = new ArrayList<>(CHUNK_SIZE);
+        Map<String, String> stats = new HashMap<>(CHUNK_SIZE * 4);
+        try (Cursor<CreatorStatDTO> cursor = tripMapper.streamPublicCreatorStats()) {
+            for (CreatorStatDTO row : cursor) {
+                if (row == null || row.getUserId() == null) {
+                    continue;
+                }
+                long views = nz(row.getViews());
+                long favorites = nz(row.getFavorites());
+                ranks.add(new DefaultTypedTuple<>(String.valueOf(row.getUserId()), (double) (views + weight * favorites)));
+                stats.put(CreatorRanking.statsField(row.getUserId(), CreatorRanking.FIELD_VIEWS), String.valueOf(views));
+                stats.put(CreatorRanking.statsField(row.getUserId(), CreatorRanking.FIELD_FAVORITES), String.valueOf(favorites));
+                stats.put(CreatorRanking.statsField(row.getUserId(), CreatorRanking.FIELD_TRIPS), String.valueOf(nz(row.getTripCount())));
+                if (ranks.size() >= CHUNK_SIZE) {
+                    rows += flush(tmpRankKey, ranks, tmpStatsKey, stats);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("关闭创作者聚合流式游标失败", e);
+        }
+        rows += flush(tmpRankKey, ranks, tmpStatsKey, stats);
+        return rows;
+    }
+
+    /**
+     * 今日（day=true）或本周榜缺失时，按窗口聚合浏览量与新增收藏重建。
+     */
+    private void rebuildWindowIfMissing(boolean day) {
+        LocalDate today = LocalDate.now();
+        LocalDate from = day ? today : today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate to = day ? today : from.plusDays(6);
+        String key = day
+                ? RedisConstants.HOT_CREATOR_DAY_ZSET_PREFIX + HotRankingKeys.ymd(today)
+                : RedisConstants.HOT_CREATOR_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(today);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            return;
+        }
+
+        long weight = hotRankingProperties.getCreatorFavoriteWeight();
+        Map<Long, Long> scores = new HashMap<>();
+        for (CreatorStatDTO row : tripViewDailyMapper.sumCreatorViews(from, to)) {
+            if (row != null && row.getUserId() != null) {
+                scores.merge(row.getUserId(), nz(row.getViews()), Long::sum);
+            }
+        }
+        for (CreatorStatDTO row : tripFavoriteMapper.countCreatorFavorites(from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            if (row != null && row.getUserId() != null) {
+                scores.merge(row.getUserId(), weight * nz(row.getFavorites()), Long::sum);
+            }
+        }
+        if (scores.isEmpty()) {
+            return;
+        }
+        String tmpKey = key + ":tmp:" + System.currentTimeMillis();
+        List<ZSetOperations.TypedTuple<String>> buffer = new ArrayList<>(CHUNK_SIZE);
+        for (Map.Entry<Long, Long> e : scores.entrySet()) {
+            buffer.add(new DefaultTypedTuple<>(String.valueOf(e.getKey()), e.getValue().doubleValue()));
+            if (buffer.size() >= CHUNK_SIZE) {
+                flush(tmpKey, buffer, null, null);
+            }
+        }
+        flush(tmpKey, buffer, null, null);
+        stringRedisTemplate.rename(tmpKey, key);
+        stringRedisTemplate.expire(key, day ? RedisConstants.HOT_DAY_TTL_DAYS : RedisConstants.HOT_WEEK_TTL_DAYS, TimeUnit.DAYS);
+        log.info("创作者{}榜缺失, 已按窗口聚合重建, key={}, size={}", day ? "日" : "周", key, scores.size());
+    }
+
+    private int flush(String rankKey, List<ZSetOperations.TypedTuple<String>> ranks,
+                      String statsKey, Map<String, String> stats) {
+        if (ranks.isEmpty()) {
+            return 0;
+        }
+        int size = ranks.size();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForZSet().add(rankKey, new HashSet<>(ranks));
+                if (statsKey != null && !stats.isEmpty()) {
+                    operations.opsForHash().putAll(statsKey, stats);
+                }
+                return null;
+            }
+        });
+        ranks.clear();
+        if (stats != null) {
+            stats.clear();
+        }
+        return size;
+    }
+
+    private static long nz(Long v) {
+        return v == null ? 0L : v;
+    }
+}
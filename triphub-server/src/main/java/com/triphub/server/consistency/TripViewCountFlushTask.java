@@ -1,56 +1,166 @@
 package com.triphub.server.consistency;
 
 import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.ViewEventProperties;
+import com.triphub.server.cluster.JobCoordinator;
 import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.mapper.TripViewDailyMapper;
+import com.triphub.server.utils.UniqueVisitorCounter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
 import java.util.*;
 
 /**
  * 行程浏览量 view_count 增量落库任务：
  * - 请求路径只做 Redis 增量（Hash），避免每次详情都写 DB；
- * - 定时批量把增量刷回 DB，实现最终一致。
+ * - 定时批量把增量刷回 DB，实现最终一致；
+ * - 增量 Hash 按 tripId 分片，多实例时由 JobCoordinator 把分片分摊到各存活节点；
+ * - 同一批增量按落库当天累加进 trip_view_daily，作为日榜/周榜的重建数据源。
+ *   增量最多滞留一个刷新周期，跨零点时少量浏览会记到次日，对榜单重建可以接受。
+ *
+ * 两阶段排空：先用 Lua 把分片 RENAME 到 {key}:processing（已有遗留时把新增量合并进去）并占用租约，
+ * DB 事务提交后才删除 processing key（ack）；落库失败时增量原样保留，下一轮重试。
+ * ack 本身失败会导致下一轮重复落库（至少一次），这比静默丢数更容易被重建任务发现和修正。
+ *
+ * 调度间隔由 {@link AdaptiveFlushInterval} 根据上一轮排空量与耗时在 [flushMinIntervalMillis, flushMaxIntervalMillis] 内调整。
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class TripViewCountFlushTask {
+public class TripViewCountFlushTask implements SchedulingConfigurer {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final TripMapper tripMapper;
+    private final TripViewDailyMapper tripViewDailyMapper;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final JobCoordinator jobCoordinator;
+    private final TransactionTemplate transactionTemplate;
+    private final ViewEventProperties viewEventProperties;
+
+    private static final String JOB_VIEW_DELTA_FLUSH = "view_delta_flush";
+
+    private static final String JOB_VIEW_DELTA_LEGACY = "view_delta_legacy";
+
+    /** 单轮最多合并/回写的独立访客行程数，剩余留到下一轮 */
+    private static final int UV_FLUSH_BATCH_SIZE = 500;
+
+    /** 启动后的首轮间隔（与改造前的固定间隔一致） */
+    private static final long INITIAL_FLUSH_INTERVAL_MILLIS = 10_000L;
 
     /**
-     * 原子读取并删除 Hash 的 Lua：
-     * 返回 HGETALL 结果（field1, value1, field2, value2...），然后 DEL key。
+     * 排空 Lua：
+     * KEYS: [deltaKey, processingKey, ownerKey]
+     * ARGV: [nodeId, claimMillis]
+     * processing key 被其他节点占用（租约未到期）时返回空；否则续租，
+     * processing 不存在则 RENAME 增量 Hash 过去（去掉 TTL），已存在（上一轮未 ack）则把新增量 HINCRBY 合并进去，
+     * 最后返回 processing 的 HGETALL（field1, value1, ...）。
      */
     @SuppressWarnings("rawtypes")
-    private static final DefaultRedisScript<List> HGETALL_DEL_SCRIPT = new DefaultRedisScript<>(
-            "local res = redis.call('HGETALL', KEYS[1]); " +
-                    "if res and #res > 0 then redis.call('DEL', KEYS[1]); end; " +
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('GET', KEYS[3]); " +
+                    "if owner and owner ~= ARGV[1] then return {}; end; " +
+                    "redis.call('SET', KEYS[3], ARGV[1], 'PX', ARGV[2]); " +
+                    "if redis.call('EXISTS', KEYS[2]) == 0 then " +
+                    "  if redis.call('EXISTS', KEYS[1]) == 1 then " +
+                    "    redis.call('RENAME', KEYS[1], KEYS[2]); redis.call('PERSIST', KEYS[2]); " +
+                    "  end; " +
+                    "else " +
+                    "  local res = redis.call('HGETALL', KEYS[1]); " +
+                    "  for i = 1, #res, 2 do redis.call('HINCRBY', KEYS[2], res[i], res[i + 1]); end; " +
+                    "  if #res > 0 then redis.call('DEL', KEYS[1]); end; " +
+                    "end; " +
+                    "local res = redis.call('HGETALL', KEYS[2]); " +
+                    "if #res == 0 then redis.call('DEL', KEYS[3]); end; " +
                     "return res;",
             List.class
     );
 
     /**
-     * 每 10 秒刷一次，Demo 取一个比较激进的频率，面试也好讲（最终一致）。
+     * ack Lua：仍由本节点占用时删除 processing key 与占用者 key。
+     * KEYS: [processingKey, ownerKey]
+     * ARGV: [nodeId]
+     */
+    private static final DefaultRedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[2]) == ARGV[1] then " +
+                    "  redis.call('DEL', KEYS[1], KEYS[2]); return 1; " +
+                    "end; " +
+                    "return 0;",
+            Long.class
+    );
+
+    private AdaptiveFlushInterval flushInterval;
+
+    @PostConstruct
+    public void init() {
+        flushInterval = new AdaptiveFlushInterval(
+                viewEventProperties.getFlushMinIntervalMillis(),
+                viewEventProperties.getFlushMaxIntervalMillis(),
+                viewEventProperties.getFlushTargetBatch(),
+                INITIAL_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * 以「上一轮结束时间 + 自适应间隔」作为下一轮触发时间，代替固定的 fixedDelay。
      */
-    @Scheduled(fixedDelay = 10_000L)
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.addTriggerTask(this::flushViewCountDeltas, triggerContext -> {
+            Date last = triggerContext.lastCompletionTime();
+            long base = last == null ? System.currentTimeMillis() : last.getTime();
+            return new Date(base + flushInterval.currentMillis());
+        });
+    }
+
     public void flushViewCountDeltas() {
-        List<Object> raw = executeFetchAndClear();
-        if (raw == null || raw.isEmpty()) {
+        long start = System.currentTimeMillis();
+        // 多实例时按分片分摊：每个节点只排空归自己的分片；不带分片后缀的旧 key 由单一 leader 排空
+        Map<Long, Long> deltaMap = new HashMap<>();
+        List<String> drainedKeys = new ArrayList<>();
+        for (Integer shard : jobCoordinator.ownedShards(JOB_VIEW_DELTA_FLUSH, RedisConstants.TRIP_VIEW_COUNT_DELTA_SHARDS)) {
+            drainInto(deltaMap, drainedKeys, RedisConstants.tripViewDeltaShardKey(shard));
+        }
+        if (jobCoordinator.tryRunAsLeader(JOB_VIEW_DELTA_LEGACY)) {
+            drainInto(deltaMap, drainedKeys, RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH);
+        }
+        if (deltaMap.isEmpty()) {
+            flushInterval.onSuccess(0, System.currentTimeMillis() - start);
             return;
         }
 
-        Map<Long, Long> deltaMap = parse(raw);
-        if (deltaMap.isEmpty()) {
+        int[] rows;
+        try {
+            rows = transactionTemplate.execute(status -> writeDeltas(deltaMap));
+        } catch (Exception e) {
+            long next = flushInterval.onFailure();
+            log.warn("flush view_count deltas failed, deltas kept in processing keys for retry, tripCount={}, nextIntervalMs={}",
+                    deltaMap.size(), next, e);
             return;
         }
+        for (String key : drainedKeys) {
+            ack(key);
+        }
+        long duration = System.currentTimeMillis() - start;
+        long next = flushInterval.onSuccess(deltaMap.size(), duration);
+        log.info("flush view_count deltas done, tripCount={}, updatedRows={}, rollupRows={}, durationMs={}, nextIntervalMs={}",
+                deltaMap.size(), rows == null ? 0 : rows[0], rows == null ? 0 : rows[1], duration, next);
+    }
 
+    /**
+     * 同一事务内累加 trip.view_count 与 trip_view_daily，全部成功才提交。
+     *
+     * @return {updatedRows, rollupRows}
+     */
+    private int[] writeDeltas(Map<Long, Long> deltaMap) {
         int updated = 0;
         for (Map.Entry<Long, Long> e : deltaMap.entrySet()) {
             Long tripId = e.getKey();
@@ -60,29 +170,79 @@ public class TripViewCountFlushTask {
             }
             updated += tripMapper.updateViewCountDelta(tripId, delta);
         }
-        log.info("flush view_count deltas done, tripCount={}, updatedRows={}", deltaMap.size(), updated);
+        int rollupRows = tripViewDailyMapper.batchUpsert(LocalDate.now(), deltaMap);
+        return new int[]{updated, rollupRows};
     }
 
-    private List<Object> executeFetchAndClear() {
+    /**
+     * 独立访客数落库：把 dirty 行程的 HLL 日桶合并进 all 桶，再批量回写 trip.unique_visitor_count。
+     * 目的地 UV 只需合并 all 桶（不落库）。
+     * dirty 集合用 SPOP 出队，多个节点同时执行时天然各取一部分，无需额外协调；
+     * 合并或回写 DB 失败时出队的 id 放回 dirty 集合，下一轮重试。行程与目的地各自独立，互不影响。
+     */
+    @Scheduled(fixedDelay = 60_000L)
+    public void flushUniqueVisitorCounts() {
+        Map<Long, Long> uvMap = Collections.emptyMap();
+        try {
+            uvMap = uniqueVisitorCounter.mergeDirtyTrips(UV_FLUSH_BATCH_SIZE);
+            if (!uvMap.isEmpty()) {
+                int updated = tripMapper.batchUpdateUniqueVisitorCount(uvMap);
+                log.info("flush trip unique visitor counts done, tripCount={}, updatedRows={}", uvMap.size(), updated);
+            }
+        } catch (Exception e) {
+            uniqueVisitorCounter.requeueDirtyTrips(uvMap.keySet());
+            log.warn("flush trip unique visitor counts failed, dirty trips requeued, tripCount={}", uvMap.size(), e);
+        }
+        try {
+            int destMerged = uniqueVisitorCounter.mergeDirtyDestinations(UV_FLUSH_BATCH_SIZE);
+            if (destMerged > 0) {
+                log.info("merge destination unique visitors done, destMerged={}", destMerged);
+            }
+        } catch (Exception e) {
+            log.warn("merge destination unique visitors failed", e);
+        }
+    }
+
+    private void drainInto(Map<Long, Long> deltaMap, List<String> drainedKeys, String key) {
         try {
             Object res = stringRedisTemplate.execute(
-                    HGETALL_DEL_SCRIPT,
-                    Collections.singletonList(RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH)
+                    DRAIN_SCRIPT,
+                    Arrays.asList(key, key + RedisConstants.TRIP_VIEW_DELTA_PROCESSING_SUFFIX,
+                            key + RedisConstants.TRIP_VIEW_DELTA_OWNER_SUFFIX),
+                    jobCoordinator.getNodeId(),
+                    String.valueOf(viewEventProperties.getFlushClaimMillis())
             );
-            if (res instanceof List) {
+            if (res instanceof List && !((List<?>) res).isEmpty()) {
                 @SuppressWarnings("unchecked")
                 List<Object> list = (List<Object>) res;
-                return list;
+                mergeInto(deltaMap, list);
+                drainedKeys.add(key);
             }
-            return Collections.emptyList();
         } catch (Exception e) {
-            log.warn("flush view_count deltas failed when read redis", e);
-            return Collections.emptyList();
+            log.warn("flush view_count deltas failed when read redis, key={}", key, e);
         }
     }
 
-    private Map<Long, Long> parse(List<Object> raw) {
-        Map<Long, Long> map = new HashMap<>();
+    private void ack(String key) {
+        try {
+            Long acked = stringRedisTemplate.execute(
+                    ACK_SCRIPT,
+                    Arrays.asList(key + RedisConstants.TRIP_VIEW_DELTA_PROCESSING_SUFFIX,
+                            key + RedisConstants.TRIP_VIEW_DELTA_OWNER_SUFFIX),
+                    jobCoordinator.getNodeId()
+            );
+            if (acked == null || acked == 0L) {
+                log.warn("ack view_count deltas skipped, processing key claimed by another node, key={}", key);
+            }
+        } catch (Exception e) {
+            log.warn("ack view_count deltas failed, deltas may be flushed again, key={}", key, e);
+        }
+    }
+
+    private void mergeInto(Map<Long, Long> map, List<Object> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return;
+        }
         for (int i = 0; i + 1 < raw.size(); i += 2) {
             String field = String.valueOf(raw.get(i));
             String value = String.valueOf(raw.get(i + 1));
@@ -96,7 +256,6 @@ public class TripViewCountFlushTask {
                 // ignore bad field/value
             }
         }
-        return map;
     }
 }
 
@@ -0,0 +1,285 @@
+package com.triphub.server.consistency;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.DestinationStatDTO;
+import com.triphub.pojo.dto.TripViewCountDTO;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripViewDailyMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.ranking.HotRankingKeys;
+import com.triphub.server.ranking.RankingTrimmer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日榜 / 周榜（hot:{trip|dest}:{day|week}:*）的一致性重建任务。
+ *
+ * <p>日榜/周榜只在浏览路径上增量维护，Redis 重启后无法从 trip.view_count 还原；
+ * 这里以 trip_view_daily 日汇总表为数据源，按 key 对应的日期区间聚合后写入临时 key，再 RENAME 原子切换。
+ * 重建行程日榜/周榜时顺带重建同一窗口的城市内榜单（hot:trip:city:{city}:day|week:*）。
+ *
+ * <p>Redis 是否丢过数据通过一个不带 TTL 的哨兵 key 判断：哨兵不存在即认为发生过丢失（或首次上线），
+ * 对 TTL 覆盖范围内<b>不存在</b>的日榜/周榜逐个重建后再写回哨兵。线上仍存在的 key 一律保留：
+ * 首次上线时 trip_view_daily 才刚开始累积，用它覆盖线上榜单只会丢数据；日汇总为空时也不删除线上 key。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WindowRankingReconciliationTask {
+
+    private static final String JOB_WINDOW_RANKING = "window_ranking";
+
+    private static final int ZADD_CHUNK_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripViewDailyMapper tripViewDailyMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsRecorder metricsRecorder;
+    private final JobCoordinator jobCoordinator;
+    private final HotRankingProperties hotRankingProperties;
+    private final RankingTrimmer rankingTrimmer;
+
+    /**
+     * 每 10 分钟检查一次哨兵，Redis 丢过数据时重建仍在 TTL 内、且已经不存在的日榜/周榜。
+     */
+    @Scheduled(cron = "0 */10 * * * ?")
+    public void reconcileIfRedisLost() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_WINDOW_RANKING)) {
+            return;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisConstants.HOT_WINDOW_SENTINEL_KEY))) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int rebuilt = 0;
+        int kept = 0;
+        for (String key : windowKeysInRetention()) {
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+                kept++;
+                continue;
+            }
+            if (rebuildWindowKey(key)) {
+                rebuilt++;
+            }
+        }
+        stringRedisTemplate.opsForValue().set(RedisConstants.HOT_WINDOW_SENTINEL_KEY, String.valueOf(start));
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_WINDOW_RANKING, "success", rebuilt, duration);
+        log.info("检测到日榜/周榜哨兵缺失, 已基于 trip_view_daily 重建缺失的 key, rebuilt={}, kept={}, durationMs={}",
+                rebuilt, kept, duration);
+    }
+
+    /**
+     * 从 trip_view_daily 重建任意一个日榜/周榜 key，例如 hot:trip:day:20240501、hot:dest:week:202418。
+     *
+     * @return key 可识别且重建流程执行完成时返回 true
+     */
+    public boolean rebuildWindowKey(String key) {
+        WindowSpec spec = parse(key);
+        if (spec == null) {
+            log.warn("无法识别的日榜/周榜 key, 跳过重建: {}", key);
+            return false;
+        }
+        String suffix = String.valueOf(System.currentTimeMillis());
+        String tmpKey = key + ":tmp:" + suffix;
+        stringRedisTemplate.delete(tmpKey);
+        CityTopTrips cityTop = new CityTopTrips(hotRankingProperties.getCityRankingMaxSize());
+        try {
+            long rows;
+            if (spec.trip) {
+                Long n = transactionTemplate.execute(status -> writeTripViews(tmpKey, spec.from, spec.to, cityTop));
+                rows = n == null ? 0L : n;
+            } else {
+                rows = writeDestinationViews(tmpKey, spec.from, spec.to);
+            }
+            if (rows <= 0) {
+                // 日汇总里没有这个窗口的数据（可能是汇总表上线之前的窗口）：不能据此清空线上 key
+                stringRedisTemplate.delete(tmpKey);
+                return true;
+            }
+            stringRedisTemplate.rename(tmpKey, key);
+            stringRedisTemplate.expire(key, spec.ttlDays, TimeUnit.DAYS);
+            rankingTrimmer.trim(key);
+            if (spec.trip) {
+                cityTop.swapInto(stringRedisTemplate, city -> RedisConstants.hotTripCityKey(city) + spec.citySuffix,
+                        TimeUnit.DAYS.toSeconds(spec.ttlDays), suffix);
+            }
+            log.info("重建窗口榜单完成, key={}, from={}, to={}, rows={}", key, spec.from, spec.to, rows);
+            return true;
+        } catch (Exception e) {
+            stringRedisTemplate.delete(tmpKey);
+            log.warn("重建窗口榜单失败, 线上 key 保持不变, key={}", key, e);
+            return false;
+        }
+    }
+
+    /**
+     * 仍在 TTL 覆盖范围内的所有日榜/周榜 key（行程 + 目的地）。
+     */
+    private Set<String> windowKeysInRetention() {
+        Set<String> keys = new LinkedHashSet<>();
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < RedisConstants.HOT_DAY_TTL_DAYS; i++) {
+            String ymd = today.minusDays(i).format(DateTimeFormatter.BASIC_ISO_DATE);
+            keys.add(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + ymd);
+            keys.add(RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + ymd);
+        }
+        for (int i = 0; i < RedisConstants.HOT_WEEK_TTL_DAYS; i += 7) {
+            String yw = HotRankingKeys.yearWeek(today.minusDays(i));
+            keys.add(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + yw);
+            keys.add(RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + yw);
+        }
+        return keys;
+    }
+
+    private long writeTripViews(String tmpKey, LocalDate from, LocalDate to, CityTopTrips cityTop) {
+        long rows = 0L;
+        List<ZSetOperations.TypedTuple<String>> buffer = new ArrayList<>(ZADD_CHUNK_SIZE);
+        try (Cursor<TripViewCountDTO> cursor = tripViewDailyMapper.streamTripViews(from, to)) {
+            for (TripViewCountDTO row : cursor) {
+                if (row == null || row.getTripId() == null || row.getViews() == null || row.getViews() <= 0) {
+                    continue;
+                }
+                buffer.add(new DefaultTypedTuple<>(String.valueOf(row.getTripId()), row.getViews().doubleValue()));
+                cityTop.offer(row.getDestCity(), row.getTripId(), row.getViews().doubleValue());
+                if (buffer.size() >= ZADD_CHUNK_SIZE) {
+                    rows += flush(tmpKey, buffer);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("关闭日汇总流式游标失败", e);
+        }
+        rows += flush(tmpKey, buffer);
+        return rows;
+    }
+
+    private long writeDestinationViews(String tmpKey, LocalDate from, LocalDate to) {
+        List<DestinationStatDTO> stats = tripViewDailyMapper.sumDestinationViews(from, to);
+        if (stats == null || stats.isEmpty()) {
+            return 0L;
+        }
+        long rows = 0L;
+        List<ZSetOperations.TypedTuple<String>> buffer = new ArrayList<>(ZADD_CHUNK_SIZE);
+        for (DestinationStatDTO stat : stats) {
+            if (stat == null || stat.getCity() == null || stat.getTotalViews() == null || stat.getTotalViews() <= 0) {
+                continue;
+            }
+            buffer.add(new DefaultTypedTuple<>(stat.getCity(), stat.getTotalViews().doubleValue()));
+            if (buffer.size() >= ZADD_CHUNK_SIZE) {
+                rows += flush(tmpKey, buffer);
+            }
+        }
+        rows += flush(tmpKey, buffer);
+        return rows;
+    }
+
+    private int flush(String key, List<ZSetOperations.TypedTuple<String>> buffer) {
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        int size = buffer.size();
+        Set<ZSetOperations.TypedTuple<String>> chunk = new HashSet<>(buffer);
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForZSet().add(key, chunk);
+                return null;
+            }
+        });
+        buffer.clear();
+        return size;
+    }
+
+    /**
+     * 解析日榜/周榜 key 对应的维度与日期区间。
+     */
+    private static WindowSpec parse(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            if (key.startsWith(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX)) {
+                String ymd = key.substring(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX.length());
+                LocalDate d = parseDay(ymd);
+                return new WindowSpec(true, d, d, RedisConstants.HOT_DAY_TTL_DAYS, ":day:" + ymd);
+            }
+            if (key.startsWith(RedisConstants.HOT_DEST_DAY_ZSET_PREFIX)) {
+                LocalDate d = parseDay(key.substring(RedisConstants.HOT_DEST_DAY_ZSET_PREFIX.length()));
+                return new WindowSpec(false, d, d, RedisConstants.HOT_DAY_TTL_DAYS, null);
+            }
+            if (key.startsWith(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX)) {
+                String yw = key.substring(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX.length());
+                LocalDate monday = parseWeekMonday(yw);
+                return new WindowSpec(true, monday, monday.plusDays(6), RedisConstants.HOT_WEEK_TTL_DAYS, ":week:" + yw);
+            }
+            if (key.startsWith(RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX)) {
+                LocalDate monday = parseWeekMonday(key.substring(RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX.length()));
+                return new WindowSpec(false, monday, monday.plusDays(6), RedisConstants.HOT_WEEK_TTL_DAYS, null);
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return null;
+    }
+
+    private static LocalDate parseDay(String ymd) {
+        return LocalDate.parse(ymd, DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    /**
+     * YYYYww（ISO 周）→ 该周周一。
+     */
+    private static LocalDate parseWeekMonday(String yw) {
+        if (yw.length() != 6) {
+            throw new IllegalArgumentException("bad year-week: " + yw);
+        }
+        int year = Integer.parseInt(yw.substring(0, 4));
+        int week = Integer.parseInt(yw.substring(4));
+        WeekFields wf = WeekFields.ISO;
+        // 1 月 4 日一定落在 ISO 第 1 周
+        return LocalDate.of(year, 1, 4)
+                .with(wf.weekOfWeekBasedYear(), week)
+                .with(DayOfWeek.MONDAY);
+    }
+
+    private static final class WindowSpec {
+        private final boolean trip;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final long ttlDays;
+        /** 行程榜对应的城市内榜单 key 后缀（:day:yyyyMMdd / :week:YYYYww），目的地榜为 null */
+        private final String citySuffix;
+
+        private WindowSpec(boolean trip, LocalDate from, LocalDate to, long ttlDays, String citySuffix) {
+            this.trip = trip;
+            this.from = from;
+            this.to = to;
+            this.ttlDays = ttlDays;
+            this.citySuffix = citySuffix;
+        }
+    }
+}
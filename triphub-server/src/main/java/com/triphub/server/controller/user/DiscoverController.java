@@ -1,15 +1,31 @@
 package com.triphub.server.controller.user;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.triphub.common.constant.RedisConstants;
 import com.triphub.common.context.BaseContext;
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.common.result.PageResult;
 import com.triphub.common.result.Result;
-import com.triphub.common.constant.RedisConstants;
+import com.triphub.pojo.dto.HotRankingSnapshotDTO;
 import com.triphub.pojo.dto.TripSummaryDTO;
-import com.triphub.pojo.entity.UserProfile;
+import com.triphub.pojo.vo.HotDestinationVO;
+import com.triphub.pojo.vo.HotTripPageVO;
 import com.triphub.pojo.vo.RecommendedTripVO;
+import com.triphub.pojo.vo.TripFacetPageVO;
+import com.triphub.pojo.vo.TripRankVO;
+import com.triphub.server.ranking.CreatorRanking;
+import com.triphub.server.ranking.HotDestinationStats;
+import com.triphub.server.ranking.HotRankingKeyResolver;
+import com.triphub.server.ranking.HotRankingMaterializer;
+import com.triphub.server.ranking.HotRankingPager;
+import com.triphub.server.ranking.TripRankLookup;
+import com.triphub.server.recommend.RecommendationCache;
+import com.triphub.server.recommend.TripRecommender;
+import com.triphub.server.search.Bm25Index;
+import com.triphub.server.search.FacetIndex;
+import com.triphub.server.search.TripFacetIndex;
+import com.triphub.server.search.TripSearchIndex;
 import com.triphub.server.service.TripService;
-import com.triphub.server.service.UserProfileService;
+import com.triphub.server.utils.UniqueVisitorCounter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,16 +34,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
-import java.util.Locale;
 import java.util.stream.Collectors;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.WeekFields;
 
 /**
  * 发现页相关接口：热门行程、热门目的地、个性化推荐行程等。
@@ -39,21 +50,46 @@ public class DiscoverController {
 
     private final StringRedisTemplate stringRedisTemplate;
     private final TripService tripService;
-    private final UserProfileService userProfileService;
-    private final ObjectMapper objectMapper;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final HotRankingKeyResolver hotRankingKeyResolver;
+    private final HotRankingMaterializer hotRankingMaterializer;
+    private final HotDestinationStats hotDestinationStats;
+    private final HotRankingPager hotRankingPager;
+    private final TripRankLookup tripRankLookup;
+    private final CreatorRanking creatorRanking;
+    private final RecommendProperties recommendProperties;
+    private final TripRecommender tripRecommender;
+    private final RecommendationCache recommendationCache;
+    private final TripSearchIndex tripSearchIndex;
+    private final TripFacetIndex tripFacetIndex;
 
     /**
      * 热门行程榜单接口，按 Redis ZSet 分数倒序获取 Top N。
+     * period 支持 all / day / week / trending（时间衰减榜）/ 24h / 7d（滑动窗口）/ rising（上升最快）。
+     * 优先由后台物化的快照直接返回，快照不可用或 limit 超出快照容量时回退到实时拼装。
+     * 传 city 时返回该城市内的热门行程（城市榜只维护 all / day / week，其余 period 按 all 处理），一次 ZREVRANGE。
      */
     @GetMapping("/hot-trips")
     public Result<List<TripSummaryDTO>> hotTrips(@RequestParam(defaultValue = "10") int limit,
-                                                 @RequestParam(defaultValue = "all") String period) {
+                                                 @RequestParam(defaultValue = "all") String period,
+                                                 @RequestParam(required = false) String city) {
         if (limit <= 0) {
             return Result.success(Collections.emptyList());
         }
 
-        Set<String> idSet = stringRedisTemplate.opsForZSet()
-                .reverseRange(resolveHotTripKey(period), 0, limit - 1);
+        boolean byCity = city != null && !city.isBlank();
+        String rankKey = byCity
+                ? hotRankingKeyResolver.cityTripKey(city, period)
+                : hotRankingKeyResolver.tripKey(period);
+        if (!byCity && hotRankingMaterializer.covers(limit)) {
+            HotRankingSnapshotDTO snapshot = hotRankingMaterializer.current(period);
+            if (snapshot != null) {
+                List<TripSummaryDTO> trips = snapshot.getTrips();
+                return Result.success(new ArrayList<>(trips.subList(0, Math.min(limit, trips.size()))));
+            }
+        }
+
+        Set<String> idSet = stringRedisTemplate.opsForZSet().reverseRange(rankKey, 0, limit - 1);
         if (idSet == null || idSet.isEmpty()) {
             return Result.success(Collections.emptyList());
         }
@@ -76,258 +112,221 @@ public class DiscoverController {
     }
 
     /**
-     * 热门目的地榜单接口，按 Redis ZSet 分数倒序获取 Top N。
-     * ZSet 的 member 为目的地城市名（destinationCity），由行程浏览时累计。
+     * 热门行程游标分页接口（无限滚动）：首页不传 cursor，之后传上一页返回的 nextCursor。
+     * 游标记录名次 + 分数 + 快照版本，分数并发变化时翻页稳定，也不会重复拉取前面的页。
      */
-    @GetMapping("/hot-destinations")
-    public Result<List<String>> hotDestinations(@RequestParam(defaultValue = "10") int limit,
-                                                @RequestParam(defaultValue = "all") String period) {
-        if (limit <= 0) {
-            return Result.success(Collections.emptyList());
+    @GetMapping("/hot-trips/page")
+    public Result<HotTripPageVO> hotTripsPage(@RequestParam(defaultValue = "10") int size,
+                                              @RequestParam(defaultValue = "all") String period,
+                                              @RequestParam(required = false) String cursor) {
+        if (size <= 0) {
+            return Result.success(new HotTripPageVO());
+        }
+        try {
+            return Result.success(hotRankingPager.page(period, cursor, Math.min(size, 50)));
+        } catch (IllegalArgumentException e) {
+            return Result.error(e.getMessage());
         }
+    }
 
-        Set<String> citySet = stringRedisTemplate.opsForZSet()
-                .reverseRange(resolveHotDestKey(period), 0, limit - 1);
-        if (citySet == null || citySet.isEmpty()) {
-            return Result.success(Collections.emptyList());
+    /**
+     * 批量查询行程名次：每个行程在全站 all/day/week 与所在城市 all/day/week 榜单中的名次（从 1 开始）和分数。
+     * 一次 pipeline 完成，不拉取整个榜单；未上榜的榜单不返回。
+     */
+    @GetMapping("/trip-ranks")
+    public Result<Map<Long, List<TripRankVO>>> tripRanks(@RequestParam List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Result.success(Collections.emptyMap());
         }
+        if (ids.size() > 50) {
+            return Result.error("单次最多查询 50 个行程");
+        }
+        return Result.success(tripRankLookup.lookupByIds(ids));
+    }
 
-        List<String> cities = citySet.stream().collect(Collectors.toList());
-        return Result.success(cities);
+    /**
+     * 创作者榜分页接口：按作者公开行程的浏览量 + 收藏加权排序，period 支持 all / day / week。
+     */
+    @GetMapping("/creators")
+    public Result<PageResult> creators(@RequestParam(defaultValue = "all") String period,
+                                       @RequestParam(defaultValue = "1") int page,
+                                       @RequestParam(defaultValue = "10") int size) {
+        if (page <= 0 || size <= 0) {
+            return Result.error("参数错误");
+        }
+        return Result.success(creatorRanking.page(period, page, Math.min(size, 50)));
     }
 
     /**
-     * 为当前用户推荐行程列表接口。
-     *
-     * 基本思路：
-     * - 从热门行程 ZSet 获取一批候选行程；
-     * - 过滤仅保留公开行程；
-     * - 基于用户画像（tags）做规则打分与可解释排序，形成「热门 + 画像」的轻量推荐结果。
+     * 突增行程接口：最近一个检测窗口内浏览量较上一窗口增长最多的公开行程（秒级，各节点合并）。
      */
-    @GetMapping("/recommend-trips")
-    public Result<List<RecommendedTripVO>> recommendTrips(@RequestParam(defaultValue = "10") int limit,
-                                                          @RequestParam(defaultValue = "all") String period) {
-        Long userId = BaseContext.getCurrentId();
-        if (userId == null) {
-            return Result.error("未登录或 token 无效");
-        }
+    @GetMapping("/spiking")
+    public Result<List<TripSummaryDTO>> spikingTrips(@RequestParam(defaultValue = "10") int limit) {
         if (limit <= 0) {
             return Result.success(Collections.emptyList());
         }
-
-        int candidateLimit = Math.min(Math.max(limit * 5, limit), 100);
         Set<String> idSet = stringRedisTemplate.opsForZSet()
-                .reverseRange(resolveHotTripKey(period), 0, candidateLimit - 1);
+                .reverseRange(RedisConstants.HOT_SPIKE_ZSET, 0, Math.min(limit, 50) - 1);
         if (idSet == null || idSet.isEmpty()) {
             return Result.success(Collections.emptyList());
         }
-
         List<Long> ids = new ArrayList<>();
         for (String s : idSet) {
             try {
                 ids.add(Long.valueOf(s));
             } catch (Exception ignore) {
+                // ignore bad member
             }
         }
         if (ids.isEmpty()) {
             return Result.success(Collections.emptyList());
         }
+        return Result.success(tripService.listPublicTripSummariesForDiscover(ids));
+    }
 
-        // 加载用户画像，用于生成推荐理由。
-        UserProfile profile = userProfileService.getByUserId(userId);
-        Map<String, Object> profileMap = parseProfile(profile);
-        List<Tag> tags = extractTags(profileMap);
-
-        List<TripSummaryDTO> candidates = tripService.listPublicTripSummariesForDiscover(ids);
-        if (candidates.isEmpty()) {
+    /**
+     * 热门目的地榜单接口，按 Redis ZSet 分数倒序获取 Top N。
+     * ZSet 的 member 为目的地城市名（destinationCity），由行程浏览时累计。
+     */
+    @GetMapping("/hot-destinations")
+    public Result<List<String>> hotDestinations(@RequestParam(defaultValue = "10") int limit,
+                                                @RequestParam(defaultValue = "all") String period) {
+        if (limit <= 0) {
             return Result.success(Collections.emptyList());
         }
 
-        // 规则打分：热门程度（viewCount）为底分 + 画像标签命中加分
-        List<ScoredTrip> scored = new ArrayList<>(candidates.size());
-        for (TripSummaryDTO t : candidates) {
-            if (t == null || t.getId() == null) {
-                continue;
+        if (hotRankingMaterializer.covers(limit)) {
+            HotRankingSnapshotDTO snapshot = hotRankingMaterializer.current(period);
+            if (snapshot != null) {
+                List<String> cities = snapshot.getDestinations();
+                return Result.success(new ArrayList<>(cities.subList(0, Math.min(limit, cities.size()))));
             }
-            int score = scoreTrip(t, tags);
-            scored.add(new ScoredTrip(t, score));
         }
-        scored.sort(Comparator.comparingInt(ScoredTrip::getScore).reversed());
 
-        List<RecommendedTripVO> result = new ArrayList<>();
-        for (int i = 0; i < scored.size() && result.size() < limit; i++) {
-            TripSummaryDTO t = scored.get(i).getTrip();
-            RecommendedTripVO vo = new RecommendedTripVO();
-            vo.setTripId(t.getId());
-            vo.setTitle(t.getTitle());
-            vo.setDestinationCity(t.getDestinationCity());
-            vo.setViewCount(t.getViewCount());
-            vo.setReason(buildChineseReason(t, tags, i + 1));
-            result.add(vo);
+        Set<String> citySet = stringRedisTemplate.opsForZSet()
+                .reverseRange(hotRankingKeyResolver.destKey(period), 0, limit - 1);
+        if (citySet == null || citySet.isEmpty()) {
+            return Result.success(Collections.emptyList());
         }
 
-        return Result.success(result);
-    }
-
-    private Map<String, Object> parseProfile(UserProfile profile) {
-        if (profile == null || profile.getProfileJson() == null || profile.getProfileJson().isEmpty()) {
-            return Collections.emptyMap();
-        }
-        try {
-            return objectMapper.readValue(profile.getProfileJson(), new TypeReference<Map<String, Object>>() {
-            });
-        } catch (Exception e) {
-            return Collections.emptyMap();
-        }
+        List<String> cities = citySet.stream().collect(Collectors.toList());
+        return Result.success(cities);
     }
 
-    private String resolveHotTripKey(String period) {
-        String p = period == null ? "all" : period.trim().toLowerCase(Locale.ROOT);
-        if ("day".equals(p)) {
-            return RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + todayYmd();
-        }
-        if ("week".equals(p)) {
-            return RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + currentYearWeek();
+    /**
+     * 热门目的地（带统计）接口：城市、分数、名次、公开行程数、较上一窗口的变化，一次 Redis 往返。
+     */
+    @GetMapping("/hot-destinations/stats")
+    public Result<List<HotDestinationVO>> hotDestinationStats(@RequestParam(defaultValue = "10") int limit,
+                                                             @RequestParam(defaultValue = "all") String period) {
+        if (limit <= 0) {
+            return Result.success(Collections.emptyList());
         }
-        return RedisConstants.HOT_TRIP_ZSET;
+        int capped = Math.min(limit, 100);
+        return Result.success(hotDestinationStats.top(
+                hotRankingKeyResolver.destKey(period),
+                hotRankingKeyResolver.previousDestKey(period),
+                capped));
     }
 
-    private String resolveHotDestKey(String period) {
-        String p = period == null ? "all" : period.trim().toLowerCase(Locale.ROOT);
-        if ("day".equals(p)) {
-            return RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + todayYmd();
-        }
-        if ("week".equals(p)) {
-            return RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + currentYearWeek();
+    /**
+     * 目的地独立访客数接口（HyperLogLog 估算），period 支持 all / week / day。
+     */
+    @GetMapping("/destination-visitors")
+    public Result<Long> destinationVisitors(@RequestParam String city,
+                                            @RequestParam(defaultValue = "all") String period) {
+        if (city == null || city.isBlank()) {
+            return Result.error("参数错误");
         }
-        return RedisConstants.HOT_DEST_ZSET;
-    }
-
-    private static String todayYmd() {
-        return LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE); // yyyyMMdd
+        return Result.success(uniqueVisitorCounter.countDestination(city.trim(), period));
     }
 
-    private static String currentYearWeek() {
-        WeekFields wf = WeekFields.ISO;
-        LocalDate now = LocalDate.now();
-        int week = now.get(wf.weekOfWeekBasedYear());
-        int year = now.get(wf.weekBasedYear());
-        return String.format(Locale.ROOT, "%04d%02d", year, week); // YYYYww
-    }
-
-    private int scoreTrip(TripSummaryDTO trip, List<Tag> tags) {
-        int base = trip.getViewCount() == null ? 0 : trip.getViewCount();
-        int score = base;
-        if (tags == null || tags.isEmpty()) {
-            return score;
-        }
-        String city = trip.getDestinationCity();
-        String title = trip.getTitle();
-        for (Tag tag : tags) {
-            if (tag == null || tag.name == null || tag.name.isEmpty()) {
-                continue;
-            }
-            int w = Math.max(tag.weight, 0);
-            if (city != null && city.equals(tag.name)) {
-                score += w * 100;
-            } else if (title != null && title.contains(tag.name)) {
-                score += w * 10;
-            }
+    /**
+     * 为当前用户推荐行程列表接口。
+     *
+     * 基本思路（计算流程见 {@link TripRecommender}）：
+     * - 从热门行程 ZSet 获取一批候选行程，再并入画像标签的倒排召回与共同收藏召回，去重并截断；
+     * - 过滤仅保留公开行程；
+     * - 基于用户画像（tags）做规则打分与可解释排序，形成「热门 + 画像」的轻量推荐结果。
+     *
+     * 结果按用户、period 缓存前 cache-size 条（短 TTL，画像或收藏变更时失效），limit 更大时直接计算。
+     */
+    @GetMapping("/recommend-trips")
+    public Result<List<RecommendedTripVO>> recommendTrips(@RequestParam(defaultValue = "10") int limit,
+                                                          @RequestParam(defaultValue = "all") String period) {
+        Long userId = BaseContext.getCurrentId();
+        if (userId == null) {
+            return Result.error("未登录或 token 无效");
         }
-        return score;
-    }
-
-    private String buildChineseReason(TripSummaryDTO trip, List<Tag> tags, int rank) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("热门榜单第").append(rank).append("名");
-        String hit = bestHitTag(trip, tags);
-        if (hit != null) {
-            sb.append("，与你偏好「").append(hit).append("」更匹配");
+        if (limit <= 0) {
+            return Result.success(Collections.emptyList());
         }
-        if (trip.getDestinationCity() != null && !trip.getDestinationCity().isEmpty()) {
-            sb.append("，目的地：").append(trip.getDestinationCity());
+        int cacheSize = recommendProperties.getCacheSize();
+        if (limit > cacheSize) {
+            return Result.success(tripRecommender.recommend(userId, period, limit));
         }
-        return sb.toString();
-    }
 
-    private String bestHitTag(TripSummaryDTO trip, List<Tag> tags) {
-        if (tags == null || tags.isEmpty() || trip == null) {
-            return null;
-        }
-        String city = trip.getDestinationCity();
-        String title = trip.getTitle();
-        Tag best = null;
-        for (Tag tag : tags) {
-            if (tag == null || tag.name == null || tag.name.isEmpty()) {
-                continue;
-            }
-            boolean hit = (city != null && city.equals(tag.name)) || (title != null && title.contains(tag.name));
-            if (!hit) {
-                continue;
-            }
-            if (best == null || tag.weight > best.weight) {
-                best = tag;
-            }
+        String normalized = HotRankingKeyResolver.normalize(period);
+        RecommendationCache.Lookup lookup = recommendationCache.lookup(userId, normalized, true);
+        List<RecommendedTripVO> items = lookup.getItems();
+        if (items == null) {
+            items = tripRecommender.recommend(userId, normalized, cacheSize);
+            recommendationCache.put(userId, normalized, lookup.getVersion(), items);
         }
-        return best == null ? null : best.name;
+        return Result.success(items.size() > limit ? new ArrayList<>(items.subList(0, limit)) : items);
     }
 
-    @SuppressWarnings("unchecked")
-    private List<Tag> extractTags(Map<String, Object> profileMap) {
-        if (profileMap == null) {
-            return Collections.emptyList();
-        }
-        Object tagsObj = profileMap.get("tags");
-        if (!(tagsObj instanceof List)) {
-            return Collections.emptyList();
+    /**
+     * 行程全文搜索接口：按标题与目的地城市匹配公开行程（中文二元组分词 + BM25 排序），
+     * 检索走进程内倒排索引，结果通过行程摘要缓存回填，保持相关度顺序。
+     */
+    @GetMapping("/search")
+    public Result<List<TripSummaryDTO>> search(@RequestParam String q,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        if (q == null || q.isBlank()) {
+            return Result.error("搜索关键词不能为空");
         }
-        List<Object> list = (List<Object>) tagsObj;
-        List<Tag> tags = new ArrayList<>();
-        for (Object o : list) {
-            if (!(o instanceof Map)) {
-                continue;
-            }
-            Map<String, Object> m = (Map<String, Object>) o;
-            Object nameObj = m.get("name");
-            String name = nameObj == null ? null : String.valueOf(nameObj);
-            Object weightObj = m.get("weight");
-            int weight = weightObj instanceof Number ? ((Number) weightObj).intValue() : 0;
-            if (name != null && !name.isEmpty()) {
-                tags.add(new Tag(name, weight));
-            }
+        if (limit <= 0) {
+            return Result.success(Collections.emptyList());
         }
-        // weight 降序，便于理由命中时优先选高权重
-        tags.sort((a, b) -> Integer.compare(b.weight, a.weight));
-        return tags;
-    }
-
-    private static final class Tag {
-        private final String name;
-        private final int weight;
-
-        private Tag(String name, int weight) {
-            this.name = name;
-            this.weight = weight;
+        List<Long> ids = tripSearchIndex.search(q, limit).stream()
+                .map(Bm25Index.Hit::getTripId)
+                .collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Result.success(Collections.emptyList());
         }
+        return Result.success(tripService.listPublicTripSummariesForDiscover(ids));
     }
 
-    private static final class ScoredTrip {
-        private final TripSummaryDTO trip;
-        private final int score;
-
-        private ScoredTrip(TripSummaryDTO trip, int score) {
-            this.trip = trip;
-            this.score = score;
-        }
-
-        private TripSummaryDTO getTrip() {
-            return trip;
-        }
-
-        private int getScore() {
-            return score;
-        }
+    /**
+     * 行程分面筛选接口：按目的地城市、天数分桶、出发月份组合筛选公开行程（同一分面内多选为 OR，分面之间为 AND），
+     * 检索走进程内压缩位图索引，同时返回各分面的计数；sort 支持 views（浏览量，默认）/ newest（最新）。
+     */
+    @GetMapping("/filter")
+    public Result<TripFacetPageVO> filter(@RequestParam(required = false) List<String> city,
+                                          @RequestParam(required = false) List<String> days,
+                                          @RequestParam(required = false) List<Integer> month,
+                                          @RequestParam(defaultValue = "views") String sort,
+                                          @RequestParam(defaultValue = "1") int page,
+                                          @RequestParam(defaultValue = "10") int pageSize) {
+        if (days != null && !FacetIndex.DAY_BUCKETS.containsAll(days)) {
+            return Result.error("天数分桶只支持 " + String.join(" / ", FacetIndex.DAY_BUCKETS));
+        }
+        if (month != null && month.stream().anyMatch(m -> m == null || m < 1 || m > 12)) {
+            return Result.error("出发月份需在 1 - 12 之间");
+        }
+        FacetIndex.Sort order = "newest".equalsIgnoreCase(sort) ? FacetIndex.Sort.NEWEST : FacetIndex.Sort.VIEWS;
+        FacetIndex.Page result = tripFacetIndex.query(new FacetIndex.Filter(city, days, month), order,
+                page, Math.max(pageSize, 0));
+
+        TripFacetPageVO vo = new TripFacetPageVO();
+        vo.setTotal((long) result.getTotal());
+        vo.setCityFacets(result.getCityCounts());
+        vo.setDayFacets(result.getDayCounts());
+        vo.setMonthFacets(result.getMonthCounts());
+        if (!result.getTripIds().isEmpty()) {
+            vo.setRecords(tripService.listPublicTripSummariesForDiscover(result.getTripIds()));
+        }
+        return Result.success(vo);
     }
 }
-
-
@@ -12,6 +12,8 @@ import com.triphub.pojo.entity.Trip;
 import com.triphub.pojo.entity.TripDay;
 import com.triphub.pojo.entity.TripItem;
 import com.triphub.pojo.vo.TripDayDetailVO;
+import com.triphub.pojo.vo.TripDetailVO;
+import com.triphub.server.ranking.TripRankLookup;
 import com.triphub.server.service.TripDayService;
 import com.triphub.server.service.TripItemService;
 import com.triphub.server.service.TripService;
@@ -39,6 +41,7 @@ public class TripController {
     private final TripDayService tripDayService;
     private final TripItemService tripItemService;
     private final TripFavoriteService tripFavoriteService;
+    private final TripRankLookup tripRankLookup;
 
     /**
      * 创建行程（简化版）：仅保存行程主表的基础信息。
@@ -61,14 +64,16 @@ public class TripController {
         }
         trip.setUserId(userId);
         tripService.save(trip);
+        tripService.afterTripSaved(trip);
         return Result.success(trip.getId());
     }
 
     /**
-     * 查询行程详情（带缓存）。
+     * 查询行程详情（带缓存）。withRank=true 时附带该行程在全站与所在城市热门榜单中的名次。
      */
     @GetMapping("/{id}")
-    public Result<Trip> getTrip(@PathVariable("id") Long id) {
+    public Result<TripDetailVO> getTrip(@PathVariable("id") Long id,
+                                        @RequestParam(defaultValue = "false") boolean withRank) {
         Long userId = BaseContext.getCurrentId();
         Trip trip = tripService.queryTripById(id);
         if (trip == null) {
@@ -87,7 +92,13 @@ public class TripController {
 
         // 增加浏览量，并在公开行程时写入热门榜单 Redis ZSet（见 TripServiceImpl 过滤逻辑）
         tripService.increaseViewCountAndHotScore(trip);
-        return Result.success(trip);
+        TripDetailVO detail = new TripDetailVO();
+        detail.setTrip(trip);
+        if (withRank) {
+            detail.setRanks(tripRankLookup.lookup(Collections.singletonList(trip))
+                    .getOrDefault(trip.getId(), Collections.emptyList()));
+        }
+        return Result.success(detail);
     }
 
     /**
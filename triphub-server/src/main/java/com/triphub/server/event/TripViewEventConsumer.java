@@ -0,0 +1,285 @@
+package com.triphub.server.event;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.ViewEventProperties;
+import com.triphub.pojo.dto.TripViewEventDTO;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.ranking.HotRankingWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stream 模式下的浏览事件消费者（triphub.view-events.mode=stream 时启用）。
+ *
+ * - 每个节点以 nodeId 作为消费者名加入同一个消费组，XREADGROUP 攒批：满 batchSize 条或自第一条起满 batchWaitMillis 即应用一批；
+ * - 一批事件交给 HotRankingWriter 聚合成一次 pipeline，应用成功后才 XACK；失败则留在 PEL 中等待重放（至少一次语义）；
+ * - 维护任务：认领空闲超过 pendingIdleMillis 的 PEL 条目（消费者宕机后的恢复）、XTRIM MAXLEN ~ 控制长度、上报积压指标。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripViewEventConsumer {
+
+    private static final String JOB_STREAM_TRIM = "view_stream_trim";
+
+    /** 空闲时单次阻塞读的最长等待（毫秒），也决定了停机时的最长退出延迟 */
+    private static final long IDLE_BLOCK_MILLIS = 1000L;
+
+    /** 单轮最多认领的 PEL 条目数 */
+    private static final int CLAIM_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingWriter hotRankingWriter;
+    private final ViewEventProperties viewEventProperties;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pendingCount = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread worker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!viewEventProperties.isStreamMode()) {
+            return;
+        }
+        createGroupIfAbsent();
+        metricsRecorder.registerViewEventGauges(lagMillis, pendingCount);
+        running = true;
+        worker = new Thread(this::consumeLoop, "view-event-consumer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("浏览事件消费者已启动, group={}, consumer={}",
+                viewEventProperties.getConsumerGroup(), jobCoordinator.getNodeId());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(IDLE_BLOCK_MILLIS * 3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 维护任务：认领失效消费者的 PEL 条目、裁剪 Stream、刷新积压指标。
+     */
+    @Scheduled(fixedDelay = 5_000L)
+    public void maintain() {
+        if (!running) {
+            return;
+        }
+        try {
+            claimStalePending();
+            if (jobCoordinator.tryRunAsLeader(JOB_STREAM_TRIM)) {
+                stringRedisTemplate.opsForStream().trim(RedisConstants.TRIP_VIEW_STREAM, viewEventProperties.getMaxLen(), true);
+            }
+            refreshLagMetrics();
+        } catch (Exception e) {
+            log.warn("浏览事件 Stream 维护失败", e);
+        }
+    }
+
+    private void consumeLoop() {
+        while (running) {
+            try {
+                List<MapRecord<String, Object, Object>> batch = readBatch();
+                if (!batch.isEmpty()) {
+                    process(batch);
+                }
+            } catch (Exception e) {
+                log.warn("浏览事件消费失败, 未 ACK 的事件将被重放", e);
+                sleepQuietly(IDLE_BLOCK_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * 攒批读取：空闲时阻塞等待第一条事件，之后在 batchWaitMillis 内尽量凑满 batchSize。
+     */
+    private List<MapRecord<String, Object, Object>> readBatch() {
+        int batchSize = Math.max(viewEventProperties.getBatchSize(), 1);
+        Consumer consumer = Consumer.from(viewEventProperties.getConsumerGroup(), jobCoordinator.getNodeId());
+        List<MapRecord<String, Object, Object>> batch = new ArrayList<>();
+        long deadline = 0L;
+        while (running && batch.size() < batchSize) {
+            long block = batch.isEmpty() ? IDLE_BLOCK_MILLIS : deadline - System.currentTimeMillis();
+            if (block <= 0) {
+                break;
+            }
+            // 注意 BLOCK 0 表示无限等待，这里 block 始终 >= 1
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                    consumer,
+                    StreamReadOptions.empty().count(batchSize - batch.size()).block(Duration.ofMillis(block)),
+                    StreamOffset.create(RedisConstants.TRIP_VIEW_STREAM, ReadOffset.lastConsumed())
+            );
+            if (records == null || records.isEmpty()) {
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                break;
+            }
+            if (batch.isEmpty()) {
+                deadline = System.currentTimeMillis() + viewEventProperties.getBatchWaitMillis();
+            }
+            batch.addAll(records);
+        }
+        return batch;
+    }
+
+    private void process(List<MapRecord<String, Object, Object>> batch) {
+        List<TripViewEventDTO> events = new ArrayList<>(batch.size());
+        RecordId[] ids = new RecordId[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            MapRecord<String, Object, Object> record = batch.get(i);
+            ids[i] = record.getId();
+            Map<String, String> fields = new HashMap<>();
+            record.getValue().forEach((k, v) -> fields.put(String.valueOf(k), String.valueOf(v)));
+            TripViewEventDTO event = TripViewEventPublisher.decode(fields);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        apply(events, ids);
+    }
+
+    /**
+     * 应用一批事件并 ACK；无法解析的条目同样 ACK，避免反复重放。
+     */
+    private void apply(List<TripViewEventDTO> events, RecordId[] ids) {
+        long start = System.currentTimeMillis();
+        hotRankingWriter.apply(events);
+        stringRedisTemplate.opsForStream().acknowledge(
+                RedisConstants.TRIP_VIEW_STREAM, viewEventProperties.getConsumerGroup(), ids);
+        metricsRecorder.recordViewEventBatch(ids.length, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 认领投递后长期未 ACK 的条目（原消费者宕机/卡死），由本节点重放。
+     * XCLAIM 带 min-idle 条件，多个节点同时认领同一条目时只有一个会成功。
+     */
+    private void claimStalePending() {
+        String group = viewEventProperties.getConsumerGroup();
+        Duration minIdle = Duration.ofMillis(viewEventProperties.getPendingIdleMillis());
+        PendingMessages pending = stringRedisTemplate.opsForStream()
+                .pending(RedisConstants.TRIP_VIEW_STREAM, group, Range.unbounded(), CLAIM_BATCH_SIZE);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        List<RecordId> stale = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0) {
+                stale.add(message.getId());
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+        byte[] rawKey = RedisConstants.TRIP_VIEW_STREAM.getBytes(StandardCharsets.UTF_8);
+        String consumer = jobCoordinator.getNodeId();
+        List<ByteRecord> claimed = stringRedisTemplate.execute((RedisCallback<List<ByteRecord>>) connection ->
+                connection.streamCommands().xClaim(rawKey, group, consumer, minIdle, stale.toArray(new RecordId[0])));
+        if (claimed == null || claimed.isEmpty()) {
+            return;
+        }
+        List<TripViewEventDTO> events = new ArrayList<>(claimed.size());
+        RecordId[] ids = new RecordId[claimed.size()];
+        for (int i = 0; i < claimed.size(); i++) {
+            ByteRecord record = claimed.get(i);
+            ids[i] = record.getId();
+            Map<String, String> fields = new HashMap<>();
+            record.getValue().forEach((k, v) ->
+                    fields.put(new String(k, StandardCharsets.UTF_8), new String(v, StandardCharsets.UTF_8)));
+            TripViewEventDTO event = TripViewEventPublisher.decode(fields);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        apply(events, ids);
+        log.info("已认领并重放失效消费者的浏览事件, count={}, consumer={}", ids.length, consumer);
+    }
+
+    /**
+     * 积压：Stream 最新条目与本消费组最后投递条目的时间差（ID 的毫秒部分），以及 PEL 条目数。
+     */
+    private void refreshLagMetrics() {
+        StreamInfo.XInfoStream info = stringRedisTemplate.opsForStream().info(RedisConstants.TRIP_VIEW_STREAM);
+        StreamInfo.XInfoGroups groups = stringRedisTemplate.opsForStream().groups(RedisConstants.TRIP_VIEW_STREAM);
+        if (info == null || groups == null) {
+            return;
+        }
+        groups.forEach(g -> {
+            if (viewEventProperties.getConsumerGroup().equals(g.groupName())) {
+                long lag = idMillis(info.lastGeneratedId()) - idMillis(g.lastDeliveredId());
+                lagMillis.set(Math.max(lag, 0L));
+                pendingCount.set(g.pendingCount() == null ? 0L : g.pendingCount());
+            }
+        });
+    }
+
+    private void createGroupIfAbsent() {
+        byte[] rawKey = RedisConstants.TRIP_VIEW_STREAM.getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) (RedisConnection connection) ->
+                    connection.streamCommands().xGroupCreate(rawKey, viewEventProperties.getConsumerGroup(),
+                            ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            // BUSYGROUP：消费组已存在（其他节点或上次启动已创建）
+            log.debug("浏览事件消费组已存在: {}", e.getMessage());
+        }
+    }
+
+    private static long idMillis(String id) {
+        if (id == null || id.isEmpty()) {
+            return 0L;
+        }
+        int dash = id.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? id : id.substring(0, dash));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
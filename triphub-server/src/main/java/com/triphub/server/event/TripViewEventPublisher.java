@@ -0,0 +1,84 @@
+package com.triphub.server.event;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.ViewEventProperties;
+import com.triphub.pojo.dto.TripViewEventDTO;
+import com.triphub.server.ranking.HotRankingWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 浏览事件发布入口，屏蔽两种模式的差异：
+ * - direct：请求线程内直接交给 HotRankingWriter 写计数（一次 pipeline）；
+ * - stream：只 XADD 一条紧凑事件到 stream:trip:view，由 TripViewEventConsumer 批量应用。
+ */
+@Component
+@RequiredArgsConstructor
+public class TripViewEventPublisher {
+
+    /** Stream 字段名尽量短，降低单条事件的内存占用 */
+    static final String FIELD_TRIP_ID = "t";
+    static final String FIELD_DEST_CITY = "c";
+    static final String FIELD_PUBLIC = "p";
+    static final String FIELD_AUTHOR_ID = "a";
+    static final String FIELD_USER_ID = "u";
+    static final String FIELD_TIMESTAMP = "ts";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingWriter hotRankingWriter;
+    private final ViewEventProperties viewEventProperties;
+
+    public void publish(TripViewEventDTO event) {
+        if (event == null || event.getTripId() == null) {
+            return;
+        }
+        if (!viewEventProperties.isStreamMode()) {
+            hotRankingWriter.apply(Collections.singletonList(event));
+            return;
+        }
+        Map<String, String> fields = new HashMap<>(8);
+        fields.put(FIELD_TRIP_ID, String.valueOf(event.getTripId()));
+        fields.put(FIELD_PUBLIC, event.isPublicTrip() ? "1" : "0");
+        fields.put(FIELD_TIMESTAMP, String.valueOf(event.getTimestamp()));
+        if (event.getDestCity() != null && !event.getDestCity().isEmpty()) {
+            fields.put(FIELD_DEST_CITY, event.getDestCity());
+        }
+        if (event.getAuthorId() != null) {
+            fields.put(FIELD_AUTHOR_ID, String.valueOf(event.getAuthorId()));
+        }
+        if (event.getUserId() != null) {
+            fields.put(FIELD_USER_ID, String.valueOf(event.getUserId()));
+        }
+        stringRedisTemplate.opsForStream().add(RedisConstants.TRIP_VIEW_STREAM, fields);
+    }
+
+    /**
+     * Stream 字段 → 事件；缺少 tripId 等关键字段时返回 null。
+     */
+    static TripViewEventDTO decode(Map<String, String> fields) {
+        if (fields == null) {
+            return null;
+        }
+        try {
+            Long tripId = Long.valueOf(fields.get(FIELD_TRIP_ID));
+            String authorId = fields.get(FIELD_AUTHOR_ID);
+            String userId = fields.get(FIELD_USER_ID);
+            String ts = fields.get(FIELD_TIMESTAMP);
+            return new TripViewEventDTO(
+                    tripId,
+                    fields.get(FIELD_DEST_CITY),
+                    "1".equals(fields.get(FIELD_PUBLIC)),
+                    authorId == null ? null : Long.valueOf(authorId),
+                    userId == null ? null : Long.valueOf(userId),
+                    ts == null ? System.currentTimeMillis() : Long.parseLong(ts)
+            );
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -1,12 +1,36 @@
 package com.triphub.server.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.triphub.pojo.dto.CreatorStatDTO;
 import com.triphub.pojo.entity.TripFavorite;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface TripFavoriteMapper extends BaseMapper<TripFavorite> {
-}
-
 
+    /**
+     * 按 user_id 顺序流式读取全部收藏（只取 user_id、trip_id），走 uk_favorite_user_trip 索引顺序扫描，
+     * 同一用户的收藏连续出现，用于构建共同收藏矩阵。Cursor 需在事务内遍历。
+     */
+    @Select("SELECT user_id, trip_id FROM trip_favorite ORDER BY user_id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<TripFavorite> streamAllOrderByUser();
 
+    /**
+     * 按被收藏行程的作者统计 [from, to) 内新增的收藏数（仅公开行程），用于重建创作者日榜/周榜。
+     */
+    @Select("SELECT t.user_id AS userId, COUNT(*) AS favorites " +
+            "FROM trip_favorite f JOIN trip t ON t.id = f.trip_id " +
+            "WHERE f.create_time >= #{from} AND f.create_time < #{to} " +
+            "AND (t.visibility = 2 OR t.visibility IS NULL) AND t.user_id IS NOT NULL " +
+            "GROUP BY t.user_id")
+    List<CreatorStatDTO> countCreatorFavorites(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
@@ -1,10 +1,20 @@
 package com.triphub.server.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.triphub.pojo.dto.CreatorStatDTO;
+import com.triphub.pojo.dto.DestinationStatDTO;
 import com.triphub.pojo.entity.Trip;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @Mapper
 public interface TripMapper extends BaseMapper<Trip> {
@@ -14,6 +24,73 @@ public interface TripMapper extends BaseMapper<Trip> {
      */
     @Update("UPDATE trip SET view_count = view_count + #{delta} WHERE id = #{id}")
     int updateViewCountDelta(@Param("id") Long id, @Param("delta") Long delta);
-}
 
+    /**
+     * 批量回写独立访客数（HLL 估算值）：一条 UPDATE ... CASE 完成整批，避免逐行往返。
+     *
+     * @param uvMap key=tripId，value=独立访客数
+     */
+    @Update("<script>" +
+            "UPDATE trip SET unique_visitor_count = CASE id " +
+            "<foreach collection='uvMap' index='id' item='uv'>WHEN #{id} THEN #{uv} </foreach>" +
+            "END WHERE id IN " +
+            "<foreach collection='uvMap' index='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int batchUpdateUniqueVisitorCount(@Param("uvMap") Map<Long, Long> uvMap);
+
+    /**
+     * 流式读取全部公开行程（仅榜单重建需要的列）。
+     *
+     * 注意：
+     * - fetchSize = Integer.MIN_VALUE 是 MySQL Connector/J 的逐行流式读取约定，内存占用与表大小无关；
+     * - 返回的 Cursor 依赖底层连接，必须在事务（或同一 SqlSession）内遍历完并关闭。
+     */
+    @Select("SELECT id, destination_city, view_count FROM trip WHERE visibility = 2 OR visibility IS NULL")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Trip> streamPublicTripViewCounts();
+
+    /**
+     * 流式读取全部公开行程的 id、标题与目的地（用于补建关键词倒排）。Cursor 需在事务内遍历。
+     */
+    @Select("SELECT id, title, destination_city FROM trip WHERE visibility = 2 OR visibility IS NULL")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Trip> streamPublicTripTitles();
+
+    /**
+     * 流式读取全部公开行程的分面字段（目的地、天数、起止日期）与 view_count，用于构建分面索引。Cursor 需在事务内遍历。
+     */
+    @Select("SELECT id, destination_city, days, start_date, end_date, view_count FROM trip WHERE visibility = 2 OR visibility IS NULL")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<Trip> streamPublicTripFacets();
+
+    /**
+     * 批量读取行程已落库的 view_count（仅 id 与 view_count 两列），用于被裁剪的成员重新进入热榜时补齐分数。
+     */
+    @Select("<script>" +
+            "SELECT id, view_count FROM trip WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    List<Trip> selectViewCounts(@Param("ids") Collection<Long> ids);
 
+    /**
+     * 按目的地聚合公开行程的浏览量与行程数，在 DB 侧完成 GROUP BY，结果行数 = 城市数。
+     */
+    @Select("SELECT destination_city AS city, " +
+            "SUM(CASE WHEN view_count > 0 THEN view_count ELSE 1 END) AS totalViews, " +
+            "COUNT(*) AS tripCount " +
+            "FROM trip " +
+            "WHERE (visibility = 2 OR visibility IS NULL) " +
+            "AND destination_city IS NOT NULL AND destination_city <> '' " +
+            "GROUP BY destination_city")
+    List<DestinationStatDTO> aggregatePublicDestinationStats();
+
+    /**
+     * 按作者流式聚合公开行程的浏览量、被收藏数（like_count）与行程数，用于重建创作者榜。Cursor 需在事务内遍历。
+     */
+    @Select("SELECT user_id AS userId, SUM(view_count) AS views, SUM(like_count) AS favorites, COUNT(*) AS tripCount " +
+            "FROM trip " +
+            "WHERE (visibility = 2 OR visibility IS NULL) AND user_id IS NOT NULL " +
+            "GROUP BY user_id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<CreatorStatDTO> streamPublicCreatorStats();
+}
@@ -0,0 +1,82 @@
+package com.triphub.server.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.triphub.pojo.dto.CreatorStatDTO;
+import com.triphub.pojo.dto.DestinationStatDTO;
+import com.triphub.pojo.dto.TripViewCountDTO;
+import com.triphub.pojo.entity.TripViewDaily;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface TripViewDailyMapper extends BaseMapper<TripViewDaily> {
+
+    /**
+     * 批量累加某天的浏览量：基于 uk_view_daily_trip_date 做 Upsert，一条 SQL 完成整批。
+     *
+     * @param deltas key=tripId，value=本批增量
+     */
+    @Insert("<script>" +
+            "INSERT INTO trip_view_daily(trip_id, stat_date, view_count) VALUES " +
+            "<foreach collection='deltas' index='tripId' item='delta' separator=','>" +
+            "(#{tripId}, #{statDate}, #{delta})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count)" +
+            "</script>")
+    int batchUpsert(@Param("statDate") LocalDate statDate, @Param("deltas") Map<Long, Long> deltas);
+
+    /**
+     * 流式汇总 [from, to] 内每个公开行程的浏览量及其目的地（用于重建日榜/周榜及城市内日榜/周榜）。Cursor 需在事务内遍历。
+     */
+    @Select("SELECT d.trip_id AS tripId, SUM(d.view_count) AS views, t.destination_city AS destCity " +
+            "FROM trip_view_daily d JOIN trip t ON t.id = d.trip_id " +
+            "WHERE d.stat_date BETWEEN #{from} AND #{to} " +
+            "AND (t.visibility = 2 OR t.visibility IS NULL) " +
+            "GROUP BY d.trip_id, t.destination_city")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<TripViewCountDTO> streamTripViews(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 汇总指定行程在 [from, to] 内已落库的浏览量，用于被裁剪的成员重新进入日榜/周榜时补齐分数。
+     */
+    @Select("<script>" +
+            "SELECT trip_id AS tripId, SUM(view_count) AS views FROM trip_view_daily " +
+            "WHERE stat_date BETWEEN #{from} AND #{to} AND trip_id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "GROUP BY trip_id" +
+            "</script>")
+    List<TripViewCountDTO> sumTripViewsByIds(@Param("ids") Collection<Long> ids,
+                                             @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 按目的地汇总 [from, to] 内公开行程的浏览量。
+     */
+    @Select("SELECT t.destination_city AS city, SUM(d.view_count) AS totalViews, " +
+            "COUNT(DISTINCT d.trip_id) AS tripCount " +
+            "FROM trip_view_daily d JOIN trip t ON t.id = d.trip_id " +
+            "WHERE d.stat_date BETWEEN #{from} AND #{to} " +
+            "AND (t.visibility = 2 OR t.visibility IS NULL) " +
+            "AND t.destination_city IS NOT NULL AND t.destination_city <> '' " +
+            "GROUP BY t.destination_city")
+    List<DestinationStatDTO> sumDestinationViews(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * 按作者汇总 [from, to] 内公开行程的浏览量（用于重建创作者日榜/周榜）。
+     */
+    @Select("SELECT t.user_id AS userId, SUM(d.view_count) AS views " +
+            "FROM trip_view_daily d JOIN trip t ON t.id = d.trip_id " +
+            "WHERE d.stat_date BETWEEN #{from} AND #{to} " +
+            "AND (t.visibility = 2 OR t.visibility IS NULL) AND t.user_id IS NOT NULL " +
+            "GROUP BY t.user_id")
+    List<CreatorStatDTO> sumCreatorViews(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
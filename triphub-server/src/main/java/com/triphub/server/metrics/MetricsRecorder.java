@@ -1,11 +1,15 @@
 package com.triphub.server.metrics;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 统一的业务指标记录器。
@@ -22,6 +26,18 @@ public class MetricsRecorder {
 
     private final MeterRegistry meterRegistry;
 
+    /** 各对账任务「本轮已处理行数」的 Gauge 承载对象，按 job 复用 */
+    private final Map<String, AtomicLong> reconciliationProgress = new ConcurrentHashMap<>();
+
+    /** 可分片任务「本节点持有分片数」的 Gauge 承载对象，按 job|node 复用 */
+    private final Map<String, AtomicLong> clusterShards = new ConcurrentHashMap<>();
+
+    /** 突增 Top N 的 Gauge 承载对象：rank -> {tripId, delta} */
+    private final Map<Integer, AtomicLong[]> spikeTop = new ConcurrentHashMap<>();
+
+    /** 榜单成员数的 Gauge 承载对象，按 ranking|period 复用 */
+    private final Map<String, AtomicLong> rankingCardinality = new ConcurrentHashMap<>();
+
     /**
      * 记录行程详情缓存的命中/未命中情况。
      *
@@ -40,13 +56,31 @@ public class MetricsRecorder {
      * 记录热门行程/热门目的地榜单分数更新次数。
      */
     public void recordHotRankingUpdate(String type) {
+        recordHotRankingUpdate(type, 1L);
+    }
+
+    /**
+     * 批量记录热门榜单分数更新次数（批量应用浏览事件时使用）。
+     */
+    public void recordHotRankingUpdate(String type, long count) {
         try {
-            meterRegistry.counter("triphub.hot_ranking.update", "type", type).increment();
+            meterRegistry.counter("triphub.hot_ranking.update", "type", type).increment(count);
         } catch (Exception e) {
             log.debug("记录热门榜单更新指标失败: {}", e.getMessage());
         }
     }
 
+    /**
+     * 记录热门榜单读请求的快照命中情况（local / redis / miss）。
+     */
+    public void recordHotRankingSnapshot(String outcome) {
+        try {
+            meterRegistry.counter("triphub.hot_ranking.snapshot", "outcome", safe(outcome)).increment();
+        } catch (Exception e) {
+            log.debug("记录热门榜单快照指标失败: {}", e.getMessage());
+        }
+    }
+
     /**
      * 记录 AI Chat 调用结果（成功/失败/被熔断/被隔离等）。
      */
@@ -75,6 +109,160 @@ public class MetricsRecorder {
         }
     }
 
+    /**
+     * 获取对账/重建任务的进度 Gauge（本轮已处理行数），任务开始时置 0、处理过程中累加。
+     */
+    public AtomicLong reconciliationProgress(String job) {
+        return reconciliationProgress.computeIfAbsent(safe(job), j -> {
+            AtomicLong holder = new AtomicLong();
+            try {
+                meterRegistry.gauge("triphub.reconciliation.progress", Tags.of("job", j), holder);
+            } catch (Exception e) {
+                log.debug("注册对账进度指标失败: {}", e.getMessage());
+            }
+            return holder;
+        });
+    }
+
+    /**
+     * 记录一次对账/重建任务的耗时与处理行数。
+     */
+    public void recordReconciliation(String job, String outcome, long rows, long durationMs) {
+        try {
+            meterRegistry.timer("triphub.reconciliation.duration",
+                    "job", safe(job),
+                    "outcome", safe(outcome))
+                    .record(durationMs, TimeUnit.MILLISECONDS);
+            meterRegistry.counter("triphub.reconciliation.rows", "job", safe(job)).increment(rows);
+        } catch (Exception e) {
+            log.debug("记录对账指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 注册本节点视角下的集群存活节点数 Gauge。
+     */
+    public void registerClusterLiveNodes(String node, AtomicLong holder) {
+        try {
+            meterRegistry.gauge("triphub.cluster.live_nodes", Tags.of("node", safe(node)), holder);
+        } catch (Exception e) {
+            log.debug("注册集群成员指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录单例任务在某节点上的执行/跳过次数。
+     */
+    public void recordClusterJob(String job, String node, String outcome) {
+        try {
+            meterRegistry.counter("triphub.cluster.job",
+                    "job", safe(job),
+                    "node", safe(node),
+                    "outcome", safe(outcome)).increment();
+        } catch (Exception e) {
+            log.debug("记录集群任务指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录可分片任务本轮分配到本节点的分片数。
+     */
+    public void recordClusterShards(String job, String node, int shards) {
+        try {
+            clusterShards.computeIfAbsent(safe(job) + "|" + safe(node), k -> {
+                AtomicLong holder = new AtomicLong();
+                meterRegistry.gauge("triphub.cluster.owned_shards",
+                        Tags.of("job", safe(job), "node", safe(node)), holder);
+                return holder;
+            }).set(shards);
+        } catch (Exception e) {
+            log.debug("记录集群分片指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 注册浏览事件 Stream 的积压指标：消费延迟（毫秒）与 PEL 条目数。
+     */
+    public void registerViewEventGauges(AtomicLong lagMillis, AtomicLong pending) {
+        try {
+            meterRegistry.gauge("triphub.view_events.lag_ms", lagMillis);
+            meterRegistry.gauge("triphub.view_events.pending", pending);
+        } catch (Exception e) {
+            log.debug("注册浏览事件指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一批浏览事件的应用条数与耗时。
+     */
+    public void recordViewEventBatch(int size, long durationMs) {
+        try {
+            meterRegistry.counter("triphub.view_events.consumed").increment(size);
+            meterRegistry.timer("triphub.view_events.batch").record(durationMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("记录浏览事件指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 更新本节点突增 Top N 的 Gauge：按名次分别暴露 tripId 与增量，避免把 tripId 作为 tag 造成高基数。
+     */
+    public void recordSpikeTop(int rank, long tripId, long delta) {
+        try {
+            AtomicLong[] holders = spikeTop.computeIfAbsent(rank, r -> {
+                AtomicLong[] h = {new AtomicLong(), new AtomicLong()};
+                meterRegistry.gauge("triphub.hot_ranking.spike.trip", Tags.of("rank", String.valueOf(r)), h[0]);
+                meterRegistry.gauge("triphub.hot_ranking.spike.delta", Tags.of("rank", String.valueOf(r)), h[1]);
+                return h;
+            });
+            holders[0].set(tripId);
+            holders[1].set(delta);
+        } catch (Exception e) {
+            log.debug("记录突增指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一次榜单裁剪：当前成员数（Gauge）与本次移除的长尾成员数（Counter）。
+     *
+     * @param ranking trip / dest
+     * @param period  all / day / week
+     */
+    public void recordRankingTrim(String ranking, String period, long cardinality, long removed) {
+        try {
+            rankingCardinality.computeIfAbsent(safe(ranking) + "|" + safe(period), k -> {
+                AtomicLong holder = new AtomicLong();
+                meterRegistry.gauge("triphub.hot_ranking.cardinality",
+                        Tags.of("ranking", safe(ranking), "period", safe(period)), holder);
+                return holder;
+            }).set(cardinality);
+            if (removed > 0) {
+                meterRegistry.counter("triphub.hot_ranking.trimmed",
+                        "ranking", safe(ranking), "period", safe(period)).increment(removed);
+            }
+        } catch (Exception e) {
+            log.debug("记录榜单裁剪指标失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录请求内并行加载某个分支的耗时。
+     *
+     * @param operation 发起并行加载的接口，如 recommend
+     * @param branch    分支名，如 hot / profile / cofav
+     */
+    public void recordFanOutBranch(String operation, String branch, String outcome, long durationMs) {
+        try {
+            meterRegistry.timer("triphub.fanout.branch",
+                    "operation", safe(operation),
+                    "branch", safe(branch),
+                    "outcome", safe(outcome))
+                    .record(durationMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("记录并行加载指标失败: {}", e.getMessage());
+        }
+    }
+
     private String safe(String s) {
         if (s == null || s.isBlank()) {
             return "unknown";
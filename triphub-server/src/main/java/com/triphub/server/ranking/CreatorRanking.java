@@ -0,0 +1,197 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.common.result.PageResult;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.pojo.entity.User;
+import com.triphub.pojo.vo.CreatorRankVO;
+import com.triphub.server.mapper.UserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 创作者榜（按作者聚合公开行程的互动量）。
+ *
+ * - 浏览：由 HotRankingWriter 在同一个 pipeline 里 ZINCRBY hot:creator / 日榜 / 周榜，并累加 {userId}:views；
+ * - 收藏：收藏时三个榜单各加 creatorFavoriteWeight，取消收藏只从全量榜扣回（日/周榜只统计窗口内新增的收藏）；
+ * - 行程数：创建公开行程时累加 {userId}:trips；
+ * - 校正：CreatorRankingReconciliationTask 按 trip.user_id 流式聚合后整体切换。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CreatorRanking {
+
+    public static final String FIELD_VIEWS = "views";
+    public static final String FIELD_FAVORITES = "favorites";
+    public static final String FIELD_TRIPS = "trips";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final UserMapper userMapper;
+
+    /**
+     * period → 创作者榜 key：day / week / 其余按 all 处理。
+     */
+    public static String creatorKey(String period) {
+        String p = period == null ? "" : period.trim().toLowerCase(Locale.ROOT);
+        if ("day".equals(p)) {
+            return RedisConstants.HOT_CREATOR_DAY_ZSET_PREFIX + HotRankingKeys.todayYmd();
+        }
+        if ("week".equals(p)) {
+            return RedisConstants.HOT_CREATOR_WEEK_ZSET_PREFIX + HotRankingKeys.currentYearWeek();
+        }
+        return RedisConstants.HOT_CREATOR_ZSET;
+    }
+
+    public static String statsField(Long userId, String field) {
+        return userId + ":" + field;
+    }
+
+    /**
+     * 收藏 / 取消收藏（delta = 1 / -1）；只统计公开行程。
+     */
+    public void recordFavorite(Trip trip, int delta) {
+        Long authorId = authorOf(trip);
+        if (authorId == null || delta == 0) {
+            return;
+        }
+        String member = String.valueOf(authorId);
+        double score = (double) hotRankingProperties.getCreatorFavoriteWeight() * delta;
+        String dayKey = RedisConstants.HOT_CREATOR_DAY_ZSET_PREFIX + HotRankingKeys.todayYmd();
+        String weekKey = RedisConstants.HOT_CREATOR_WEEK_ZSET_PREFIX + HotRankingKeys.currentYearWeek();
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    operations.opsForZSet().incrementScore(RedisConstants.HOT_CREATOR_ZSET, member, score);
+                    if (delta > 0) {
+                        operations.opsForZSet().incrementScore(dayKey, member, score);
+                        operations.opsForZSet().incrementScore(weekKey, member, score);
+                        operations.expire(dayKey, RedisConstants.HOT_DAY_TTL_DAYS, TimeUnit.DAYS);
+                        operations.expire(weekKey, RedisConstants.HOT_WEEK_TTL_DAYS, TimeUnit.DAYS);
+                    }
+                    operations.opsForHash().increment(RedisConstants.HOT_CREATOR_STATS_HASH,
+                            statsField(authorId, FIELD_FAVORITES), delta);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // 派生统计失败不影响收藏本身，校正任务会按 DB 修正
+            log.warn("更新创作者榜收藏数失败, tripId={}, authorId={}", trip.getId(), authorId, e);
+        }
+    }
+
+    /**
+     * 创建公开行程：公开行程数 +1，并让作者出现在全量榜上（分数不变）。
+     */
+    public void recordTripCreated(Trip trip) {
+        Long authorId = authorOf(trip);
+        if (authorId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForHash().increment(RedisConstants.HOT_CREATOR_STATS_HASH,
+                    statsField(authorId, FIELD_TRIPS), 1L);
+            stringRedisTemplate.opsForZSet().incrementScore(RedisConstants.HOT_CREATOR_ZSET, String.valueOf(authorId), 0D);
+        } catch (Exception e) {
+            log.warn("更新创作者公开行程数失败, tripId={}, authorId={}", trip.getId(), authorId, e);
+        }
+    }
+
+    /**
+     * 分页读取创作者榜（page 从 1 开始），附带累计统计与昵称头像。
+     */
+    public PageResult page(String period, int page, int size) {
+        String key = creatorKey(period);
+        Long total = stringRedisTemplate.opsForZSet().zCard(key);
+        if (total == null || total == 0) {
+            return new PageResult(0L, Collections.emptyList());
+        }
+        long start = (long) (page - 1) * size;
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(key, start, start + size - 1);
+        if (tuples == null || tuples.isEmpty()) {
+            return new PageResult(total, Collections.emptyList());
+        }
+
+        List<CreatorRankVO> records = new ArrayList<>(tuples.size());
+        List<Object> fields = new ArrayList<>(tuples.size() * 3);
+        long rank = start;
+        for (ZSetOperations.TypedTuple<String> t : tuples) {
+            Long userId;
+            try {
+                userId = Long.valueOf(t.getValue());
+            } catch (Exception ignore) {
+                continue;
+            }
+            CreatorRankVO vo = new CreatorRankVO();
+            vo.setUserId(userId);
+            vo.setRank(++rank);
+            vo.setScore(t.getScore());
+            records.add(vo);
+            fields.add(statsField(userId, FIELD_VIEWS));
+            fields.add(statsField(userId, FIELD_FAVORITES));
+            fields.add(statsField(userId, FIELD_TRIPS));
+        }
+        if (records.isEmpty()) {
+            return new PageResult(total, Collections.emptyList());
+        }
+
+        List<Object> stats = stringRedisTemplate.opsForHash().multiGet(RedisConstants.HOT_CREATOR_STATS_HASH, fields);
+        Map<Long, User> users = userMapper.selectBatchIds(
+                        records.stream().map(CreatorRankVO::getUserId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(User::getId, Function.identity(), (a, b) -> a));
+        for (int i = 0; i < records.size(); i++) {
+            CreatorRankVO vo = records.get(i);
+            vo.setTotalViews(toLong(stats.get(i * 3)));
+            vo.setFavoriteCount(toLong(stats.get(i * 3 + 1)));
+            vo.setPublicTripCount(toLong(stats.get(i * 3 + 2)));
+            User user = users.get(vo.getUserId());
+            if (user != null) {
+                vo.setNickname(user.getNickname());
+                vo.setAvatar(user.getAvatar());
+            }
+        }
+        return new PageResult(total, records);
+    }
+
+    private static Long authorOf(Trip trip) {
+        if (trip == null || trip.getUserId() == null) {
+            return null;
+        }
+        Integer visibility = trip.getVisibility();
+        boolean isPublic = (visibility == null || visibility == 2);
+        return isPublic ? trip.getUserId() : null;
+    }
+
+    private static Long toLong(Object v) {
+        if (v == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(v.toString());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.triphub.server.ranking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内的 heavy hitter 草图：Count-Min Sketch 计频 + 分段的 Space-Saving 风格候选表取 Top K。
+ *
+ * - 计频：depth 行 × width 列的计数矩阵放在一个 AtomicLongArray 里，写入是无锁的 getAndIncrement，
+ *   估计值取各行最小值，只会高估不会低估（误差上界约 总量 × e / width，置信度 1 - e^-depth）；
+ * - 候选：按 item 哈希分成若干段，每段一个容量为 topK 的最小堆 + 开放寻址索引（基本类型数组，不装箱），
+ *   表满时新 item 的估计值超过堆顶才替换（Space-Saving 的淘汰规则，计数直接用 CMS 估计值），单次更新 O(log topK)；
+ *   段锁只 tryLock，抢不到就跳过本次候选更新，浏览路径不等锁；
+ * - 读取：合并各段候选按估计值排序取前 topK。
+ *
+ * 实例只统计一个时间窗口，窗口切换时由调用方整体替换为新实例。写入方用 {@link #enter} / {@link #exit} 登记，
+ * 切换方换掉实例后 {@link #awaitWriters} 等已登记的写入完成再读取，避免导出后仍有计数写进旧实例。
+ */
+public final class HeavyHitterSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private static final int WRITER_PAD = 16;
+
+    private final int depth;
+    private final int width;
+    private final int topK;
+    private final AtomicLongArray counters;
+    private final Stripe[] stripes;
+    /** 各段进行中的写入数，每段占一个缓存行避免伪共享 */
+    private final AtomicIntegerArray writers;
+
+    public HeavyHitterSketch(int depth, int width, int topK, int stripeCount) {
+        if (depth <= 0 || depth > SEEDS.length || width <= 0 || topK <= 0 || stripeCount <= 0) {
+            throw new IllegalArgumentException("invalid sketch size");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.topK = topK;
+        this.counters = new AtomicLongArray(depth * width);
+        this.stripes = new Stripe[stripeCount];
+        this.writers = new AtomicIntegerArray(stripeCount * WRITER_PAD);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(topK);
+        }
+    }
+
+    /**
+     * 计数 +1 并返回该 item 当前的估计频次。
+     */
+    public long add(long item) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long v = counters.incrementAndGet(row * width + column(item, row));
+            if (v < estimate) {
+                estimate = v;
+            }
+        }
+        stripes[stripeOf(item)].offer(item, estimate);
+        return estimate;
+    }
+
+    /**
+     * 登记一次写入。登记后调用方须再次确认本实例仍是当前窗口：已被换下则 {@link #exit} 后改写新实例。
+     */
+    public void enter(long item) {
+        writers.incrementAndGet(stripeOf(item) * WRITER_PAD);
+    }
+
+    public void exit(long item) {
+        writers.decrementAndGet(stripeOf(item) * WRITER_PAD);
+    }
+
+    /**
+     * 实例被换下后调用：等待换下前已登记的写入全部完成。此后再登记的写入方都会看到新实例并放弃本实例。
+     */
+    public void awaitWriters() {
+        for (int i = 0; i < stripes.length; i++) {
+            while (writers.get(i * WRITER_PAD) != 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * 估计频次（只会高估）。
+     */
+    public long estimate(long item) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            long v = counters.get(row * width + column(item, row));
+            if (v < estimate) {
+                estimate = v;
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * 当前窗口估计频次最高的 topK 个 item，按频次倒序；每个元素为 {item, estimate}。
+     */
+    public List<long[]> topK() {
+        List<long[]> all = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(all);
+        }
+        // 候选表里存的是写入时的估计值，这里用最新估计值重新排序
+        for (long[] e : all) {
+            e[1] = estimate(e[0]);
+        }
+        all.sort(Comparator.comparingLong((long[] e) -> e[1]).reversed());
+        return all.size() > topK ? new ArrayList<>(all.subList(0, topK)) : all;
+    }
+
+    private int stripeOf(long item) {
+        return (int) Math.floorMod(mix(item), (long) stripes.length);
+    }
+
+    private int column(long item, int row) {
+        return (int) Math.floorMod(mix(item ^ SEEDS[row]), (long) width);
+    }
+
+    /**
+     * SplitMix64 的终结混合函数，把相邻的 tripId 打散到不同列。
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 一段 Space-Saving 候选表：按估计值建的最小堆（堆顶即淘汰对象）+ item → 堆下标的开放寻址表，全部是基本类型数组。
+     * 命中/插入/替换堆顶都是 O(log capacity)，不装箱、不扫描整表。
+     */
+    private static final class Stripe {
+        private static final int EMPTY = -1;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int capacity;
+        private final long[] heapItems;
+        private final long[] heapCounts;
+        private final long[] tableKeys;
+        private final int[] tableSlots;
+        private final int mask;
+        private int size;
+
+        private Stripe(int capacity) {
+            this.capacity = capacity;
+            this.heapItems = new long[capacity];
+            this.heapCounts = new long[capacity];
+            int tableSize = Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1;
+            this.tableKeys = new long[tableSize];
+            this.tableSlots = new int[tableSize];
+            Arrays.fill(tableSlots, EMPTY);
+            this.mask = tableSize - 1;
+        }
+
+        /**
+         * 只 tryLock：同段正被其他请求更新时直接跳过本次候选更新（CMS 计数已经完成，
+         * 高频 item 下一次浏览会带着更大的估计值再来），浏览路径不阻塞等锁。
+         */
+        private void offer(long item, long estimate) {
+            if (!lock.tryLock()) {
+                return;
+            }
+            try {
+                int i = find(item);
+                if (i >= 0) {
+                    int pos = tableSlots[i];
+                    if (estimate > heapCounts[pos]) {
+                        heapCounts[pos] = estimate;
+                        siftDown(pos);
+                    }
+                } else if (size < capacity) {
+                    heapItems[size] = item;
+                    heapCounts[size] = estimate;
+                    tableKeys[-i - 1] = item;
+                    tableSlots[-i - 1] = size;
+                    siftUp(size++);
+                } else if (estimate > heapCounts[0]) {
+                    remove(heapItems[0]);
+                    heapItems[0] = item;
+                    heapCounts[0] = estimate;
+                    // 删除可能移动了探测链，重新定位空位
+                    int slot = -find(item) - 1;
+                    tableKeys[slot] = item;
+                    tableSlots[slot] = 0;
+                    siftDown(0);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void drainTo(List<long[]> out) {
+            lock.lock();
+            try {
+                for (int i = 0; i < size; i++) {
+                    out.add(new long[]{heapItems[i], heapCounts[i]});
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 命中返回表下标，未命中返回 -(空位下标) - 1。
+         */
+        private int find(long item) {
+            int i = (int) (mix(item) >>> 40) & mask;
+            while (tableSlots[i] != EMPTY) {
+                if (tableKeys[i] == item) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -i - 1;
+        }
+
+        /**
+         * 线性探测的回移删除：把后面同一探测链上的元素往前挪，不留墓碑。
+         */
+        private void remove(long item) {
+            int i = find(item);
+            if (i < 0) {
+                return;
+            }
+            tableSlots[i] = EMPTY;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (tableSlots[j] == EMPTY) {
+                    return;
+                }
+                int home = (int) (mix(tableKeys[j]) >>> 40) & mask;
+                // home 不在 (i, j] 区间内时，j 上的元素可以挪到 i
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    tableKeys[i] = tableKeys[j];
+                    tableSlots[i] = tableSlots[j];
+                    tableSlots[j] = EMPTY;
+                    i = j;
+                }
+            }
+        }
+
+        private void siftUp(int pos) {
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (heapCounts[parent] <= heapCounts[pos]) {
+                    return;
+                }
+                swap(pos, parent);
+                pos = parent;
+            }
+        }
+
+        private void siftDown(int pos) {
+            while (true) {
+                int left = pos * 2 + 1;
+                if (left >= size) {
+                    return;
+                }
+                int right = left + 1;
+                int child = right < size && heapCounts[right] < heapCounts[left] ? right : left;
+                if (heapCounts[pos] <= heapCounts[child]) {
+                    return;
+                }
+                swap(pos, child);
+                pos = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long item = heapItems[a];
+            long count = heapCounts[a];
+            heapItems[a] = heapItems[b];
+            heapCounts[a] = heapCounts[b];
+            heapItems[b] = item;
+            heapCounts[b] = count;
+            tableSlots[find(heapItems[a])] = a;
+            tableSlots[find(heapItems[b])] = b;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.pojo.vo.HotDestinationVO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 热门目的地榜单 + 统计信息的一次性读取。
+ *
+ * 一次 Lua 调用内完成：ZREVRANGE WITHSCORES 取 Top N → 逐个 HGET 公开行程数 → ZSCORE 上一窗口分数，
+ * 客户端一个往返即可拿到展示所需的全部字段。
+ */
+@Component
+@RequiredArgsConstructor
+public class HotDestinationStats {
+
+    /**
+     * KEYS: [rankKey, statsHash, previousKey]
+     * ARGV: [stopIndex, hasPrevious('1'/'0')]
+     * 返回扁平数组：city, score, tripCount('' 表示无), previousScore('' 表示无), ...
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> TOP_WITH_STATS_SCRIPT = new DefaultRedisScript<>(
+            "local r = redis.call('ZREVRANGE', KEYS[1], 0, tonumber(ARGV[1]), 'WITHSCORES'); " +
+                    "local out = {}; " +
+                    "for i = 1, #r, 2 do " +
+                    "  local city = r[i]; " +
+                    "  local trips = redis.call('HGET', KEYS[2], city); " +
+                    "  local prev = false; " +
+                    "  if ARGV[2] == '1' then prev = redis.call('ZSCORE', KEYS[3], city); end; " +
+                    "  out[#out + 1] = city; " +
+                    "  out[#out + 1] = r[i + 1]; " +
+                    "  out[#out + 1] = trips or ''; " +
+                    "  out[#out + 1] = prev or ''; " +
+                    "end; " +
+                    "return out;",
+            List.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * @param rankKey     当前窗口的热门目的地 ZSet
+     * @param previousKey 上一窗口的 ZSet，为 null 时不计算变化量
+     */
+    public List<HotDestinationVO> top(String rankKey, String previousKey, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        boolean hasPrevious = previousKey != null;
+        List<?> raw = stringRedisTemplate.execute(
+                TOP_WITH_STATS_SCRIPT,
+                Arrays.asList(rankKey, RedisConstants.HOT_DEST_STATS_HASH, hasPrevious ? previousKey : rankKey),
+                String.valueOf(limit - 1),
+                hasPrevious ? "1" : "0"
+        );
+        if (raw == null || raw.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<HotDestinationVO> result = new ArrayList<>(raw.size() / 4);
+        for (int i = 0; i + 3 < raw.size(); i += 4) {
+            HotDestinationVO vo = new HotDestinationVO();
+            vo.setCity(String.valueOf(raw.get(i)));
+            vo.setScore(parseDouble(raw.get(i + 1)));
+            vo.setRank(result.size() + 1);
+            Double trips = parseDouble(raw.get(i + 2));
+            vo.setPublicTripCount(trips == null ? 0L : trips.longValue());
+            if (hasPrevious) {
+                Double previous = parseDouble(raw.get(i + 3));
+                vo.setPreviousScore(previous);
+                double base = previous == null ? 0D : previous;
+                vo.setDelta(vo.getScore() == null ? null : vo.getScore() - base);
+            }
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private static Double parseDouble(Object o) {
+        if (o == null) {
+            return null;
+        }
+        String s = String.valueOf(o);
+        if (s.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.valueOf(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
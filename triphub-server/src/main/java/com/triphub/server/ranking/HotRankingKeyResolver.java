@@ -0,0 +1,109 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * period → 热门行程 / 热门目的地 ZSet key 的解析。
+ * 发现页接口与物化任务共用，保证两边对同一个 period 读的是同一个榜单。
+ */
+@Component
+@RequiredArgsConstructor
+public class HotRankingKeyResolver {
+
+    public static final String PERIOD_ALL = "all";
+
+    /** 支持的全部 period（未知 period 按 all 处理） */
+    public static final List<String> PERIODS = Collections.unmodifiableList(Arrays.asList(
+            PERIOD_ALL, "day", "week", "trending", SlidingWindowRanking.WINDOW_24H, SlidingWindowRanking.WINDOW_7D,
+            RisingRanking.PERIOD_RISING));
+
+    private final SlidingWindowRanking slidingWindowRanking;
+
+    /**
+     * 归一化 period：小写去空白，未知值回退为 all。
+     */
+    public static String normalize(String period) {
+        String p = period == null ? PERIOD_ALL : period.trim().toLowerCase(Locale.ROOT);
+        return PERIODS.contains(p) ? p : PERIOD_ALL;
+    }
+
+    public String tripKey(String period) {
+        String p = normalize(period);
+        if ("day".equals(p)) {
+            return RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + HotRankingKeys.todayYmd();
+        }
+        if ("week".equals(p)) {
+            return RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + HotRankingKeys.currentYearWeek();
+        }
+        if (SlidingWindowRanking.isSlidingWindow(p)) {
+            return slidingWindowRanking.tripWindowKey(p);
+        }
+        if ("trending".equals(p)) {
+            return RedisConstants.HOT_TRIP_TRENDING_ZSET;
+        }
+        if (RisingRanking.PERIOD_RISING.equals(p)) {
+            return RedisConstants.HOT_TRIP_RISING_ZSET;
+        }
+        return RedisConstants.HOT_TRIP_ZSET;
+    }
+
+    /**
+     * 城市内热门行程 key：day / week 对应城市日榜 / 周榜，其余 period 使用城市全量榜。
+     */
+    public String cityTripKey(String city, String period) {
+        String c = city.trim();
+        String p = normalize(period);
+        if ("day".equals(p)) {
+            return RedisConstants.hotTripCityDayKey(c, HotRankingKeys.todayYmd());
+        }
+        if ("week".equals(p)) {
+            return RedisConstants.hotTripCityWeekKey(c, HotRankingKeys.currentYearWeek());
+        }
+        return RedisConstants.hotTripCityKey(c);
+    }
+
+    /**
+     * 目的地没有单独的上升榜，rising 按时间衰减榜返回。
+     */
+    public String destKey(String period) {
+        String p = normalize(period);
+        if ("day".equals(p)) {
+            return RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + HotRankingKeys.todayYmd();
+        }
+        if ("week".equals(p)) {
+            return RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + HotRankingKeys.currentYearWeek();
+        }
+        if (SlidingWindowRanking.isSlidingWindow(p)) {
+            return slidingWindowRanking.destWindowKey(p);
+        }
+        if ("trending".equals(p) || RisingRanking.PERIOD_RISING.equals(p)) {
+            return RedisConstants.HOT_DEST_TRENDING_ZSET;
+        }
+        return RedisConstants.HOT_DEST_ZSET;
+    }
+
+    /**
+     * 热门目的地上一个可比较窗口的 key：day → 昨日榜，week → 上周榜，24h → 前一个 24 小时；其余 period 返回 null。
+     */
+    public String previousDestKey(String period) {
+        String p = normalize(period);
+        if ("day".equals(p)) {
+            return RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + HotRankingKeys.ymd(LocalDate.now().minusDays(1));
+        }
+        if ("week".equals(p)) {
+            return RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(LocalDate.now().minusWeeks(1));
+        }
+        if (SlidingWindowRanking.isSlidingWindow(p)) {
+            return slidingWindowRanking.destPreviousWindowKey(p);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package com.triphub.server.ranking;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 热门榜单时间桶相关的 key 片段工具：日桶 yyyyMMdd、周桶 YYYYww、小时桶 yyyyMMddHH。
+ * 写入路径（TripServiceImpl）与读取路径（DiscoverController / 滑动窗口合并）共用，避免两边格式不一致。
+ */
+public final class HotRankingKeys {
+
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHH");
+
+    private HotRankingKeys() {
+    }
+
+    public static String todayYmd() {
+        return ymd(LocalDate.now());
+    }
+
+    public static String ymd(LocalDate date) {
+        return date.format(DateTimeFormatter.BASIC_ISO_DATE); // yyyyMMdd
+    }
+
+    public static String currentYearWeek() {
+        return yearWeek(LocalDate.now());
+    }
+
+    public static String yearWeek(LocalDate date) {
+        WeekFields wf = WeekFields.ISO;
+        int week = date.get(wf.weekOfWeekBasedYear());
+        int year = date.get(wf.weekBasedYear());
+        return String.format(Locale.ROOT, "%04d%02d", year, week); // YYYYww
+    }
+
+    public static String currentHour() {
+        return hour(LocalDateTime.now());
+    }
+
+    public static String hour(LocalDateTime time) {
+        return time.format(HOUR_FORMATTER); // yyyyMMddHH
+    }
+
+    /**
+     * 最近 n 个小时桶（含当前小时），从新到旧排列。
+     */
+    public static List<String> recentHours(int n) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        List<String> hours = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            hours.add(hour(now.minusHours(i)));
+        }
+        return hours;
+    }
+}
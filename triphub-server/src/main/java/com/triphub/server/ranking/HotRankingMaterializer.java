@@ -0,0 +1,155 @@
+package com.triphub.server.ranking;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.HotRankingSnapshotDTO;
+import com.triphub.pojo.dto.TripSummaryDTO;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.service.TripService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门榜单物化任务。
+ *
+ * 热榜对所有用户都一样，但实时读路径每次都要 ZREVRANGE + 摘要 MGET（可能再回源 DB）+ 增量 HMGET + JSON 组装。
+ * 这里每隔几秒把每个 period 的 Top N 行程摘要与热门目的地整体渲染成一份快照：
+ * - 写入 hot:snapshot:{period}（一个 key，一次 GET 读回）；
+ * - 同时保留一份进程内副本，本实例的读请求直接命中内存。
+ *
+ * 快照超过 snapshotMaxAgeSeconds 视为过期，读路径返回 null 由调用方回退到实时拼装。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotRankingMaterializer {
+
+    private static final String JOB_HOT_SNAPSHOT = "hot_snapshot";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingKeyResolver hotRankingKeyResolver;
+    private final TripService tripService;
+    private final ObjectMapper objectMapper;
+    private final HotRankingProperties hotRankingProperties;
+    private final MetricsRecorder metricsRecorder;
+    private final JobCoordinator jobCoordinator;
+
+    /** 进程内快照副本：period -> snapshot */
+    private final Map<String, HotRankingSnapshotDTO> localSnapshots = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelayString = "${triphub.hot-ranking.snapshot-refresh-millis:5000}")
+    public void materializeAll() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_HOT_SNAPSHOT)) {
+            return;
+        }
+        for (String period : HotRankingKeyResolver.PERIODS) {
+            try {
+                materialize(period);
+            } catch (Exception e) {
+                log.warn("热门榜单快照物化失败, period={}", period, e);
+            }
+        }
+    }
+
+    /**
+     * 获取某个 period 的有效快照：优先进程内副本，其次 Redis；都不可用或已过期时返回 null。
+     */
+    public HotRankingSnapshotDTO current(String period) {
+        String p = HotRankingKeyResolver.normalize(period);
+        HotRankingSnapshotDTO local = localSnapshots.get(p);
+        if (isFresh(local)) {
+            metricsRecorder.recordHotRankingSnapshot("local");
+            return local;
+        }
+        try {
+            String json = stringRedisTemplate.opsForValue().get(RedisConstants.HOT_SNAPSHOT_KEY_PREFIX + p);
+            if (StringUtils.hasText(json)) {
+                HotRankingSnapshotDTO remote = objectMapper.readValue(json, HotRankingSnapshotDTO.class);
+                if (isFresh(remote)) {
+                    localSnapshots.put(p, remote);
+                    metricsRecorder.recordHotRankingSnapshot("redis");
+                    return remote;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("读取热门榜单快照失败, period={}: {}", p, e.getMessage());
+        }
+        metricsRecorder.recordHotRankingSnapshot("miss");
+        return null;
+    }
+
+    /**
+     * 请求条数不超过快照容量时才能由快照完整服务。
+     */
+    public boolean covers(int limit) {
+        return limit <= hotRankingProperties.getSnapshotSize();
+    }
+
+    private void materialize(String period) throws Exception {
+        int size = Math.max(hotRankingProperties.getSnapshotSize(), 1);
+        HotRankingSnapshotDTO snapshot = new HotRankingSnapshotDTO();
+        snapshot.setPeriod(period);
+
+        Set<ZSetOperations.TypedTuple<String>> tripTuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(hotRankingKeyResolver.tripKey(period), 0, size - 1);
+        snapshot.setTruncated(tripTuples != null && tripTuples.size() >= size);
+        if (tripTuples != null && !tripTuples.isEmpty()) {
+            List<Long> ids = new ArrayList<>(tripTuples.size());
+            Map<Long, Double> scoreById = new HashMap<>();
+            for (ZSetOperations.TypedTuple<String> t : tripTuples) {
+                try {
+                    Long id = Long.valueOf(t.getValue());
+                    ids.add(id);
+                    scoreById.put(id, t.getScore());
+                } catch (Exception ignore) {
+                    // ignore bad member
+                }
+            }
+            for (TripSummaryDTO dto : tripService.listPublicTripSummariesForDiscover(ids)) {
+                snapshot.getTrips().add(dto);
+                snapshot.getTripScores().add(scoreById.get(dto.getId()));
+            }
+        }
+
+        Set<ZSetOperations.TypedTuple<String>> destTuples = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(hotRankingKeyResolver.destKey(period), 0, size - 1);
+        if (destTuples != null) {
+            for (ZSetOperations.TypedTuple<String> t : destTuples) {
+                snapshot.getDestinations().add(t.getValue());
+                snapshot.getDestinationScores().add(t.getScore());
+            }
+        }
+
+        snapshot.setGeneratedAt(System.currentTimeMillis());
+        stringRedisTemplate.opsForValue().set(
+                RedisConstants.HOT_SNAPSHOT_KEY_PREFIX + period,
+                objectMapper.writeValueAsString(snapshot),
+                RedisConstants.HOT_SNAPSHOT_TTL_SECONDS,
+                TimeUnit.SECONDS
+        );
+        localSnapshots.put(period, snapshot);
+    }
+
+    private boolean isFresh(HotRankingSnapshotDTO snapshot) {
+        if (snapshot == null || snapshot.getGeneratedAt() == null) {
+            return false;
+        }
+        long ageMs = System.currentTimeMillis() - snapshot.getGeneratedAt();
+        return ageMs <= TimeUnit.SECONDS.toMillis(hotRankingProperties.getSnapshotMaxAgeSeconds());
+    }
+}
@@ -0,0 +1,230 @@
+package com.triphub.server.ranking;
+
+import com.triphub.pojo.dto.HotRankingSnapshotDTO;
+import com.triphub.pojo.dto.TripSummaryDTO;
+import com.triphub.pojo.vo.HotTripPageVO;
+import com.triphub.server.service.TripService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 热门行程游标分页。
+ *
+ * 游标内容：period | snapshotId | rank | score | tieOffset（Base64URL 编码，对客户端不透明）。
+ * - 快照仍是同一份（snapshotId 一致）：直接按 rank 切片，页与页之间完全稳定；
+ * - 快照已更新或超出快照容量：按「上一页最后一条的 score + 同分已返回条数」定位（读完快照交接给 ZSet 时，
+ *   同分条数按 ZSet 中的名次重新计算），
+ *   用 ZREVRANGEBYSCORE key score -inf LIMIT tieOffset size 取下一页，分数并发变化时不会从头重读前缀。
+ */
+@Component
+@RequiredArgsConstructor
+public class HotRankingPager {
+
+    private static final String CURSOR_VERSION = "v1";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingKeyResolver hotRankingKeyResolver;
+    private final HotRankingMaterializer hotRankingMaterializer;
+    private final TripService tripService;
+
+    /**
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @throws IllegalArgumentException 游标无法解析或与 period 不匹配
+     */
+    public HotTripPageVO page(String period, String cursor, int size) {
+        String p = HotRankingKeyResolver.normalize(period);
+        Cursor from = cursor == null || cursor.isEmpty() ? Cursor.first(p) : Cursor.decode(cursor);
+        if (!p.equals(from.period)) {
+            throw new IllegalArgumentException("cursor 与 period 不匹配");
+        }
+
+        HotRankingSnapshotDTO snapshot = hotRankingMaterializer.current(p);
+        if (snapshot != null) {
+            int start = from.snapshotId == snapshot.getGeneratedAt() ? from.rank : seek(snapshot, from);
+            if (start < snapshot.getTrips().size()) {
+                return fromSnapshot(p, snapshot, start, from, size);
+            }
+            if (!mayHaveMore(snapshot)) {
+                // 物化时 ZSet 本身就没有更多成员，已到末尾
+                return new HotTripPageVO();
+            }
+        }
+        return fromZSet(p, from, size);
+    }
+
+    private HotTripPageVO fromSnapshot(String period, HotRankingSnapshotDTO snapshot, int start, Cursor from, int size) {
+        List<TripSummaryDTO> trips = snapshot.getTrips();
+        List<Double> scores = snapshot.getTripScores();
+        int end = Math.min(start + size, trips.size());
+        HotTripPageVO page = new HotTripPageVO();
+        page.getRecords().addAll(trips.subList(start, end));
+
+        double lastScore = scoreAt(scores, end - 1);
+        int tie = 0;
+        for (int i = end - 1; i >= 0 && scoreAt(scores, i) == lastScore; i--) {
+            tie++;
+        }
+        page.setHasMore(end < trips.size() || mayHaveMore(snapshot));
+        if (!page.isHasMore()) {
+            return page;
+        }
+        // 仍在快照内时带上 snapshotId 按名次续读；读到快照末尾后交给 ZSet 按分数续读，游标按 ZSet 中的位置重新计算
+        Cursor next = end < trips.size()
+                ? new Cursor(period, snapshot.getGeneratedAt(), end, lastScore, tie)
+                : handover(period, trips.subList(start, end), end, lastScore);
+        page.setNextCursor(next.encode());
+        return page;
+    }
+
+    /**
+     * 快照读完后交给 ZSet 的游标。快照过滤掉了非公开行程、分数也可能已变化，快照内的同分条数不能直接作为 ZSet 的 LIMIT 偏移：
+     * 从本页末尾往前找仍在 ZSet 中的成员，按它当前的 score 与 ZREVRANK 算出同分偏移（名次 - 更高分成员数 + 1），
+     * 下一页从它之后开始；本页成员都已不在 ZSet 时退化为从 lastScore 同分第一条读（可能重复，不会漏）。
+     */
+    private Cursor handover(String period, List<TripSummaryDTO> records, int rank, double lastScore) {
+        String key = hotRankingKeyResolver.tripKey(period);
+        List<String> members = new ArrayList<>(records.size());
+        for (TripSummaryDTO trip : records) {
+            members.add(String.valueOf(trip.getId()));
+        }
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (String member : members) {
+                    operations.opsForZSet().score(key, member);
+                    operations.opsForZSet().reverseRank(key, member);
+                }
+                return null;
+            }
+        });
+        for (int i = members.size() - 1; i >= 0; i--) {
+            Object score = results.size() > 2 * i ? results.get(2 * i) : null;
+            Object zrank = results.size() > 2 * i + 1 ? results.get(2 * i + 1) : null;
+            if (!(score instanceof Number) || !(zrank instanceof Number)) {
+                continue;
+            }
+            double s = ((Number) score).doubleValue();
+            Long higher = stringRedisTemplate.opsForZSet().count(key, Math.nextUp(s), Double.POSITIVE_INFINITY);
+            long tieOffset = ((Number) zrank).longValue() - (higher == null ? 0L : higher) + 1;
+            return new Cursor(period, 0L, rank, s, (int) Math.max(tieOffset, 0L));
+        }
+        return new Cursor(period, 0L, rank, lastScore, 0);
+    }
+
+    private HotTripPageVO fromZSet(String period, Cursor from, int size) {
+        Set<ZSetOperations.TypedTuple<String>> tuples = stringRedisTemplate.opsForZSet().reverseRangeByScoreWithScores(
+                hotRankingKeyResolver.tripKey(period), Double.NEGATIVE_INFINITY, from.score, from.tieOffset, size);
+        HotTripPageVO page = new HotTripPageVO();
+        if (tuples == null || tuples.isEmpty()) {
+            return page;
+        }
+        List<Long> ids = new ArrayList<>(tuples.size());
+        double lastScore = from.score;
+        int tie = from.tieOffset;
+        for (ZSetOperations.TypedTuple<String> t : tuples) {
+            double score = t.getScore() == null ? 0D : t.getScore();
+            tie = score == lastScore ? tie + 1 : 1;
+            lastScore = score;
+            try {
+                ids.add(Long.valueOf(t.getValue()));
+            } catch (Exception ignore) {
+                // ignore bad member
+            }
+        }
+        page.getRecords().addAll(tripService.listPublicTripSummariesForDiscover(ids));
+        page.setHasMore(tuples.size() >= size);
+        if (page.isHasMore()) {
+            page.setNextCursor(new Cursor(period, 0L, from.rank + tuples.size(), lastScore, tie).encode());
+        }
+        return page;
+    }
+
+    /**
+     * 快照之后 ZSet 是否可能还有成员：以物化时读到的 ZSet 原始条数为准（快照会过滤掉非公开行程，条数可能少于容量）。
+     */
+    private static boolean mayHaveMore(HotRankingSnapshotDTO snapshot) {
+        return !Boolean.FALSE.equals(snapshot.getTruncated());
+    }
+
+    /**
+     * 快照已换代时按分数定位：跳过分数更高的条目，再跳过同分已返回的 tieOffset 条。
+     */
+    private static int seek(HotRankingSnapshotDTO snapshot, Cursor from) {
+        List<Double> scores = snapshot.getTripScores();
+        int i = 0;
+        while (i < scores.size() && scoreAt(scores, i) > from.score) {
+            i++;
+        }
+        int skipped = 0;
+        while (i < scores.size() && skipped < from.tieOffset && scoreAt(scores, i) == from.score) {
+            i++;
+            skipped++;
+        }
+        return i;
+    }
+
+    private static double scoreAt(List<Double> scores, int i) {
+        Double s = i < 0 || i >= scores.size() ? null : scores.get(i);
+        return s == null ? 0D : s;
+    }
+
+    /**
+     * 游标：首页 score=+inf、tieOffset=0。
+     */
+    private static final class Cursor {
+        private final String period;
+        private final long snapshotId;
+        private final int rank;
+        private final double score;
+        private final int tieOffset;
+
+        private Cursor(String period, long snapshotId, int rank, double score, int tieOffset) {
+            this.period = period;
+            this.snapshotId = snapshotId;
+            this.rank = rank;
+            this.score = score;
+            this.tieOffset = tieOffset;
+        }
+
+        private static Cursor first(String period) {
+            return new Cursor(period, 0L, 0, Double.POSITIVE_INFINITY, 0);
+        }
+
+        private String encode() {
+            String raw = String.join("|", CURSOR_VERSION, period, String.valueOf(snapshotId),
+                    String.valueOf(rank), String.valueOf(score), String.valueOf(tieOffset));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        private static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", -1);
+                if (parts.length != 6 || !CURSOR_VERSION.equals(parts[0])) {
+                    throw new IllegalArgumentException("cursor 非法");
+                }
+                int rank = Integer.parseInt(parts[3]);
+                int tieOffset = Integer.parseInt(parts[5]);
+                if (rank < 0 || tieOffset < 0) {
+                    throw new IllegalArgumentException("cursor 非法");
+                }
+                return new Cursor(parts[1], Long.parseLong(parts[2]), rank, Double.parseDouble(parts[4]), tieOffset);
+            } catch (IllegalArgumentException e) {
+                // NumberFormatException 也是 IllegalArgumentException
+                throw new IllegalArgumentException("cursor 非法", e);
+            }
+        }
+    }
+}
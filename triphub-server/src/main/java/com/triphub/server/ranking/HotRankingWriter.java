@@ -0,0 +1,267 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.TripViewEventDTO;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.utils.UniqueVisitorCounter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 浏览事件 → Redis 计数的统一写入器，直写模式（单条）与 Stream 消费（批量）共用。
+ *
+ * 一批事件先在内存里按 key/member 聚合，再用一次 pipeline 发出：
+ * - 浏览量增量 Hash（按 tripId 分片），供落库任务刷回 DB 与 trip_view_daily 日汇总；
+ * - 公开行程：hot:trip / 日榜 / 周榜 / 小时桶，以及对应的目的地榜单；
+ * - 创作者榜 hot:creator（全量 / 日 / 周）与作者累计浏览量；
+ * - 城市内热门行程 hot:trip:city:{city}（全量 / 日 / 周），写入后按 cityRankingMaxSize 裁剪长尾；
+ * - 行程全量榜 / 日榜 / 周榜由 RankingTrimmer 定期裁剪，同一 pipeline 顺带读取裁剪水位，
+ *   被裁掉后重新进入的行程放进 RankingTrimmer 的待补分队列，由其定时任务按 DB 汇总补齐分数（浏览路径不查 DB）；
+ * - 独立访客 HLL；
+ * - 时间衰减榜按 (行程, 分钟) 聚合后逐条走 Lua（脚本不进 pipeline，避免 NOSCRIPT 回退失效）；
+ * - 本节点的突增检测草图（纯内存计数）。
+ * 日/周/小时桶按事件发生时间落桶，延迟消费或回放的事件不会被算进错误的窗口。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotRankingWriter {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final TrendingScoreUpdater trendingScoreUpdater;
+    private final SpikeDetector spikeDetector;
+    private final RankingTrimmer rankingTrimmer;
+    private final HotRankingProperties hotRankingProperties;
+    private final MetricsRecorder metricsRecorder;
+
+    public void apply(List<TripViewEventDTO> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+
+        // key -> (field/member -> 增量)
+        Map<String, Map<String, Long>> hashIncr = new LinkedHashMap<>();
+        Map<String, Map<String, Long>> zsetIncr = new LinkedHashMap<>();
+        // key -> TTL（秒）
+        Map<String, Long> ttlSeconds = new HashMap<>();
+        // 需要裁剪的城市内榜单
+        Set<String> cappedKeys = new LinkedHashSet<>();
+        // 行程全量榜 / 日榜 / 周榜 -> 覆盖的日期区间（全量榜为 null），用于识别裁剪后重新进入的成员
+        Map<String, LocalDate[]> tripWindows = new LinkedHashMap<>();
+        // tripId:minute -> 衰减榜聚合
+        Map<String, TrendingBatch> trending = new LinkedHashMap<>();
+        long tripUpdates = 0L;
+        long destUpdates = 0L;
+
+        for (TripViewEventDTO event : events) {
+            if (event == null || event.getTripId() == null) {
+                continue;
+            }
+            String tripId = String.valueOf(event.getTripId());
+            String deltaKey = RedisConstants.tripViewDeltaKey(event.getTripId());
+            add(hashIncr, deltaKey, tripId);
+            ttlSeconds.put(deltaKey, TimeUnit.HOURS.toSeconds(RedisConstants.TRIP_VIEW_COUNT_DELTA_TTL_HOURS));
+
+            // 热榜写入过滤：仅公开行程才进入热门行程/热门目的地榜单（与重建任务的可见性口径一致）
+            if (!event.isPublicTrip()) {
+                continue;
+            }
+            spikeDetector.record(event.getTripId());
+            LocalDateTime at = LocalDateTime.ofInstant(Instant.ofEpochMilli(event.getTimestamp()), ZoneId.systemDefault());
+            String ymd = HotRankingKeys.ymd(at.toLocalDate());
+            String yearWeek = HotRankingKeys.yearWeek(at.toLocalDate());
+            String hour = HotRankingKeys.hour(at);
+
+            addRankings(zsetIncr, ttlSeconds, tripId,
+                    RedisConstants.HOT_TRIP_ZSET,
+                    RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + ymd,
+                    RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + yearWeek,
+                    RedisConstants.HOT_TRIP_HOUR_ZSET_PREFIX + hour);
+            tripWindows.put(RedisConstants.HOT_TRIP_ZSET, null);
+            tripWindows.put(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + ymd, RankingTrimmer.dayWindow(at.toLocalDate()));
+            tripWindows.put(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + yearWeek, RankingTrimmer.weekWindow(at.toLocalDate()));
+            tripUpdates++;
+
+            if (event.getAuthorId() != null) {
+                String author = String.valueOf(event.getAuthorId());
+                String creatorDayKey = RedisConstants.HOT_CREATOR_DAY_ZSET_PREFIX + ymd;
+                String creatorWeekKey = RedisConstants.HOT_CREATOR_WEEK_ZSET_PREFIX + yearWeek;
+                add(zsetIncr, RedisConstants.HOT_CREATOR_ZSET, author);
+                add(zsetIncr, creatorDayKey, author);
+                add(zsetIncr, creatorWeekKey, author);
+                ttlSeconds.put(creatorDayKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_DAY_TTL_DAYS));
+                ttlSeconds.put(creatorWeekKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_WEEK_TTL_DAYS));
+                add(hashIncr, RedisConstants.HOT_CREATOR_STATS_HASH,
+                        CreatorRanking.statsField(event.getAuthorId(), CreatorRanking.FIELD_VIEWS));
+            }
+
+            String destCity = event.getDestCity();
+            boolean hasDest = destCity != null && !destCity.isEmpty();
+            if (hasDest) {
+                addRankings(zsetIncr, ttlSeconds, destCity,
+                        RedisConstants.HOT_DEST_ZSET,
+                        RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + ymd,
+                        RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + yearWeek,
+                        RedisConstants.HOT_DEST_HOUR_ZSET_PREFIX + hour);
+                destUpdates++;
+
+                String cityKey = RedisConstants.hotTripCityKey(destCity);
+                String cityDayKey = RedisConstants.hotTripCityDayKey(destCity, ymd);
+                String cityWeekKey = RedisConstants.hotTripCityWeekKey(destCity, yearWeek);
+                add(zsetIncr, cityKey, tripId);
+                add(zsetIncr, cityDayKey, tripId);
+                add(zsetIncr, cityWeekKey, tripId);
+                ttlSeconds.put(cityDayKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_DAY_TTL_DAYS));
+                ttlSeconds.put(cityWeekKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_WEEK_TTL_DAYS));
+                cappedKeys.add(cityKey);
+                cappedKeys.add(cityDayKey);
+                cappedKeys.add(cityWeekKey);
+            }
+
+            long minute = event.getTimestamp() / 60_000L;
+            trending.computeIfAbsent(tripId + ":" + minute,
+                            k -> new TrendingBatch(event.getTripId(), hasDest ? destCity : null, minute * 60L))
+                    .count++;
+        }
+
+        long cap = Math.max(hotRankingProperties.getCityRankingMaxSize(), 1);
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<String, Map<String, Long>> e : hashIncr.entrySet()) {
+                    for (Map.Entry<String, Long> f : e.getValue().entrySet()) {
+                        operations.opsForHash().increment(e.getKey(), f.getKey(), f.getValue());
+                    }
+                }
+                for (Map.Entry<String, Map<String, Long>> e : zsetIncr.entrySet()) {
+                    for (Map.Entry<String, Long> m : e.getValue().entrySet()) {
+                        operations.opsForZSet().incrementScore(e.getKey(), m.getKey(), m.getValue());
+                    }
+                }
+                for (Map.Entry<String, Long> e : ttlSeconds.entrySet()) {
+                    operations.expire(e.getKey(), e.getValue(), TimeUnit.SECONDS);
+                }
+                for (String key : cappedKeys) {
+                    // 只保留分数最高的 cap 个成员（rank 0 为最低分）
+                    operations.opsForZSet().removeRange(key, 0, -(cap + 1));
+                }
+                for (String key : tripWindows.keySet()) {
+                    operations.opsForValue().get(RedisConstants.HOT_TRIM_FLOOR_KEY_PREFIX + key);
+                }
+                return null;
+            }
+        });
+        rankingTrimmer.enqueueReseed(collectReentries(results, hashIncr, zsetIncr, tripWindows));
+        if (tripUpdates > 0) {
+            metricsRecorder.recordHotRankingUpdate("trip", tripUpdates);
+        }
+        if (destUpdates > 0) {
+            metricsRecorder.recordHotRankingUpdate("dest", destUpdates);
+        }
+
+        uniqueVisitorCounter.recordAll(events);
+
+        for (TrendingBatch t : trending.values()) {
+            trendingScoreUpdater.record(t.tripId, t.destCity, t.count, t.viewSeconds);
+        }
+    }
+
+    /**
+     * 找出「所在行程榜裁剪过（水位 key 存在）且 ZINCRBY 结果等于本批增量」的成员，即被裁掉后重新进入的行程，
+     * 连同水位一起交给 RankingTrimmer，补齐后的分数不超过水位的不补。
+     * pipeline 结果顺序：HINCRBY…, ZINCRBY…, EXPIRE…, ZREMRANGEBYRANK…, GET 水位…（最后 tripWindows.size() 条）。
+     */
+    private static List<RankingTrimmer.Reentry> collectReentries(List<Object> results,
+                                                                 Map<String, Map<String, Long>> hashIncr,
+                                                                 Map<String, Map<String, Long>> zsetIncr,
+                                                                 Map<String, LocalDate[]> tripWindows) {
+        if (results == null || tripWindows.isEmpty() || results.size() < tripWindows.size()) {
+            return List.of();
+        }
+        Map<String, Double> floors = new HashMap<>();
+        int floorIndex = results.size() - tripWindows.size();
+        for (String key : tripWindows.keySet()) {
+            Object floor = results.get(floorIndex++);
+            if (floor != null) {
+                try {
+                    floors.put(key, Double.parseDouble(String.valueOf(floor)));
+                } catch (NumberFormatException ignore) {
+                    floors.put(key, 0D);
+                }
+            }
+        }
+        if (floors.isEmpty()) {
+            return List.of();
+        }
+        int index = 0;
+        for (Map<String, Long> fields : hashIncr.values()) {
+            index += fields.size();
+        }
+        List<RankingTrimmer.Reentry> reentries = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Long>> e : zsetIncr.entrySet()) {
+            Double floor = floors.get(e.getKey());
+            for (Map.Entry<String, Long> m : e.getValue().entrySet()) {
+                Object score = index < results.size() ? results.get(index) : null;
+                index++;
+                if (floor != null && score instanceof Number && ((Number) score).doubleValue() <= m.getValue()) {
+                    LocalDate[] window = tripWindows.get(e.getKey());
+                    reentries.add(new RankingTrimmer.Reentry(e.getKey(), Long.valueOf(m.getKey()),
+                            window == null ? null : window[0], window == null ? null : window[1], floor));
+                }
+            }
+        }
+        return reentries;
+    }
+
+    /**
+     * 全量榜不过期；日/周/小时桶分别带各自的 TTL。
+     */
+    private static void addRankings(Map<String, Map<String, Long>> zsetIncr, Map<String, Long> ttlSeconds,
+                                    String member, String allKey, String dayKey, String weekKey, String hourKey) {
+        add(zsetIncr, allKey, member);
+        add(zsetIncr, dayKey, member);
+        add(zsetIncr, weekKey, member);
+        add(zsetIncr, hourKey, member);
+        ttlSeconds.put(dayKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_DAY_TTL_DAYS));
+        ttlSeconds.put(weekKey, TimeUnit.DAYS.toSeconds(RedisConstants.HOT_WEEK_TTL_DAYS));
+        ttlSeconds.put(hourKey, TimeUnit.HOURS.toSeconds(RedisConstants.HOT_HOUR_TTL_HOURS));
+    }
+
+    private static void add(Map<String, Map<String, Long>> incr, String key, String member) {
+        incr.computeIfAbsent(key, k -> new LinkedHashMap<>()).merge(member, 1L, Long::sum);
+    }
+
+    private static final class TrendingBatch {
+        private final Long tripId;
+        private final String destCity;
+        private final long viewSeconds;
+        private long count;
+
+        private TrendingBatch(Long tripId, String destCity, long viewSeconds) {
+            this.tripId = tripId;
+            this.destCity = destCity;
+            this.viewSeconds = viewSeconds;
+        }
+    }
+}
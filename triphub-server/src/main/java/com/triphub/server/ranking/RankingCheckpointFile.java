@@ -0,0 +1,445 @@
+package com.triphub.server.ranking;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 榜单 checkpoint 文件的二进制格式与读写（与 Redis 无关，便于单测）。
+ *
+ * <pre>
+ * header : magic(int) version(short) createdAt(long)
+ * entry  : type(byte) key(str) ttlMillis(long) size(int) body
+ *          Z: size × (member(str) score(double))
+ *          H: size × (field(str) value(str))
+ *          S: value(str)，size 固定为 1
+ * trailer: entryCount(int) crc32(long)   —— crc 覆盖 trailer 之前的全部字节与 entryCount
+ * str    : length(int) + UTF-8 字节
+ * </pre>
+ *
+ * 写入先落到同目录的 .tmp 文件，force 后 ATOMIC_MOVE 覆盖正式文件，读方永远看不到写了一半的文件；
+ * 读取时先整文件校验 CRC，再逐条解码，损坏或截断的文件整体拒绝。
+ */
+public final class RankingCheckpointFile {
+
+    public static final byte TYPE_ZSET = 'Z';
+    public static final byte TYPE_HASH = 'H';
+    public static final byte TYPE_STRING = 'S';
+
+    private static final int MAGIC = 0x54484B50; // "THKP"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8;
+    private static final int TRAILER_BYTES = 4 + 8;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private RankingCheckpointFile() {
+    }
+
+    /**
+     * 一个 key 的快照。ttlMillis < 0 表示不过期。
+     */
+    public static final class Entry {
+        private final byte type;
+        private final String key;
+        private final long ttlMillis;
+        private final Map<String, Double> scores;
+        private final Map<String, String> fields;
+        private final String value;
+
+        private Entry(byte type, String key, long ttlMillis,
+                      Map<String, Double> scores, Map<String, String> fields, String value) {
+            this.type = type;
+            this.key = key;
+            this.ttlMillis = ttlMillis;
+            this.scores = scores;
+            this.fields = fields;
+            this.value = value;
+        }
+
+        public static Entry zset(String key, long ttlMillis, Map<String, Double> scores) {
+            return new Entry(TYPE_ZSET, key, ttlMillis, scores, null, null);
+        }
+
+        public static Entry hash(String key, long ttlMillis, Map<String, String> fields) {
+            return new Entry(TYPE_HASH, key, ttlMillis, null, fields, null);
+        }
+
+        public static Entry string(String key, long ttlMillis, String value) {
+            return new Entry(TYPE_STRING, key, ttlMillis, null, null, value);
+        }
+
+        public byte getType() {
+            return type;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getTtlMillis() {
+            return ttlMillis;
+        }
+
+        public Map<String, Double> getScores() {
+            return scores;
+        }
+
+        public Map<String, String> getFields() {
+            return fields;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * 顺序写入器：append 若干条目后 commit 原子替换目标文件；未 commit 就 close 会删除临时文件。
+     */
+    public static final class Writer implements Closeable {
+        private final Path target;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final CRC32 crc = new CRC32();
+        private int entryCount;
+        private boolean committed;
+
+        private Writer(Path target, long createdAt) throws IOException {
+            this.target = target;
+            this.tmp = target.resolveSibling(target.getFileName() + ".tmp");
+            Path dir = target.toAbsolutePath().getParent();
+            if (dir != null) {
+                Files.createDirectories(dir);
+            }
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            putInt(MAGIC);
+            putShort(VERSION);
+            putLong(createdAt);
+        }
+
+        public void append(Entry entry) throws IOException {
+            put(entry.type);
+            putString(entry.key);
+            putLong(entry.ttlMillis);
+            if (entry.type == TYPE_ZSET) {
+                putInt(entry.scores.size());
+                for (Map.Entry<String, Double> e : entry.scores.entrySet()) {
+                    putString(e.getKey());
+                    putDouble(e.getValue() == null ? 0D : e.getValue());
+                }
+            } else if (entry.type == TYPE_HASH) {
+                putInt(entry.fields.size());
+                for (Map.Entry<String, String> e : entry.fields.entrySet()) {
+                    putString(e.getKey());
+                    putString(e.getValue());
+                }
+            } else {
+                putInt(1);
+                putString(entry.value);
+            }
+            entryCount++;
+        }
+
+        public void commit() throws IOException {
+            putInt(entryCount);
+            drain();
+            ByteBuffer trailer = ByteBuffer.allocate(8).putLong(crc.getValue());
+            trailer.flip();
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+            channel.close();
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel.isOpen()) {
+                channel.close();
+            }
+            if (!committed) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        private void put(byte b) throws IOException {
+            ensure(1);
+            buffer.put(b);
+        }
+
+        private void putShort(short v) throws IOException {
+            ensure(2);
+            buffer.putShort(v);
+        }
+
+        private void putInt(int v) throws IOException {
+            ensure(4);
+            buffer.putInt(v);
+        }
+
+        private void putLong(long v) throws IOException {
+            ensure(8);
+            buffer.putLong(v);
+        }
+
+        private void putDouble(double v) throws IOException {
+            ensure(8);
+            buffer.putDouble(v);
+        }
+
+        private void putString(String s) throws IOException {
+            byte[] bytes = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buffer.remaining() < n) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.array(), 0, buffer.limit());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    public static Writer open(Path target, long createdAt) throws IOException {
+        return new Writer(target, createdAt);
+    }
+
+    /**
+     * 只读文件头中的 createdAt（不校验 CRC，完整性由 {@link #read} 负责），用于恢复前判断文件是否过旧。
+     *
+     * @throws IOException 文件不存在、过短或格式不符
+     */
+    public static long readCreatedAt(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("checkpoint too short: " + channel.size());
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("bad checkpoint magic");
+            }
+            short version = header.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported checkpoint version: " + version);
+            }
+            return header.getLong();
+        }
+    }
+
+    /**
+     * 校验并逐条读取 checkpoint，回调参数为 (文件头中的 createdAt, 条目)。
+     *
+     * @return 文件头中的 createdAt（epoch 毫秒）
+     * @throws IOException 文件不存在、格式不符、CRC 不匹配或被截断
+     */
+    public static long read(Path file, BiConsumer<Long, Entry> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES) {
+                throw new IOException("checkpoint too short: " + size);
+            }
+            verifyCrc(channel, size);
+
+            channel.position(0L);
+            Reader in = new Reader(channel, size - 8);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("bad checkpoint magic");
+            }
+            short version = in.getShort();
+            if (version != VERSION) {
+                throw new IOException("unsupported checkpoint version: " + version);
+            }
+            long createdAt = in.getLong();
+            int entries = 0;
+            while (in.remaining() > 4) {
+                consumer.accept(createdAt, readEntry(in));
+                entries++;
+            }
+            int declared = in.getInt();
+            if (declared != entries) {
+                throw new IOException("checkpoint entry count mismatch: " + declared + " != " + entries);
+            }
+            return createdAt;
+        }
+    }
+
+    private static Entry readEntry(Reader in) throws IOException {
+        byte type = in.get();
+        String key = in.getString();
+        long ttl = in.getLong();
+        int n = in.getInt();
+        if (n < 0) {
+            throw new IOException("negative entry size");
+        }
+        if (type == TYPE_ZSET) {
+            Map<String, Double> scores = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String member = in.getString();
+                scores.put(member, in.getDouble());
+            }
+            return Entry.zset(key, ttl, scores);
+        }
+        if (type == TYPE_HASH) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String field = in.getString();
+                fields.put(field, in.getString());
+            }
+            return Entry.hash(key, ttl, fields);
+        }
+        if (type == TYPE_STRING) {
+            return Entry.string(key, ttl, in.getString());
+        }
+        throw new IOException("unknown entry type: " + type);
+    }
+
+    private static void verifyCrc(FileChannel channel, long size) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buf = ByteBuffer.allocate(BUFFER_BYTES);
+        long body = size - 8;
+        long pos = 0L;
+        channel.position(0L);
+        while (pos < body) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), body - pos));
+            int n = channel.read(buf);
+            if (n < 0) {
+                throw new IOException("unexpected end of checkpoint");
+            }
+            crc.update(buf.array(), 0, n);
+            pos += n;
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(8);
+        while (trailer.hasRemaining()) {
+            if (channel.read(trailer) < 0) {
+                throw new IOException("unexpected end of checkpoint");
+            }
+        }
+        trailer.flip();
+        if (trailer.getLong() != crc.getValue()) {
+            throw new IOException("checkpoint crc mismatch");
+        }
+    }
+
+    /**
+     * 在 [0, limit) 范围内顺序读取的缓冲读取器。
+     */
+    private static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private long unread;
+
+        private Reader(FileChannel channel, long limit) {
+            this.channel = channel;
+            this.unread = limit;
+            buffer.limit(0);
+        }
+
+        long remaining() {
+            return unread + buffer.remaining();
+        }
+
+        byte get() throws IOException {
+            require(1);
+            return buffer.get();
+        }
+
+        short getShort() throws IOException {
+            require(2);
+            return buffer.getShort();
+        }
+
+        int getInt() throws IOException {
+            require(4);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            require(8);
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException {
+            require(8);
+            return buffer.getDouble();
+        }
+
+        String getString() throws IOException {
+            int len = getInt();
+            if (len < 0 || len > remaining()) {
+                throw new IOException("bad string length: " + len);
+            }
+            byte[] bytes = new byte[len];
+            int offset = 0;
+            while (offset < len) {
+                if (!buffer.hasRemaining()) {
+                    require(1);
+                }
+                int n = Math.min(buffer.remaining(), len - offset);
+                buffer.get(bytes, offset, n);
+                offset += n;
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void require(int n) throws IOException {
+            if (buffer.remaining() >= n) {
+                return;
+            }
+            if (remaining() < n) {
+                throw new IOException("unexpected end of checkpoint");
+            }
+            buffer.compact();
+            while (buffer.position() < n || (buffer.hasRemaining() && unread > 0)) {
+                int want = (int) Math.min(buffer.remaining(), unread);
+                if (want == 0) {
+                    break;
+                }
+                ByteBuffer slice = buffer.duplicate();
+                slice.limit(slice.position() + want);
+                int read = channel.read(slice);
+                if (read < 0) {
+                    throw new IOException("unexpected end of checkpoint");
+                }
+                buffer.position(buffer.position() + read);
+                unread -= read;
+            }
+            buffer.flip();
+        }
+    }
+}
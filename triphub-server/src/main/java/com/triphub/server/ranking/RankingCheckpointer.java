@@ -0,0 +1,247 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 榜单 checkpoint：周期性把 hot:* 榜单落到本地二进制文件，Redis 丢数据后启动时直接从文件恢复。
+ *
+ * - 写：leader 每 checkpointIntervalMillis 用 SCAN TYPE zset 枚举 hot:* 榜单（跳过临时 key 与每分钟重算的派生榜），
+ *   连同目的地/创作者统计 Hash 与衰减榜 epoch，按 RankingCheckpointFile 格式写入并原子替换；
+ * - 恢复：启动时若 hot:trip 不存在且 checkpoint 可用（文件年龄不超过 checkpointMaxAgeIntervals 个间隔），
+ *   逐 key 写入临时 key 后 RENAMENX，只填补缺失的 key，
+ *   不覆盖已有数据；TTL 按 checkpoint 时刻剩余 TTL 扣除文件年龄，写入前就跳过已过期的 key。
+ *   多个节点可能同时启动并恢复：临时 key 带上 nodeId 与本次启动时间，互不干扰，RENAMENX 只有一个节点成功。
+ *
+ * 恢复结果最多落后一个 checkpoint 间隔，之后仍由各校正任务按 DB 修正；这里只负责让榜单在秒级内重新可用。
+ * 多节点部署时 checkpoint-path 应指向共享卷，否则各节点本地文件只更新到自己最后一次担任 leader 时，
+ * 多数情况下会因过旧而跳过恢复。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RankingCheckpointer {
+
+    private static final String JOB_CHECKPOINT = "ranking_checkpoint";
+    private static final String JOB_RESTORE = "ranking_restore";
+
+    /** 单次 ZRANGE 读取 / 单条 ZADD 写入的成员数 */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /** 额外带上的非 ZSet key */
+    private static final List<String> HASH_KEYS = Arrays.asList(
+            RedisConstants.HOT_DEST_STATS_HASH, RedisConstants.HOT_CREATOR_STATS_HASH);
+    private static final List<String> STRING_KEYS = Arrays.asList(RedisConstants.HOT_TRENDING_EPOCH_KEY);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+
+    @PostConstruct
+    public void restoreIfLost() {
+        if (!hotRankingProperties.isCheckpointEnabled()) {
+            return;
+        }
+        Path file = checkpointPath();
+        try {
+            if (!Files.exists(file) || Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisConstants.HOT_TRIP_ZSET))) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            // 只有 leader 写文件，非共享路径时本地文件停在本节点上一次任期，过旧的文件宁可不恢复，交给校正任务按 DB 重建
+            long age = start - RankingCheckpointFile.readCreatedAt(file);
+            long maxAge = hotRankingProperties.getCheckpointIntervalMillis()
+                    * Math.max(hotRankingProperties.getCheckpointMaxAgeIntervals(), 1);
+            if (age > maxAge) {
+                log.warn("checkpoint 过旧, 跳过恢复, file={}, checkpointAgeMs={}, maxAgeMs={}", file, age, maxAge);
+                return;
+            }
+            String tmpSuffix = ":tmp:restore:" + jobCoordinator.getNodeId() + ":" + start;
+            AtomicLong restored = new AtomicLong();
+            long createdAt = RankingCheckpointFile.read(file, (checkpointAt, entry) -> {
+                if (restore(entry, start - checkpointAt, tmpSuffix)) {
+                    restored.incrementAndGet();
+                }
+            });
+            long duration = System.currentTimeMillis() - start;
+            metricsRecorder.recordReconciliation(JOB_RESTORE, "success", restored.get(), duration);
+            log.info("hot:trip 缺失, 已从 checkpoint 恢复榜单, keyCount={}, checkpointAgeMs={}, durationMs={}",
+                    restored.get(), start - createdAt, duration);
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_RESTORE, "error", 0L, 0L);
+            log.warn("从 checkpoint 恢复榜单失败, 等待校正任务按 DB 重建, file={}", file, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${triphub.hot-ranking.checkpoint-interval-millis:300000}",
+            initialDelayString = "${triphub.hot-ranking.checkpoint-interval-millis:300000}")
+    public void checkpoint() {
+        if (!hotRankingProperties.isCheckpointEnabled() || !jobCoordinator.tryRunAsLeader(JOB_CHECKPOINT)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Path file = checkpointPath();
+        int keys = 0;
+        try (RankingCheckpointFile.Writer writer = RankingCheckpointFile.open(file, start)) {
+            for (String key : scanRankingKeys()) {
+                Map<String, Double> scores = readZSet(key);
+                if (!scores.isEmpty()) {
+                    writer.append(RankingCheckpointFile.Entry.zset(key, ttlMillis(key), scores));
+                    keys++;
+                }
+            }
+            for (String key : HASH_KEYS) {
+                Map<Object, Object> raw = stringRedisTemplate.opsForHash().entries(key);
+                if (!raw.isEmpty()) {
+                    Map<String, String> fields = new LinkedHashMap<>();
+                    raw.forEach((f, v) -> fields.put(String.valueOf(f), String.valueOf(v)));
+                    writer.append(RankingCheckpointFile.Entry.hash(key, ttlMillis(key), fields));
+                    keys++;
+                }
+            }
+            for (String key : STRING_KEYS) {
+                String value = stringRedisTemplate.opsForValue().get(key);
+                if (value != null) {
+                    writer.append(RankingCheckpointFile.Entry.string(key, ttlMillis(key), value));
+                    keys++;
+                }
+            }
+            writer.commit();
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_CHECKPOINT, "error", keys, System.currentTimeMillis() - start);
+            log.warn("写入榜单 checkpoint 失败, 保留上一份文件, file={}", file, e);
+            return;
+        }
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_CHECKPOINT, "success", keys, duration);
+        log.debug("榜单 checkpoint 完成, file={}, keyCount={}, durationMs={}", file, keys, duration);
+    }
+
+    /**
+     * 需要落盘的 hot:* 榜单：排除重建用的临时 key，以及每分钟/每个窗口整体重算的突增榜、上升榜。
+     */
+    private List<String> scanRankingKeys() {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match("hot:*").type(DataType.ZSET).count(1000).build();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                if (key.contains(":tmp:")
+                        || key.startsWith(RedisConstants.HOT_SPIKE_ZSET)
+                        || key.startsWith(RedisConstants.HOT_TRIP_RISING_ZSET)) {
+                    continue;
+                }
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private Map<String, Double> readZSet(String key) {
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (long from = 0; ; from += CHUNK_SIZE) {
+            Set<ZSetOperations.TypedTuple<String>> chunk = stringRedisTemplate.opsForZSet()
+                    .rangeWithScores(key, from, from + CHUNK_SIZE - 1);
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            for (ZSetOperations.TypedTuple<String> t : chunk) {
+                scores.put(t.getValue(), t.getScore());
+            }
+            if (chunk.size() < CHUNK_SIZE) {
+                break;
+            }
+        }
+        return scores;
+    }
+
+    private long ttlMillis(String key) {
+        Long ttl = stringRedisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+        return ttl == null || ttl < 0 ? -1L : ttl;
+    }
+
+    /**
+     * 恢复单个 key：先写本节点独占的临时 key（带上剩余 TTL），再 RENAMENX 到线上 key，线上已有数据时放弃。
+     */
+    private boolean restore(RankingCheckpointFile.Entry entry, long ageMillis, String tmpSuffix) {
+        String key = entry.getKey();
+        long ttl = entry.getTtlMillis();
+        // checkpoint 时刻的剩余 TTL 扣除文件年龄，已过期的 key 不再写入
+        long remaining = ttl > 0 ? ttl - Math.max(ageMillis, 0L) : -1L;
+        if (ttl > 0 && remaining <= 0) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            return false;
+        }
+        String tmpKey = key + tmpSuffix;
+        stringRedisTemplate.delete(tmpKey);
+        if (entry.getType() == RankingCheckpointFile.TYPE_ZSET) {
+            writeZSet(tmpKey, entry.getScores());
+        } else if (entry.getType() == RankingCheckpointFile.TYPE_HASH) {
+            stringRedisTemplate.opsForHash().putAll(tmpKey, entry.getFields());
+        } else {
+            stringRedisTemplate.opsForValue().set(tmpKey, entry.getValue());
+        }
+        if (remaining > 0) {
+            // TTL 随 RENAMENX 一起带到线上 key
+            stringRedisTemplate.expire(tmpKey, remaining, TimeUnit.MILLISECONDS);
+        }
+        if (!Boolean.TRUE.equals(stringRedisTemplate.renameIfAbsent(tmpKey, key))) {
+            stringRedisTemplate.delete(tmpKey);
+            return false;
+        }
+        return true;
+    }
+
+    private void writeZSet(String key, Map<String, Double> scores) {
+        List<ZSetOperations.TypedTuple<String>> all = new ArrayList<>(scores.size());
+        scores.forEach((m, s) -> all.add(new DefaultTypedTuple<>(m, s)));
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (int from = 0; from < all.size(); from += CHUNK_SIZE) {
+                    int to = Math.min(from + CHUNK_SIZE, all.size());
+                    operations.opsForZSet().add(key, new HashSet<>(all.subList(from, to)));
+                }
+                return null;
+            }
+        });
+    }
+
+    private Path checkpointPath() {
+        return Paths.get(hotRankingProperties.getCheckpointPath());
+    }
+}
@@ -0,0 +1,362 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.pojo.dto.TripViewCountDTO;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.mapper.TripViewDailyMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 热门行程 / 热门目的地榜单（全量、日榜、周榜）的长度上限维护。
+ *
+ * - 裁剪：leader 每 rankingTrimIntervalMillis 对各榜单执行 ZREMRANGEBYRANK key 0 -(N+1)，只保留分数最高的 N 个，
+ *   并把保留下来的最低分写入 hot:trim:floor:{key}（TTL 与榜单一致），同时上报成员数 Gauge；
+ * - 重新进入：被裁掉的成员再次被浏览时，ZINCRBY 只会从本次增量起算。写入器发现「榜单裁剪过且成员是新加入的」时
+ *   调用 {@link #enqueueReseed} 放入本节点的待补分队列（浏览路径不查 DB），每 rankingReseedIntervalMillis
+ *   由 {@link #drainReseeds} 按 DB 中的长尾汇总（trip.view_count 或 trip_view_daily）加上尚未落库的增量补齐分数；
+ *   补齐后仍不超过裁剪水位的成员下一轮照样会被裁掉，不补分，并在一个裁剪周期内不再入队。
+ *
+ * 只有行程榜需要补分：目的地榜成员数等于城市数，正常不会触发裁剪，即使触发也由重建任务按 DB 校正。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RankingTrimmer {
+
+    private static final String JOB_RANKING_TRIM = "ranking_trim";
+    private static final String JOB_RANKING_RESEED = "ranking_reseed";
+
+    /** 待补分队列上限，超出的成员丢弃，等待重建任务按 DB 校正 */
+    private static final int MAX_PENDING_RESEEDS = 10_000;
+    /** 单次补分处理的成员数（对应一次 IN 查询） */
+    private static final int RESEED_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripMapper tripMapper;
+    private final TripViewDailyMapper tripViewDailyMapper;
+    private final HotRankingProperties hotRankingProperties;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+
+    /** 待补分成员：key|tripId -> Reentry，同一成员在一个补分周期内只处理一次 */
+    private final Map<String, Reentry> pendingReseeds = new ConcurrentHashMap<>();
+    /** 补齐后仍不超过水位的成员 -> 判定时间，一个裁剪周期内不再入队 */
+    private final Map<String, Long> belowFloor = new ConcurrentHashMap<>();
+
+    /**
+     * 一个「裁剪后重新进入」的行程榜成员；from/to 为榜单覆盖的日期区间，全量榜为 null；floor 为写入时读到的裁剪水位。
+     */
+    public static final class Reentry {
+        private final String key;
+        private final Long tripId;
+        private final LocalDate from;
+        private final LocalDate to;
+        private final double floor;
+
+        public Reentry(String key, Long tripId, LocalDate from, LocalDate to, double floor) {
+            this.key = key;
+            this.tripId = tripId;
+            this.from = from;
+            this.to = to;
+            this.floor = floor;
+        }
+
+        private String id() {
+            return key + "|" + tripId;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${triphub.hot-ranking.ranking-trim-interval-millis:60000}",
+            initialDelayString = "${triphub.hot-ranking.ranking-trim-interval-millis:60000}")
+    public void trimAll() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_RANKING_TRIM)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long removed = 0L;
+        try {
+            LocalDate today = LocalDate.now();
+            // 当前窗口上报 Gauge；前一个日/周窗口仍可能收到延迟事件，只裁剪不上报
+            removed += trimAndRecord(RedisConstants.HOT_TRIP_ZSET, "trip", "all");
+            removed += trimAndRecord(RedisConstants.HOT_DEST_ZSET, "dest", "all");
+            removed += trimAndRecord(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + HotRankingKeys.ymd(today), "trip", "day");
+            removed += trimAndRecord(RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + HotRankingKeys.ymd(today), "dest", "day");
+            removed += trimAndRecord(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(today), "trip", "week");
+            removed += trimAndRecord(RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(today), "dest", "week");
+            LocalDate yesterday = today.minusDays(1);
+            removed += trim(RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + HotRankingKeys.ymd(yesterday));
+            removed += trim(RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + HotRankingKeys.ymd(yesterday));
+            if (today.getDayOfWeek() == DayOfWeek.MONDAY) {
+                removed += trim(RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(yesterday));
+                removed += trim(RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + HotRankingKeys.yearWeek(yesterday));
+            }
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_RANKING_TRIM, "error", removed, System.currentTimeMillis() - start);
+            log.warn("裁剪热门榜单长尾失败", e);
+            return;
+        }
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_RANKING_TRIM, "success", removed, duration);
+        if (removed > 0) {
+            log.info("裁剪热门榜单长尾完成, removed={}, durationMs={}", removed, duration);
+        }
+    }
+
+    /**
+     * 把 key 裁剪到 rankingMaxSize 个成员；发生裁剪时记录保留下来的最低分作为水位。重建任务切换线上 key 后也会调用。
+     *
+     * @return 本次移除的成员数
+     */
+    public long trim(String key) {
+        return trimInternal(key)[0];
+    }
+
+    private long trimAndRecord(String key, String ranking, String period) {
+        long[] r = trimInternal(key);
+        metricsRecorder.recordRankingTrim(ranking, period, r[1], r[0]);
+        return r[0];
+    }
+
+    /**
+     * @return {移除数, 裁剪后成员数}
+     */
+    private long[] trimInternal(String key) {
+        long cap = Math.max(hotRankingProperties.getRankingMaxSize(), 1);
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                // rank 0 为最低分，只保留分数最高的 cap 个成员
+                operations.opsForZSet().removeRange(key, 0, -(cap + 1));
+                operations.opsForZSet().zCard(key);
+                return null;
+            }
+        });
+        long removed = toLong(results.isEmpty() ? null : results.get(0));
+        long size = toLong(results.size() < 2 ? null : results.get(1));
+        if (removed > 0) {
+            Set<ZSetOperations.TypedTuple<String>> lowest = stringRedisTemplate.opsForZSet().rangeWithScores(key, 0, 0);
+            if (lowest != null && !lowest.isEmpty()) {
+                Double floor = lowest.iterator().next().getScore();
+                Long ttl = stringRedisTemplate.getExpire(key, TimeUnit.SECONDS);
+                String floorKey = RedisConstants.HOT_TRIM_FLOOR_KEY_PREFIX + key;
+                String value = String.valueOf(floor == null ? 0D : floor);
+                if (ttl != null && ttl > 0) {
+                    stringRedisTemplate.opsForValue().set(floorKey, value, ttl, TimeUnit.SECONDS);
+                } else {
+                    stringRedisTemplate.opsForValue().set(floorKey, value);
+                }
+            }
+        }
+        return new long[]{removed, size};
+    }
+
+    /**
+     * 写入器在浏览路径上调用：只放入本节点内存队列，不访问 DB / Redis。
+     */
+    public void enqueueReseed(List<Reentry> reentries) {
+        if (reentries == null || reentries.isEmpty()) {
+            return;
+        }
+        for (Reentry r : reentries) {
+            String id = r.id();
+            if (belowFloor.containsKey(id) || pendingReseeds.containsKey(id)) {
+                continue;
+            }
+            if (pendingReseeds.size() >= MAX_PENDING_RESEEDS) {
+                log.debug("待补分队列已满, 丢弃重新进入榜单的行程, key={}, tripId={}", r.key, r.tripId);
+                return;
+            }
+            pendingReseeds.putIfAbsent(id, r);
+        }
+    }
+
+    /**
+     * 每个节点各自处理本节点收集到的重新进入成员。失败只记日志，等待重建任务按 DB 校正。
+     */
+    @Scheduled(fixedDelayString = "${triphub.hot-ranking.ranking-reseed-interval-millis:5000}",
+            initialDelayString = "${triphub.hot-ranking.ranking-reseed-interval-millis:5000}")
+    public void drainReseeds() {
+        long now = System.currentTimeMillis();
+        long floorTtl = Math.max(hotRankingProperties.getRankingTrimIntervalMillis(), 1L);
+        belowFloor.values().removeIf(at -> now - at >= floorTtl);
+        if (pendingReseeds.isEmpty()) {
+            return;
+        }
+        long reseeded = 0L;
+        try {
+            List<Reentry> batch = new ArrayList<>(RESEED_BATCH_SIZE);
+            for (String id : pendingReseeds.keySet()) {
+                Reentry r = pendingReseeds.remove(id);
+                if (r != null) {
+                    batch.add(r);
+                }
+                if (batch.size() >= RESEED_BATCH_SIZE) {
+                    reseeded += reseed(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                reseeded += reseed(batch);
+            }
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_RANKING_RESEED, "error", reseeded, System.currentTimeMillis() - now);
+            log.warn("补齐重新进入榜单的行程分数失败, 等待重建任务按 DB 校正", e);
+            return;
+        }
+        metricsRecorder.recordReconciliation(JOB_RANKING_RESEED, "success", reseeded, System.currentTimeMillis() - now);
+        if (reseeded > 0) {
+            log.debug("补齐裁剪后重新进入榜单的行程分数, count={}", reseeded);
+        }
+    }
+
+    /**
+     * 为裁剪后重新进入行程榜的成员补齐分数：期望分数 = DB 已落库的浏览量 + 尚未落库的增量，
+     * 期望分数超过裁剪水位时把与当前分数的差值用 ZINCRBY 补上（只补正差，期间并发写入的增量不会被覆盖）。
+     *
+     * @return 补分的成员数
+     */
+    private int reseed(List<Reentry> reentries) {
+        Map<String, List<Reentry>> byKey = new LinkedHashMap<>();
+        for (Reentry r : reentries) {
+            byKey.computeIfAbsent(r.key, k -> new ArrayList<>()).add(r);
+        }
+        LocalDate today = LocalDate.now();
+        List<Reentry> ordered = new ArrayList<>(reentries.size());
+        List<Long> stored = new ArrayList<>(reentries.size());
+        List<Boolean> withPending = new ArrayList<>(reentries.size());
+        for (List<Reentry> group : byKey.values()) {
+            Reentry first = group.get(0);
+            List<Long> ids = new ArrayList<>(group.size());
+            for (Reentry r : group) {
+                ids.add(r.tripId);
+            }
+            Map<Long, Long> views = first.from == null ? storedViewCounts(ids) : storedDailyViews(ids, first.from, first.to);
+            // 增量 Hash 只属于「今天」，不覆盖今天的窗口不叠加
+            boolean pending = first.from == null || (!today.isBefore(first.from) && !today.isAfter(first.to));
+            for (Reentry r : group) {
+                ordered.add(r);
+                stored.add(views.getOrDefault(r.tripId, 0L));
+                withPending.add(pending);
+            }
+        }
+
+        List<Object> current = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                // 未落库增量 = 落库中的 processing + 分片增量（先读 processing，与排空并发时只会少算）
+                for (Reentry r : ordered) {
+                    operations.opsForHash().get(RedisConstants.tripViewDeltaProcessingKey(r.tripId), String.valueOf(r.tripId));
+                    operations.opsForHash().get(RedisConstants.tripViewDeltaKey(r.tripId), String.valueOf(r.tripId));
+                    operations.opsForZSet().score(r.key, String.valueOf(r.tripId));
+                }
+                return null;
+            }
+        });
+
+        Map<Integer, Double> corrections = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < ordered.size() && 3 * i + 2 < current.size(); i++) {
+            Reentry r = ordered.get(i);
+            long pending = withPending.get(i) ? toLong(current.get(3 * i)) + toLong(current.get(3 * i + 1)) : 0L;
+            Object scoreObj = current.get(3 * i + 2);
+            double score = scoreObj instanceof Number ? ((Number) scoreObj).doubleValue() : 0D;
+            double expected = stored.get(i) + pending;
+            if (expected <= r.floor) {
+                // 补齐后仍会在下一轮被裁掉，不补分，避免「裁掉 → 浏览 → 补分 → 裁掉」反复查库
+                belowFloor.put(r.id(), now);
+                continue;
+            }
+            double diff = expected - score;
+            if (diff > 0) {
+                corrections.put(i, diff);
+            }
+        }
+        if (corrections.isEmpty()) {
+            return 0;
+        }
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<Integer, Double> e : corrections.entrySet()) {
+                    Reentry r = ordered.get(e.getKey());
+                    operations.opsForZSet().incrementScore(r.key, String.valueOf(r.tripId), e.getValue());
+                }
+                return null;
+            }
+        });
+        return corrections.size();
+    }
+
+    private Map<Long, Long> storedViewCounts(List<Long> ids) {
+        Map<Long, Long> views = new HashMap<>();
+        for (Trip t : tripMapper.selectViewCounts(ids)) {
+            if (t != null && t.getId() != null && t.getViewCount() != null) {
+                views.put(t.getId(), t.getViewCount().longValue());
+            }
+        }
+        return views;
+    }
+
+    private Map<Long, Long> storedDailyViews(List<Long> ids, LocalDate from, LocalDate to) {
+        Map<Long, Long> views = new HashMap<>();
+        for (TripViewCountDTO row : tripViewDailyMapper.sumTripViewsByIds(ids, from, to)) {
+            if (row != null && row.getTripId() != null && row.getViews() != null) {
+                views.put(row.getTripId(), row.getViews());
+            }
+        }
+        return views;
+    }
+
+    /**
+     * 日榜 / 周榜覆盖的日期区间：{from, to}。
+     */
+    static LocalDate[] dayWindow(LocalDate date) {
+        return new LocalDate[]{date, date};
+    }
+
+    static LocalDate[] weekWindow(LocalDate date) {
+        LocalDate monday = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return new LocalDate[]{monday, monday.plusDays(6)};
+    }
+
+    private static long toLong(Object obj) {
+        if (obj == null) {
+            return 0L;
+        }
+        if (obj instanceof Number) {
+            return ((Number) obj).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(obj));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
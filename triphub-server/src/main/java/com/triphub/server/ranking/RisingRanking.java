@@ -0,0 +1,136 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.server.cluster.JobCoordinator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上升最快行程榜（period=rising）。
+ *
+ * 绝对计数榜上新行程永远追不上老行程，这里按「加速度」排序：
+ * - 当前窗口 cur = 最近 N 个完整小时桶之和（不含未写满的当前小时），上一窗口 prev = 再往前 N 个小时桶之和
+ *   （与滑动窗口榜共用小时桶，浏览路径零额外写入）；
+ * - 原始加速度 raw = (cur - prev) / (prev + prior)，prior 抑制个位数浏览带来的暴涨；
+ * - 与上一轮结果做指数平滑 score = α·raw + (1-α)·上一轮 score，平滑整点切换窗口时的跳变；
+ * - 只保留 score > 0 的行程。
+ *
+ * leader 每分钟重算一次：结果写入临时 key 后 RENAME 覆盖 hot:trip:rising，读方不会看到半成品。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RisingRanking {
+
+    public static final String PERIOD_RISING = "rising";
+
+    private static final String JOB_RISING = "rising_rank";
+
+    private static final String CUR_KEY = RedisConstants.HOT_TRIP_RISING_ZSET + ":cur";
+    private static final String PREV_KEY = RedisConstants.HOT_TRIP_RISING_ZSET + ":prev";
+    private static final String TMP_KEY = RedisConstants.HOT_TRIP_RISING_ZSET + ":tmp";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final JobCoordinator jobCoordinator;
+
+    @Scheduled(fixedDelay = 60_000L)
+    public void refresh() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_RISING)) {
+            return;
+        }
+        try {
+            int size = rebuild();
+            log.debug("上升榜重算完成, size={}", size);
+        } catch (Exception e) {
+            log.warn("上升榜重算失败", e);
+        }
+    }
+
+    private int rebuild() {
+        int windowHours = Math.max(hotRankingProperties.getRisingWindowHours(), 1);
+        // 下标 0 是未写满的当前小时，两个窗口都只取整小时，避免 cur 少算而每到整点都出现负向偏差
+        List<String> hours = HotRankingKeys.recentHours(windowHours * 2 + 1);
+        unionBuckets(hours.subList(1, windowHours + 1), CUR_KEY);
+        unionBuckets(hours.subList(windowHours + 1, windowHours * 2 + 1), PREV_KEY);
+
+        int candidates = Math.max(hotRankingProperties.getRisingCandidates(), 1);
+        Set<ZSetOperations.TypedTuple<String>> current = stringRedisTemplate.opsForZSet()
+                .reverseRangeWithScores(CUR_KEY, 0, candidates - 1);
+        if (current == null || current.isEmpty()) {
+            stringRedisTemplate.delete(Arrays.asList(CUR_KEY, PREV_KEY, RedisConstants.HOT_TRIP_RISING_ZSET));
+            return 0;
+        }
+
+        List<ZSetOperations.TypedTuple<String>> members = new ArrayList<>(current);
+        List<Object> scores = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (ZSetOperations.TypedTuple<String> m : members) {
+                    operations.opsForZSet().score(PREV_KEY, m.getValue());
+                    operations.opsForZSet().score(RedisConstants.HOT_TRIP_RISING_ZSET, m.getValue());
+                }
+                return null;
+            }
+        });
+
+        double prior = Math.max(hotRankingProperties.getRisingPrior(), 1D);
+        double alpha = Math.min(Math.max(hotRankingProperties.getRisingSmoothing(), 0D), 1D);
+        Set<ZSetOperations.TypedTuple<String>> rising = new HashSet<>();
+        for (int i = 0; i < members.size(); i++) {
+            ZSetOperations.TypedTuple<String> m = members.get(i);
+            double cur = m.getScore() == null ? 0D : m.getScore();
+            double prev = toDouble(scores.get(i * 2));
+            double last = toDouble(scores.get(i * 2 + 1));
+            double raw = (cur - prev) / (prev + prior);
+            double score = alpha * raw + (1D - alpha) * last;
+            if (score > 0D) {
+                rising.add(new DefaultTypedTuple<>(m.getValue(), score));
+            }
+        }
+
+        stringRedisTemplate.delete(TMP_KEY);
+        if (rising.isEmpty()) {
+            stringRedisTemplate.delete(Arrays.asList(CUR_KEY, PREV_KEY, RedisConstants.HOT_TRIP_RISING_ZSET));
+            return 0;
+        }
+        stringRedisTemplate.opsForZSet().add(TMP_KEY, rising);
+        stringRedisTemplate.rename(TMP_KEY, RedisConstants.HOT_TRIP_RISING_ZSET);
+        stringRedisTemplate.expire(RedisConstants.HOT_TRIP_RISING_ZSET, RedisConstants.HOT_RISING_TTL_SECONDS, TimeUnit.SECONDS);
+        stringRedisTemplate.delete(Arrays.asList(CUR_KEY, PREV_KEY));
+        return rising.size();
+    }
+
+    /**
+     * 不存在的小时桶按空集处理；全部为空时 ZUNIONSTORE 会删除目标 key。
+     */
+    private void unionBuckets(List<String> hours, String destKey) {
+        List<String> bucketKeys = new ArrayList<>(hours.size());
+        for (String h : hours) {
+            bucketKeys.add(RedisConstants.HOT_TRIP_HOUR_ZSET_PREFIX + h);
+        }
+        stringRedisTemplate.opsForZSet()
+                .unionAndStore(bucketKeys.get(0), bucketKeys.subList(1, bucketKeys.size()), destKey);
+    }
+
+    private static double toDouble(Object v) {
+        return v instanceof Number ? ((Number) v).doubleValue() : 0D;
+    }
+}
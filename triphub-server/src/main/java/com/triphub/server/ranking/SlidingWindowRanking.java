@@ -0,0 +1,180 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 滑动窗口热榜（最近 24 小时 / 最近 7 天）。
+ *
+ * - 写：浏览路径只对当前小时桶 hot:{trip|dest}:hour:yyyyMMddHH 做一次 ZINCRBY；
+ * - 合并：按小时桶 ZUNIONSTORE 到缓存结果 key（hot:trip:last24h 等），全集群每个窗口每分钟最多合并一次（SET NX 守卫）；
+ *   结果 key 缺失而守卫被占用时短暂等待，仍缺失则在当前请求内直接合并，不返回不存在的 key；
+ * - 读：对结果 key 做一次 ZREVRANGE，与 all/day/week 榜单读法完全一致。
+ *
+ * 与日榜/周榜相比，窗口随时间平滑滑动，不会在 00:00 / 周一清零。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlidingWindowRanking {
+
+    public static final String WINDOW_24H = "24h";
+    public static final String WINDOW_7D = "7d";
+
+    private static final String TYPE_TRIP = "trip";
+    private static final String TYPE_DEST = "dest";
+
+    /** 结果 key 缺失且守卫被占用时，等待其他合并方的次数与间隔 */
+    private static final int FRESH_WAIT_ATTEMPTS = 3;
+    private static final long FRESH_WAIT_MILLIS = 50L;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 是否为滑动窗口周期（24h / 7d）。
+     */
+    public static boolean isSlidingWindow(String period) {
+        String p = normalize(period);
+        return WINDOW_24H.equals(p) || WINDOW_7D.equals(p);
+    }
+
+    /**
+     * 热门行程滑动窗口的结果 key；结果 key 不存在时（冷启动/刚过期）在当前请求内同步合并一次。
+     */
+    public String tripWindowKey(String period) {
+        return ensureFresh(TYPE_TRIP, normalize(period));
+    }
+
+    /**
+     * 热门目的地滑动窗口的结果 key。
+     */
+    public String destWindowKey(String period) {
+        return ensureFresh(TYPE_DEST, normalize(period));
+    }
+
+    /**
+     * 热门目的地「上一个窗口」的结果 key：24h 对应前一个 24 小时（第 24~47 小时桶）；
+     * 7d 的上一窗口已超出小时桶 TTL，返回 null。
+     */
+    public String destPreviousWindowKey(String period) {
+        String window = normalize(period);
+        if (!WINDOW_24H.equals(window)) {
+            return null;
+        }
+        ensureFresh(TYPE_DEST, window);
+        String previousKey = previousResultKey(TYPE_DEST);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(previousKey))) {
+            merge(TYPE_DEST, window);
+        }
+        return previousKey;
+    }
+
+    /**
+     * 每分钟后台刷新一次全部窗口，读路径通常直接命中已合并好的结果 key。
+     */
+    @Scheduled(fixedDelay = 60_000L)
+    public void refreshAll() {
+        for (String type : new String[]{TYPE_TRIP, TYPE_DEST}) {
+            for (String window : new String[]{WINDOW_24H, WINDOW_7D}) {
+                try {
+                    refreshIfDue(type, window);
+                } catch (Exception e) {
+                    log.warn("滑动窗口热榜合并失败, type={}, window={}", type, window, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 结果 key 不存在时：抢到守卫则直接合并；守卫被其他节点/请求持有（可能正在合并，也可能本分钟已合并过但 key 已过期）
+     * 时短暂等待对方的结果，仍不存在就在当前请求内自行合并。ZUNIONSTORE 整体覆盖写，重复合并只是多一次计算。
+     */
+    private String ensureFresh(String type, String window) {
+        String resultKey = resultKey(type, window);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(resultKey)) || refreshIfDue(type, window)) {
+            return resultKey;
+        }
+        for (int i = 0; i < FRESH_WAIT_ATTEMPTS; i++) {
+            try {
+                Thread.sleep(FRESH_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(resultKey))) {
+                return resultKey;
+            }
+        }
+        merge(type, window);
+        return resultKey;
+    }
+
+    /**
+     * 抢到本分钟的刷新守卫才执行合并，保证多实例/多请求下每个窗口每分钟最多一次后台 ZUNIONSTORE。
+     *
+     * @return 本次是否执行了合并
+     */
+    private boolean refreshIfDue(String type, String window) {
+        String guardKey = RedisConstants.HOT_WINDOW_REFRESH_GUARD_PREFIX + type + ":" + window;
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(
+                guardKey, "1", RedisConstants.HOT_WINDOW_REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            return false;
+        }
+        merge(type, window);
+        return true;
+    }
+
+    private void merge(String type, String window) {
+        int hours = WINDOW_7D.equals(window) ? 24 * 7 : 24;
+        String bucketPrefix = TYPE_TRIP.equals(type)
+                ? RedisConstants.HOT_TRIP_HOUR_ZSET_PREFIX
+                : RedisConstants.HOT_DEST_HOUR_ZSET_PREFIX;
+        List<String> bucketKeys = new ArrayList<>(hours);
+        for (String h : HotRankingKeys.recentHours(hours)) {
+            bucketKeys.add(bucketPrefix + h);
+        }
+        String resultKey = resultKey(type, window);
+        // ZUNIONSTORE 覆盖写目标 key 本身是原子的，读方不会看到半成品；不存在的小时桶按空集处理
+        Long size = stringRedisTemplate.opsForZSet()
+                .unionAndStore(bucketKeys.get(0), bucketKeys.subList(1, bucketKeys.size()), resultKey);
+        // 结果 key 给一个略长于刷新间隔的 TTL：合并任务停摆时自动失效，读路径会回退到同步合并
+        stringRedisTemplate.expire(resultKey, RedisConstants.HOT_WINDOW_RESULT_TTL_SECONDS, TimeUnit.SECONDS);
+        log.debug("滑动窗口热榜合并完成, key={}, buckets={}, size={}", resultKey, hours, size);
+
+        if (WINDOW_24H.equals(window)) {
+            // 同时合并前一个 24 小时，供「较上一窗口变化」使用
+            List<String> previousKeys = new ArrayList<>(24);
+            for (String h : HotRankingKeys.recentHours(48).subList(24, 48)) {
+                previousKeys.add(bucketPrefix + h);
+            }
+            String previousKey = previousResultKey(type);
+            stringRedisTemplate.opsForZSet()
+                    .unionAndStore(previousKeys.get(0), previousKeys.subList(1, previousKeys.size()), previousKey);
+            stringRedisTemplate.expire(previousKey, RedisConstants.HOT_WINDOW_RESULT_TTL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static String resultKey(String type, String window) {
+        String base = TYPE_TRIP.equals(type) ? RedisConstants.HOT_TRIP_ZSET : RedisConstants.HOT_DEST_ZSET;
+        return base + ":last" + window;
+    }
+
+    private static String previousResultKey(String type) {
+        String base = TYPE_TRIP.equals(type) ? RedisConstants.HOT_TRIP_ZSET : RedisConstants.HOT_DEST_ZSET;
+        return base + ":prev" + WINDOW_24H;
+    }
+
+    private static String normalize(String period) {
+        return period == null ? "" : period.trim().toLowerCase(Locale.ROOT);
+    }
+}
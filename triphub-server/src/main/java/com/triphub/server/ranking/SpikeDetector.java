@@ -0,0 +1,167 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行程浏览突增检测（秒级）。
+ *
+ * - 浏览路径只对本节点当前窗口的 HeavyHitterSketch 做一次无锁计数，不访问 Redis；
+ * - 每个窗口结束时切换草图，等仍持有旧草图的写入完成后取刚结束窗口的 Top K，与上一窗口的估计值做差，增量达到阈值的写入 hot:spike:node:{nodeId}；
+ * - leader 把所有存活节点的结果 ZUNIONSTORE 到 hot:spike，发现页接口与运维指标都读这个 key。
+ *
+ * 节点 key 与合并结果都只保留几个窗口，节点下线后其数据自然过期。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SpikeDetector {
+
+    private static final String JOB_SPIKE_MERGE = "spike_merge";
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+    private static final int SKETCH_STRIPES = 8;
+
+    /** 运维指标暴露的名次数 */
+    private static final int METRIC_TOP_N = 5;
+
+    /** 结果 key 保留的窗口数 */
+    private static final int RETAIN_WINDOWS = 3;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+
+    private volatile HeavyHitterSketch current;
+    private volatile HeavyHitterSketch previous;
+
+    /**
+     * 记录一次公开行程的有效浏览。
+     */
+    public void record(Long tripId) {
+        if (tripId == null) {
+            return;
+        }
+        long item = tripId;
+        while (true) {
+            HeavyHitterSketch sketch = current;
+            if (sketch == null) {
+                sketch = initSketch();
+            }
+            sketch.enter(item);
+            try {
+                // 登记后确认仍是当前窗口；已被 rotate 换下则改写新窗口，保证导出后的草图不再被写入
+                if (sketch == current) {
+                    sketch.add(item);
+                    return;
+                }
+            } finally {
+                sketch.exit(item);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${triphub.hot-ranking.spike-window-millis:10000}")
+    public void rotate() {
+        HeavyHitterSketch finished = current;
+        current = newSketch();
+        HeavyHitterSketch baseline = previous;
+        previous = finished;
+        if (finished == null) {
+            return;
+        }
+        finished.awaitWriters();
+
+        List<ZSetOperations.TypedTuple<String>> spikes = new ArrayList<>();
+        for (long[] e : finished.topK()) {
+            long delta = e[1] - (baseline == null ? 0L : baseline.estimate(e[0]));
+            if (delta >= hotRankingProperties.getSpikeMinDelta()) {
+                spikes.add(new DefaultTypedTuple<>(String.valueOf(e[0]), (double) delta));
+            }
+        }
+        spikes.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        for (int i = 0; i < METRIC_TOP_N; i++) {
+            ZSetOperations.TypedTuple<String> t = i < spikes.size() ? spikes.get(i) : null;
+            metricsRecorder.recordSpikeTop(i + 1,
+                    t == null ? 0L : Long.parseLong(t.getValue()),
+                    t == null ? 0L : t.getScore().longValue());
+        }
+
+        try {
+            exportNode(spikes);
+            if (jobCoordinator.tryRunAsLeader(JOB_SPIKE_MERGE)) {
+                mergeNodes();
+            }
+        } catch (Exception e) {
+            log.warn("突增行程导出/合并失败", e);
+        }
+    }
+
+    private void exportNode(List<ZSetOperations.TypedTuple<String>> spikes) {
+        String nodeKey = RedisConstants.HOT_SPIKE_NODE_ZSET_PREFIX + jobCoordinator.getNodeId();
+        Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>(spikes);
+        long ttlMillis = retainMillis();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.delete(nodeKey);
+                if (!tuples.isEmpty()) {
+                    operations.opsForZSet().add(nodeKey, tuples);
+                    operations.expire(nodeKey, ttlMillis, TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+        });
+    }
+
+    private void mergeNodes() {
+        List<String> nodeKeys = new ArrayList<>();
+        for (String node : jobCoordinator.liveNodes()) {
+            nodeKeys.add(RedisConstants.HOT_SPIKE_NODE_ZSET_PREFIX + node);
+        }
+        if (nodeKeys.isEmpty()) {
+            nodeKeys.add(RedisConstants.HOT_SPIKE_NODE_ZSET_PREFIX + jobCoordinator.getNodeId());
+        }
+        // 不存在的节点 key 按空集处理；结果为空时 ZUNIONSTORE 会删除目标 key
+        stringRedisTemplate.opsForZSet()
+                .unionAndStore(nodeKeys.get(0), nodeKeys.subList(1, nodeKeys.size()), RedisConstants.HOT_SPIKE_ZSET);
+        stringRedisTemplate.expire(RedisConstants.HOT_SPIKE_ZSET, retainMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized HeavyHitterSketch initSketch() {
+        if (current == null) {
+            current = newSketch();
+        }
+        return current;
+    }
+
+    private HeavyHitterSketch newSketch() {
+        return new HeavyHitterSketch(SKETCH_DEPTH, SKETCH_WIDTH,
+                Math.max(hotRankingProperties.getSpikeTopK(), 1), SKETCH_STRIPES);
+    }
+
+    private long retainMillis() {
+        return hotRankingProperties.getSpikeWindowMillis() * RETAIN_WINDOWS;
+    }
+}
@@ -0,0 +1,136 @@
+package com.triphub.server.ranking;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.HotRankingProperties;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 时间衰减热榜（period=trending）维护组件。
+ *
+ * 思路（指数衰减的「前向」写法）：
+ * - 每次浏览不是 +1，而是 + e^(λ·(now - epoch))，越新的浏览权重越大；
+ * - 任意时刻按分数排序，等价于所有浏览按 e^(-λ·age) 衰减后求和排序，但无需定时给全量成员打折；
+ * - 权重随时间指数增长，定时「重新归一化」：把全表乘以 e^(-λ·(now - epoch)) 并把 epoch 前移到 now，防止溢出/精度丢失。
+ *
+ * 写入与归一化都放在 Lua 里执行，保证「读 epoch + 算权重 + ZINCRBY」与「整体缩放 + 改 epoch」互斥，不会出现用旧 epoch 计算权重的情况。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingScoreUpdater {
+
+    private static final String JOB_TRENDING_RENORMALIZE = "trending_renormalize";
+
+    /**
+     * KEYS: [tripZset, destZset, epochKey]
+     * ARGV: [tripId, destCity('' 表示无), viewSeconds, lambdaPerSecond, count]
+     */
+    private static final DefaultRedisScript<String> INCR_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = tonumber(redis.call('GET', KEYS[3])); " +
+                    "if not epoch then epoch = tonumber(ARGV[3]); redis.call('SET', KEYS[3], ARGV[3]); end; " +
+                    "local w = math.exp(tonumber(ARGV[4]) * (tonumber(ARGV[3]) - epoch)) * tonumber(ARGV[5]); " +
+                    "redis.call('ZINCRBY', KEYS[1], tostring(w), ARGV[1]); " +
+                    "if ARGV[2] ~= '' then redis.call('ZINCRBY', KEYS[2], tostring(w), ARGV[2]); end; " +
+                    "return tostring(w);",
+            String.class
+    );
+
+    /**
+     * KEYS: [tripZset, destZset, epochKey]
+     * ARGV: [nowSeconds, lambdaPerSecond, minScore]
+     * 用 ZUNIONSTORE 单 key + WEIGHTS 在服务端完成整体缩放，再清理衰减到阈值以下的长尾成员。
+     */
+    private static final DefaultRedisScript<Long> RENORMALIZE_SCRIPT = new DefaultRedisScript<>(
+            "local epoch = tonumber(redis.call('GET', KEYS[3])); " +
+                    "if not epoch then return 0; end; " +
+                    "local factor = math.exp(-tonumber(ARGV[2]) * (tonumber(ARGV[1]) - epoch)); " +
+                    "for i = 1, 2 do " +
+                    "  if redis.call('EXISTS', KEYS[i]) == 1 then " +
+                    "    redis.call('ZUNIONSTORE', KEYS[i], 1, KEYS[i], 'WEIGHTS', tostring(factor)); " +
+                    "    redis.call('ZREMRANGEBYSCORE', KEYS[i], '-inf', '(' .. ARGV[3]); " +
+                    "  end; " +
+                    "end; " +
+                    "redis.call('SET', KEYS[3], ARGV[1]); " +
+                    "return 1;",
+            Long.class
+    );
+
+    private static final List<String> KEYS = Arrays.asList(
+            RedisConstants.HOT_TRIP_TRENDING_ZSET,
+            RedisConstants.HOT_DEST_TRENDING_ZSET,
+            RedisConstants.HOT_TRENDING_EPOCH_KEY
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final HotRankingProperties hotRankingProperties;
+    private final MetricsRecorder metricsRecorder;
+    private final JobCoordinator jobCoordinator;
+
+    /**
+     * 记录（公开行程的）有效浏览，一次 Lua 调用同时更新行程与目的地的衰减榜。
+     * 同一行程在 viewSeconds 附近的 count 次浏览合并为一次调用；权重按浏览发生时间而不是处理时间计算，
+     * 延迟消费的事件不会被高估。
+     */
+    public void record(Long tripId, String destCity, long count, long viewSeconds) {
+        if (tripId == null || count <= 0) {
+            return;
+        }
+        stringRedisTemplate.execute(
+                INCR_SCRIPT,
+                KEYS,
+                String.valueOf(tripId),
+                destCity == null ? "" : destCity,
+                String.valueOf(viewSeconds),
+                String.valueOf(lambdaPerSecond()),
+                String.valueOf(count)
+        );
+        metricsRecorder.recordHotRankingUpdate("trending", count);
+    }
+
+    /**
+     * 每天凌晨重新归一化一次：半衰期 24h 时，单日内权重最多涨到 2 倍，远离 double 精度边界。
+     */
+    @Scheduled(cron = "0 30 4 * * ?")
+    public void renormalize() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_TRENDING_RENORMALIZE)) {
+            return;
+        }
+        try {
+            Long res = stringRedisTemplate.execute(
+                    RENORMALIZE_SCRIPT,
+                    KEYS,
+                    String.valueOf(nowSeconds()),
+                    String.valueOf(lambdaPerSecond()),
+                    String.valueOf(hotRankingProperties.getTrendingMinScore())
+            );
+            log.info("时间衰减热榜归一化完成, result={}", res);
+        } catch (Exception e) {
+            log.warn("时间衰减热榜归一化失败", e);
+        }
+    }
+
+    /**
+     * λ = ln2 / 半衰期（秒）。
+     */
+    private double lambdaPerSecond() {
+        double halfLifeHours = hotRankingProperties.getTrendingHalfLifeHours();
+        if (halfLifeHours <= 0) {
+            halfLifeHours = 24D;
+        }
+        return Math.log(2) / (halfLifeHours * 3600D);
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000L;
+    }
+}
@@ -0,0 +1,120 @@
+package com.triphub.server.ranking;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.pojo.vo.TripRankVO;
+import com.triphub.server.mapper.TripMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 行程名次查询：一批行程在 全站 all/day/week 与 目的地城市内 all/day/week 榜单中的名次和分数。
+ *
+ * 所有 (行程, 榜单) 组合的 ZREVRANK + ZSCORE 放进一次 pipeline，不需要拉取整个榜单；
+ * 未上榜（或私有行程）的组合不返回。
+ */
+@Component
+@RequiredArgsConstructor
+public class TripRankLookup {
+
+    private static final String SCOPE_CITY = "city";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripMapper tripMapper;
+
+    /**
+     * 按 tripId 查询（只读取 id / 目的地 / 可见性三列）。
+     */
+    public Map<Long, List<TripRankVO>> lookupByIds(List<Long> tripIds) {
+        if (tripIds == null || tripIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Trip> trips = tripMapper.selectList(new LambdaQueryWrapper<Trip>()
+                .select(Trip::getId, Trip::getDestinationCity, Trip::getVisibility)
+                .in(Trip::getId, tripIds));
+        return lookup(trips);
+    }
+
+    /**
+     * @return tripId -> 已上榜的名次列表（按 all/day/week/city/city_day/city_week 顺序）
+     */
+    public Map<Long, List<TripRankVO>> lookup(List<Trip> trips) {
+        if (trips == null || trips.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String ymd = HotRankingKeys.todayYmd();
+        String yearWeek = HotRankingKeys.currentYearWeek();
+
+        List<TripRankVO> probes = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (Trip trip : trips) {
+            if (trip == null || trip.getId() == null) {
+                continue;
+            }
+            Integer visibility = trip.getVisibility();
+            if (visibility != null && visibility != 2) {
+                continue;
+            }
+            addProbe(probes, keys, trip.getId(), "all", null, RedisConstants.HOT_TRIP_ZSET);
+            addProbe(probes, keys, trip.getId(), "day", null, RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + ymd);
+            addProbe(probes, keys, trip.getId(), "week", null, RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + yearWeek);
+            String city = trip.getDestinationCity();
+            if (city != null && !city.isEmpty()) {
+                addProbe(probes, keys, trip.getId(), SCOPE_CITY, city, RedisConstants.hotTripCityKey(city));
+                addProbe(probes, keys, trip.getId(), SCOPE_CITY + "_day", city, RedisConstants.hotTripCityDayKey(city, ymd));
+                addProbe(probes, keys, trip.getId(), SCOPE_CITY + "_week", city, RedisConstants.hotTripCityWeekKey(city, yearWeek));
+            }
+        }
+        if (probes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (int i = 0; i < probes.size(); i++) {
+                    String member = String.valueOf(probes.get(i).getTripId());
+                    operations.opsForZSet().reverseRank(keys.get(i), member);
+                    operations.opsForZSet().score(keys.get(i), member);
+                }
+                return null;
+            }
+        });
+
+        Map<Long, List<TripRankVO>> ranks = new LinkedHashMap<>();
+        for (int i = 0; i < probes.size(); i++) {
+            Object rank = results.get(i * 2);
+            Object score = results.get(i * 2 + 1);
+            if (!(rank instanceof Number)) {
+                continue;
+            }
+            TripRankVO vo = probes.get(i);
+            vo.setRank(((Number) rank).longValue() + 1);
+            vo.setScore(score instanceof Number ? ((Number) score).doubleValue() : null);
+            ranks.computeIfAbsent(vo.getTripId(), k -> new ArrayList<>()).add(vo);
+        }
+        return ranks;
+    }
+
+    private static void addProbe(List<TripRankVO> probes, List<String> keys,
+                                 Long tripId, String scope, String city, String key) {
+        TripRankVO vo = new TripRankVO();
+        vo.setTripId(tripId);
+        vo.setScope(scope);
+        vo.setCity(city);
+        probes.add(vo);
+        keys.add(key);
+    }
+}
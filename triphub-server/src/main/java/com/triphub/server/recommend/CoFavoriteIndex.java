@@ -0,0 +1,200 @@
+package com.triphub.server.recommend;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.pojo.entity.TripFavorite;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripFavoriteMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行程间的共同收藏相似度（item-to-item）：rec:cofav:{tripId} 是一个 ZSet，member 为相似行程 id，score 为余弦相似度。
+ *
+ * - 计算：leader 定时执行，每轮只负责一个分区（INCR rec:cursor:cofav 后对分区数取模），
+ *   按 user_id 顺序流式遍历 trip_favorite，把同一用户的收藏作为一个收藏篮喂给 {@link CoFavoriteMatrix}，
+ *   堆里只保存本分区行程的行，分区数 × 执行间隔即为全量刷新周期；
+ * - 写入：每个行程的 Top K 先写临时 key 再 RENAME，TTL 为两个刷新周期，行程不再有共同收藏时自然过期；
+ * - 读取：推荐时以用户最近收藏的行程为种子，一次 pipeline 取各种子的前 N 个相似行程，相似度累加后排序。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CoFavoriteIndex {
+
+    private static final String JOB_COFAV_INDEX = "cofav_index";
+
+    /** 一次 pipeline 写入的行程数 */
+    private static final int WRITE_CHUNK_SIZE = 200;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripFavoriteMapper tripFavoriteMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+    private final RecommendProperties recommendProperties;
+
+    @Scheduled(fixedDelayString = "${triphub.recommend.cofav-interval-millis:3600000}",
+            initialDelayString = "${triphub.recommend.cofav-interval-millis:3600000}")
+    public void refreshNextPartition() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_COFAV_INDEX)) {
+            return;
+        }
+        int partitions = Math.max(recommendProperties.getCofavPartitions(), 1);
+        Long cursor = stringRedisTemplate.opsForValue().increment(RedisConstants.REC_COFAV_CURSOR_KEY);
+        int partition = (int) Math.floorMod(cursor == null ? 0L : cursor - 1, (long) partitions);
+
+        long start = System.currentTimeMillis();
+        CoFavoriteMatrix matrix = new CoFavoriteMatrix(partitions, partition,
+                recommendProperties.getCofavMaxBasket(), recommendProperties.getCofavMaxCells());
+        long written;
+        try {
+            transactionTemplate.executeWithoutResult(status -> streamBasketsInto(matrix));
+            written = writeTopK(matrix, partitions);
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_COFAV_INDEX, "error", 0L, System.currentTimeMillis() - start);
+            log.warn("计算共同收藏相似行程失败, partition={}", partition, e);
+            return;
+        }
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_COFAV_INDEX, "success", written, duration);
+        log.info("共同收藏相似行程已刷新, partition={}/{}, rows={}, cells={}, pruneFloor={}, durationMs={}",
+                partition, partitions, written, matrix.cells(), matrix.pruneFloor(), duration);
+    }
+
+    /**
+     * 以种子行程召回相似行程：每个种子取前 perSeed 个，相似度累加，排除种子本身，按累加值降序取前 limit 个。
+     */
+    public Map<Long, Double> similarTo(Collection<Long> seeds, int perSeed, int limit) {
+        if (seeds == null || seeds.isEmpty() || perSeed <= 0 || limit <= 0) {
+            return Map.of();
+        }
+        List<Long> seedList = new ArrayList<>(new HashSet<>(seeds));
+        seedList.remove(null);
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Long seed : seedList) {
+                    operations.opsForZSet().reverseRangeWithScores(RedisConstants.REC_COFAV_ZSET_PREFIX + seed, 0, perSeed - 1);
+                }
+                return null;
+            }
+        });
+
+        Set<Long> excluded = new HashSet<>(seedList);
+        Map<Long, Double> sums = new LinkedHashMap<>();
+        for (Object raw : results) {
+            if (!(raw instanceof Collection)) {
+                continue;
+            }
+            for (Object o : (Collection<?>) raw) {
+                if (!(o instanceof ZSetOperations.TypedTuple)) {
+                    continue;
+                }
+                ZSetOperations.TypedTuple<?> tuple = (ZSetOperations.TypedTuple<?>) o;
+                try {
+                    Long id = Long.valueOf(String.valueOf(tuple.getValue()));
+                    if (!excluded.contains(id)) {
+                        sums.merge(id, tuple.getScore() == null ? 0D : tuple.getScore(), Double::sum);
+                    }
+                } catch (NumberFormatException ignore) {
+                    // 非法 member 跳过
+                }
+            }
+        }
+        Map<Long, Double> top = new LinkedHashMap<>();
+        sums.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+        return top;
+    }
+
+    private void streamBasketsInto(CoFavoriteMatrix matrix) {
+        // 收藏篮只需保留 maxBasket 个，多出的部分不参与配对
+        long[] basket = new long[Math.max(recommendProperties.getCofavMaxBasket(), 2)];
+        int size = 0;
+        Long currentUser = null;
+        try (Cursor<TripFavorite> cursor = tripFavoriteMapper.streamAllOrderByUser()) {
+            for (TripFavorite favorite : cursor) {
+                if (favorite == null || favorite.getUserId() == null || favorite.getTripId() == null) {
+                    continue;
+                }
+                if (!favorite.getUserId().equals(currentUser)) {
+                    matrix.addBasket(basket, size);
+                    currentUser = favorite.getUserId();
+                    size = 0;
+                }
+                if (size < basket.length) {
+                    basket[size++] = favorite.getTripId();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("关闭收藏流式游标失败", e);
+        }
+        matrix.addBasket(basket, size);
+    }
+
+    private long writeTopK(CoFavoriteMatrix matrix, int partitions) {
+        long ttlMillis = partitions * Math.max(recommendProperties.getCofavIntervalMillis(), 1L) * 2;
+        long[] written = {0L};
+        Map<Long, List<CoFavoriteMatrix.Neighbor>> buffer = new LinkedHashMap<>();
+        matrix.forEachTopK(recommendProperties.getCofavTopK(), recommendProperties.getCofavMinCoCount(), (tripId, neighbors) -> {
+            buffer.put(tripId, neighbors);
+            if (buffer.size() >= WRITE_CHUNK_SIZE) {
+                written[0] += flush(buffer, ttlMillis);
+            }
+        });
+        return written[0] + flush(buffer, ttlMillis);
+    }
+
+    private int flush(Map<Long, List<CoFavoriteMatrix.Neighbor>> buffer, long ttlMillis) {
+        if (buffer.isEmpty()) {
+            return 0;
+        }
+        String suffix = ":tmp:" + jobCoordinator.getNodeId();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<Long, List<CoFavoriteMatrix.Neighbor>> e : buffer.entrySet()) {
+                    String key = RedisConstants.REC_COFAV_ZSET_PREFIX + e.getKey();
+                    String tmpKey = key + suffix;
+                    Set<ZSetOperations.TypedTuple<String>> tuples = new HashSet<>();
+                    for (CoFavoriteMatrix.Neighbor n : e.getValue()) {
+                        tuples.add(ZSetOperations.TypedTuple.of(String.valueOf(n.getTripId()), n.getScore()));
+                    }
+                    operations.delete(tmpKey);
+                    operations.opsForZSet().add(tmpKey, tuples);
+                    operations.rename(tmpKey, key);
+                    operations.expire(key, ttlMillis, TimeUnit.MILLISECONDS);
+                }
+                return null;
+            }
+        });
+        int n = buffer.size();
+        buffer.clear();
+        return n;
+    }
+}
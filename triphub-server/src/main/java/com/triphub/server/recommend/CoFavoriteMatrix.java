@@ -0,0 +1,178 @@
+package com.triphub.server.recommend;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * 单个分区的行程共现（co-favorite）稀疏矩阵：只为 tripId mod partitions == partition 的行程保存一行，
+ * 每行是 {共同收藏的行程 -> 共同收藏人数} 的 {@link LongIntOpenHashMap}；所有行程的收藏人数另存一份用于归一化。
+ *
+ * 堆占用约束：
+ * - 每个用户的收藏篮最多取 maxBasket 个，抑制重度用户带来的 O(n²) 配对；
+ * - 非零单元格数超过 maxCells 时，逐级抬高计数下限删除低频单元格，直到不超过 maxCells 的一半。
+ *   被删除的配对之后若再次出现会从 1 重新计数，只会让长尾相似度略偏低，不影响头部结果。
+ *
+ * 相似度为余弦：co(a, b) / sqrt(n(a) × n(b))。非线程安全。
+ */
+public final class CoFavoriteMatrix {
+
+    private final int partitions;
+    private final int partition;
+    private final int maxBasket;
+    private final long maxCells;
+
+    /** tripId -> 行下标 */
+    private final LongIntOpenHashMap rowIndex = new LongIntOpenHashMap(1024);
+    private final List<LongIntOpenHashMap> rows = new ArrayList<>();
+    private final List<Long> rowTrips = new ArrayList<>();
+    /** tripId -> 收藏人数（截断后的收藏篮口径） */
+    private final LongIntOpenHashMap favoriteCounts = new LongIntOpenHashMap(1024);
+
+    private long cells;
+    private int pruneFloor;
+
+    /**
+     * 一个相似行程。
+     */
+    public static final class Neighbor {
+        private final long tripId;
+        private final int coCount;
+        private final double score;
+
+        Neighbor(long tripId, int coCount, double score) {
+            this.tripId = tripId;
+            this.coCount = coCount;
+            this.score = score;
+        }
+
+        public long getTripId() {
+            return tripId;
+        }
+
+        public int getCoCount() {
+            return coCount;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    /**
+     * 遍历回调：行程及其按相似度降序排列的 Top K。
+     */
+    @FunctionalInterface
+    public interface TopKConsumer {
+        void accept(long tripId, List<Neighbor> neighbors);
+    }
+
+    public CoFavoriteMatrix(int partitions, int partition, int maxBasket, long maxCells) {
+        this.partitions = Math.max(partitions, 1);
+        this.partition = partition;
+        this.maxBasket = Math.max(maxBasket, 2);
+        this.maxCells = Math.max(maxCells, 1L);
+    }
+
+    public boolean owns(long tripId) {
+        return Math.floorMod(tripId, partitions) == partition;
+    }
+
+    /**
+     * 累加一个用户的收藏篮（同一用户的全部收藏，size 个有效元素）。
+     */
+    public void addBasket(long[] trips, int size) {
+        int n = Math.min(size, maxBasket);
+        for (int i = 0; i < n; i++) {
+            favoriteCounts.addTo(trips[i], 1);
+        }
+        if (n < 2) {
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            long a = trips[i];
+            if (!owns(a)) {
+                continue;
+            }
+            LongIntOpenHashMap row = rowFor(a);
+            for (int j = 0; j < n; j++) {
+                if (j != i && row.addTo(trips[j], 1) == 1) {
+                    cells++;
+                }
+            }
+        }
+        if (cells > maxCells) {
+            prune();
+        }
+    }
+
+    public long cells() {
+        return cells;
+    }
+
+    public int rowCount() {
+        return rows.size();
+    }
+
+    /**
+     * 当前删除低频单元格使用的计数下限（0 表示从未裁剪）。
+     */
+    public int pruneFloor() {
+        return pruneFloor;
+    }
+
+    /**
+     * 对每一行计算 Top K（只考虑共同收藏人数 ≥ minCoCount 的配对），按相似度降序回调。
+     */
+    public void forEachTopK(int k, int minCoCount, TopKConsumer consumer) {
+        int limit = Math.max(k, 1);
+        for (int r = 0; r < rows.size(); r++) {
+            long a = rowTrips.get(r);
+            double na = favoriteCounts.get(a);
+            PriorityQueue<Neighbor> heap = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Neighbor::getScore));
+            rows.get(r).forEach((b, co) -> {
+                if (co < minCoCount) {
+                    return;
+                }
+                double nb = favoriteCounts.get(b);
+                double score = na <= 0 || nb <= 0 ? 0D : co / Math.sqrt(na * nb);
+                if (heap.size() < limit) {
+                    heap.add(new Neighbor(b, co, score));
+                } else if (score > heap.peek().getScore()) {
+                    heap.poll();
+                    heap.add(new Neighbor(b, co, score));
+                }
+            });
+            if (heap.isEmpty()) {
+                continue;
+            }
+            List<Neighbor> top = new ArrayList<>(heap);
+            top.sort(Comparator.comparingDouble(Neighbor::getScore).reversed());
+            consumer.accept(a, top);
+        }
+    }
+
+    private LongIntOpenHashMap rowFor(long tripId) {
+        // 行下标 +1 存储，0 表示不存在
+        int idx = rowIndex.get(tripId);
+        if (idx > 0) {
+            return rows.get(idx - 1);
+        }
+        LongIntOpenHashMap row = new LongIntOpenHashMap();
+        rows.add(row);
+        rowTrips.add(tripId);
+        rowIndex.addTo(tripId, rows.size());
+        return row;
+    }
+
+    private void prune() {
+        // 每轮删除计数 ≤ pruneFloor 的单元格；计数有限，最终必然收敛
+        while (cells > maxCells / 2) {
+            pruneFloor++;
+            for (LongIntOpenHashMap row : rows) {
+                cells -= row.removeBelow(pruneFloor + 1);
+            }
+        }
+    }
+}
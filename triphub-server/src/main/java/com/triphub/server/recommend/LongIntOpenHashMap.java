@@ -0,0 +1,207 @@
+package com.triphub.server.recommend;
+
+import java.util.Arrays;
+
+/**
+ * long -> int 的开放寻址哈希表（线性探测，容量为 2 的幂，负载因子 0.75），专供共现计数使用。
+ *
+ * 与 HashMap&lt;Long, Integer&gt; 相比每个条目只占 12 字节左右、不产生装箱对象，
+ * 千万级计数时堆占用与 GC 压力都可控。key 0 用单独的槽位保存，数组中 0 表示空位。
+ * 非线程安全。
+ */
+public final class LongIntOpenHashMap {
+
+    private static final float LOAD_FACTOR = 0.75F;
+    private static final int MIN_CAPACITY = 4;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    /**
+     * 遍历回调。
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(long key, int value);
+    }
+
+    public LongIntOpenHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongIntOpenHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * 累加 key 的值（不存在时视为 0），返回累加后的值。
+     */
+    public int addTo(long key, int delta) {
+        if (key == 0L) {
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue += delta;
+            return zeroValue;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return delta;
+    }
+
+    /**
+     * key 不存在时返回 0。
+     */
+    public int get(long key) {
+        if (key == 0L) {
+            return hasZeroKey ? zeroValue : 0;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0L) {
+            return hasZeroKey;
+        }
+        int slot = slot(key);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (hasZeroKey) {
+            consumer.accept(0L, zeroValue);
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0L) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    /**
+     * 删除值小于 minValue 的条目并按剩余条目数收缩容量，返回删除的条目数。
+     */
+    public int removeBelow(int minValue) {
+        int before = size;
+        if (hasZeroKey && zeroValue < minValue) {
+            hasZeroKey = false;
+            zeroValue = 0;
+            size--;
+        }
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int kept = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L && oldValues[i] >= minValue) {
+                kept++;
+            }
+        }
+        allocate(capacityFor(kept));
+        size = hasZeroKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L && oldValues[i] >= minValue) {
+                insertFresh(oldKeys[i], oldValues[i]);
+            }
+        }
+        return before - size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0);
+        hasZeroKey = false;
+        zeroValue = 0;
+        size = 0;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        size = hasZeroKey ? 1 : 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0L) {
+                insertFresh(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * 插入一个确定不存在的非 0 key（rehash / 收缩时使用）。
+     */
+    private void insertFresh(long key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != 0L) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int slot(long key) {
+        // MurmurHash3 fmix64，避免自增 id 的低位规律造成聚集
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / (double) LOAD_FACTOR) + 1;
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
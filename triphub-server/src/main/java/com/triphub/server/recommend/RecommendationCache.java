@@ -0,0 +1,186 @@
+package com.triphub.server.recommend;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.pojo.vo.RecommendedTripVO;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按用户、period 缓存推荐结果：rec:result:{userId} 是一个 Hash，field 为 period，value 为带版本号与计算时间的 JSON。
+ *
+ * - 失效：画像或收藏变更时 INCR rec:ver:{userId} 并删除结果 Hash。结果写入时带上计算前读到的版本号，
+ *   读取时版本号不一致即视为未命中，因此「计算中途发生变更」的旧结果即使写回也不会被使用；
+ * - 过期：每个结果按自身计算时间判断是否超过 TTL，Hash 整体也设置 TTL 兜底回收；
+ * - 活跃用户：每次读取顺带把用户写入 rec:active，供后台预计算任务挑选。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationCache {
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final RecommendProperties recommendProperties;
+
+    /**
+     * 一次查询的结果：当前版本号，以及命中时的推荐列表（未命中为 null）。
+     */
+    public static final class Lookup {
+        private final long version;
+        private final List<RecommendedTripVO> items;
+
+        Lookup(long version, List<RecommendedTripVO> items) {
+            this.version = version;
+            this.items = items;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public List<RecommendedTripVO> getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * 缓存值。
+     */
+    @Data
+    static class CachedResult {
+        private long version;
+        private long cachedAt;
+        private List<RecommendedTripVO> items;
+    }
+
+    /**
+     * 读取缓存（一次 pipeline：版本号 + 结果），touch 为 true 时同时刷新用户的活跃时间。
+     */
+    public Lookup lookup(Long userId, String period, boolean touch) {
+        long now = System.currentTimeMillis();
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForValue().get(RedisConstants.REC_VERSION_KEY_PREFIX + userId);
+                operations.opsForHash().get(RedisConstants.REC_RESULT_HASH_PREFIX + userId, period);
+                if (touch) {
+                    operations.opsForZSet().add(RedisConstants.REC_ACTIVE_ZSET, String.valueOf(userId), now);
+                }
+                return null;
+            }
+        });
+        long version = parseVersion(results.isEmpty() ? null : results.get(0));
+        Object raw = results.size() > 1 ? results.get(1) : null;
+        if (raw == null) {
+            return new Lookup(version, null);
+        }
+        try {
+            CachedResult cached = objectMapper.readValue(String.valueOf(raw), CachedResult.class);
+            long ttlMillis = TimeUnit.SECONDS.toMillis(recommendProperties.getCacheTtlSeconds());
+            if (cached.getVersion() != version || now - cached.getCachedAt() >= ttlMillis || cached.getItems() == null) {
+                return new Lookup(version, null);
+            }
+            return new Lookup(version, cached.getItems());
+        } catch (Exception e) {
+            log.warn("解析推荐结果缓存失败, userId={}, period={}", userId, period, e);
+            return new Lookup(version, null);
+        }
+    }
+
+    /**
+     * 写入缓存，version 必须是计算前 {@link #lookup} 读到的版本号。
+     */
+    public void put(Long userId, String period, long version, List<RecommendedTripVO> items) {
+        CachedResult cached = new CachedResult();
+        cached.setVersion(version);
+        cached.setCachedAt(System.currentTimeMillis());
+        cached.setItems(items);
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(cached);
+        } catch (Exception e) {
+            log.warn("序列化推荐结果缓存失败, userId={}", userId, e);
+            return;
+        }
+        String key = RedisConstants.REC_RESULT_HASH_PREFIX + userId;
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                operations.opsForHash().put(key, period, json);
+                operations.expire(key, recommendProperties.getCacheTtlSeconds(), TimeUnit.SECONDS);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 画像或收藏变更后调用：推进版本号并删除已缓存的结果。失败只记日志，最多由 TTL 兜底。
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    String versionKey = RedisConstants.REC_VERSION_KEY_PREFIX + userId;
+                    operations.opsForValue().increment(versionKey);
+                    operations.expire(versionKey, RedisConstants.REC_VERSION_TTL_DAYS, TimeUnit.DAYS);
+                    operations.delete(RedisConstants.REC_RESULT_HASH_PREFIX + userId);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("失效推荐结果缓存失败, userId={}", userId, e);
+        }
+    }
+
+    /**
+     * sinceMillis 之后请求过推荐的用户，按活跃时间倒序最多 max 个；同时清理更早的记录。
+     */
+    public List<Long> recentlyActiveUsers(long sinceMillis, int max) {
+        stringRedisTemplate.opsForZSet().removeRangeByScore(RedisConstants.REC_ACTIVE_ZSET, 0, sinceMillis - 1);
+        Set<String> members = stringRedisTemplate.opsForZSet()
+                .reverseRangeByScore(RedisConstants.REC_ACTIVE_ZSET, sinceMillis, Double.MAX_VALUE, 0, max);
+        List<Long> userIds = new ArrayList<>();
+        if (members == null) {
+            return userIds;
+        }
+        for (String m : members) {
+            try {
+                userIds.add(Long.valueOf(m));
+            } catch (NumberFormatException ignore) {
+                // 非法 member 跳过
+            }
+        }
+        return userIds;
+    }
+
+    private static long parseVersion(Object raw) {
+        if (raw == null) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(String.valueOf(raw));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.triphub.server.recommend;
+
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.pojo.vo.RecommendedTripVO;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.ranking.HotRankingKeyResolver;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 为最近活跃的用户在后台预计算默认 period 的推荐结果：缓存仍有效的用户跳过，
+ * 画像/收藏变更导致失效或 TTL 到期的用户重新计算，使其下一次打开发现页直接命中缓存。
+ *
+ * 每次计算都要等待推荐各分支与 DB / Redis 往返，因此跑在独立的单线程调度器上，不占用 @Scheduled 的共享线程池；
+ * 单轮按 precompute-max-run-millis 限时，超时后剩余用户留到下一轮（缓存仍有效的用户会被跳过，下一轮自然接着处理）。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RecommendationPrecomputeTask {
+
+    private static final String JOB_REC_PRECOMPUTE = "rec_precompute";
+
+    private final RecommendationCache recommendationCache;
+    private final TripRecommender tripRecommender;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+    private final RecommendProperties recommendProperties;
+
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        if (!recommendProperties.isPrecomputeEnabled()) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rec-precompute");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = recommendProperties.getPrecomputeIntervalMillis();
+        executor.scheduleWithFixedDelay(this::precompute, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public void precompute() {
+        if (!recommendProperties.isPrecomputeEnabled() || !jobCoordinator.tryRunAsLeader(JOB_REC_PRECOMPUTE)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        String period = HotRankingKeyResolver.PERIOD_ALL;
+        long deadline = start + recommendProperties.getPrecomputeMaxRunMillis();
+        long computed = 0L;
+        try {
+            long since = start - TimeUnit.MINUTES.toMillis(recommendProperties.getPrecomputeActiveMinutes());
+            for (Long userId : recommendationCache.recentlyActiveUsers(since, recommendProperties.getPrecomputeBatch())) {
+                if (System.currentTimeMillis() >= deadline) {
+                    log.debug("推荐预计算达到单轮时间预算, computed={}", computed);
+                    break;
+                }
+                RecommendationCache.Lookup lookup = recommendationCache.lookup(userId, period, false);
+                if (lookup.getItems() != null) {
+                    continue;
+                }
+                List<RecommendedTripVO> items = tripRecommender.recommend(userId, period, recommendProperties.getCacheSize());
+                recommendationCache.put(userId, period, lookup.getVersion(), items);
+                computed++;
+            }
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_REC_PRECOMPUTE, "error", computed, System.currentTimeMillis() - start);
+            log.warn("预计算推荐结果失败, computed={}", computed, e);
+            return;
+        }
+        metricsRecorder.recordReconciliation(JOB_REC_PRECOMPUTE, "success", computed, System.currentTimeMillis() - start);
+    }
+}
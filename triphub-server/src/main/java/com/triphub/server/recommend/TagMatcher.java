@@ -0,0 +1,245 @@
+package com.triphub.server.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把用户画像标签编译成一个匹配器，用于推荐打分：
+ * - 目的地命中（city 与标签名完全相等）：HashMap 一次查找；
+ * - 标题命中（title 包含标签名）：Aho-Corasick 自动机单遍扫描标题。
+ *
+ * 标签按权重降序编号，最多保留前 {@link #MAX_TAGS} 个，命中结果用 long 位图表示，
+ * 因此 {@link #score} / {@link #bestHit} 在匹配阶段不分配对象。自动机按出现过的字符压缩字母表（字符 -> 列号用一张
+ * 开放寻址的小表查找）后展开成稠密转移表，未出现的字符直接回到根状态。编译后不可变，可在线程间共享。
+ *
+ * 规则与逐个标签 contains 的写法一致：每个标签目的地命中加 weight × 100，否则标题命中加 weight × 10（负权重按 0 计）；
+ * 推荐理由取命中标签中权重最高（同权重取靠前）的一个。
+ */
+public final class TagMatcher {
+
+    public static final int MAX_TAGS = 64;
+
+    private static final TagMatcher EMPTY = new TagMatcher(new String[0], new int[0], Map.of(),
+            new char[1], new int[1], 1, new int[]{0}, new long[]{0L});
+
+    /** 按权重降序的标签名与权重 */
+    private final String[] names;
+    private final int[] weights;
+    /** 标签名 -> 同名标签的位图 */
+    private final Map<String, Long> exact;
+    /** 字符 -> 列号的开放寻址表（列号 0 表示空槽 / 未出现的字符） */
+    private final char[] columnKeys;
+    private final int[] columnValues;
+    /** 转移表的行宽 = 字母表大小 + 1 */
+    private final int width;
+    /** 稠密转移表：delta[state × width + column] */
+    private final int[] delta;
+    /** 每个状态（含 fail 链）输出的标签位图 */
+    private final long[] output;
+
+    private TagMatcher(String[] names, int[] weights, Map<String, Long> exact,
+                       char[] columnKeys, int[] columnValues, int width, int[] delta, long[] output) {
+        this.names = names;
+        this.weights = weights;
+        this.exact = exact;
+        this.columnKeys = columnKeys;
+        this.columnValues = columnValues;
+        this.width = width;
+        this.delta = delta;
+        this.output = output;
+    }
+
+    /**
+     * 编译标签（空名忽略），names 与 weights 一一对应。
+     */
+    public static TagMatcher compile(List<String> names, List<Integer> weights) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            if (name != null && !name.isEmpty()) {
+                order.add(i);
+            }
+        }
+        if (order.isEmpty()) {
+            return EMPTY;
+        }
+        // 稳定排序：同权重保持原有顺序
+        order.sort((a, b) -> Integer.compare(weightAt(weights, b), weightAt(weights, a)));
+        int n = Math.min(order.size(), MAX_TAGS);
+        String[] sortedNames = new String[n];
+        int[] sortedWeights = new int[n];
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            sortedNames[i] = names.get(order.get(i));
+            sortedWeights[i] = weightAt(weights, order.get(i));
+            exact.merge(sortedNames[i], 1L << i, (x, y) -> x | y);
+        }
+        return build(sortedNames, sortedWeights, exact);
+    }
+
+    /**
+     * 标签加分（不含底分）。
+     */
+    public int score(String city, String title) {
+        if (names.length == 0) {
+            return 0;
+        }
+        long cityMask = cityMask(city);
+        long titleMask = titleMask(title) & ~cityMask;
+        int score = 0;
+        while (cityMask != 0L) {
+            int i = Long.numberOfTrailingZeros(cityMask);
+            score += Math.max(weights[i], 0) * 100;
+            cityMask &= cityMask - 1;
+        }
+        while (titleMask != 0L) {
+            int i = Long.numberOfTrailingZeros(titleMask);
+            score += Math.max(weights[i], 0) * 10;
+            titleMask &= titleMask - 1;
+        }
+        return score;
+    }
+
+    /**
+     * 命中标签中权重最高的标签名，没有命中时返回 null。
+     */
+    public String bestHit(String city, String title) {
+        if (names.length == 0) {
+            return null;
+        }
+        long mask = cityMask(city) | titleMask(title);
+        return mask == 0L ? null : names[Long.numberOfTrailingZeros(mask)];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private long cityMask(String city) {
+        if (city == null) {
+            return 0L;
+        }
+        Long mask = exact.get(city);
+        return mask == null ? 0L : mask;
+    }
+
+    private long titleMask(String title) {
+        if (title == null) {
+            return 0L;
+        }
+        int state = 0;
+        long mask = 0L;
+        for (int i = 0; i < title.length(); i++) {
+            state = delta[state * width + column(title.charAt(i))];
+            mask |= output[state];
+        }
+        return mask;
+    }
+
+    private int column(char c) {
+        return column(columnKeys, columnValues, c);
+    }
+
+    private static int column(char[] keys, int[] values, char c) {
+        int m = keys.length - 1;
+        int slot = mix(c) & m;
+        while (values[slot] != 0) {
+            if (keys[slot] == c) {
+                return values[slot];
+            }
+            slot = (slot + 1) & m;
+        }
+        return 0;
+    }
+
+    private static int mix(char c) {
+        int h = c * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static TagMatcher build(String[] names, int[] weights, Map<String, Long> exact) {
+        // 1. 字母表：按首次出现的顺序编号，列号从 1 开始；开放寻址表负载不超过 1/2
+        int totalChars = 0;
+        for (String name : names) {
+            totalChars += name.length();
+        }
+        int tableSize = Integer.highestOneBit(Math.max(totalChars, 1) * 2 - 1) << 1;
+        char[] columnKeys = new char[tableSize];
+        int[] columnValues = new int[tableSize];
+        int width = 1;
+        for (String name : names) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                int slot = mix(c) & (tableSize - 1);
+                while (columnValues[slot] != 0 && columnKeys[slot] != c) {
+                    slot = (slot + 1) & (tableSize - 1);
+                }
+                if (columnValues[slot] == 0) {
+                    columnKeys[slot] = c;
+                    columnValues[slot] = width++;
+                }
+            }
+        }
+
+        // 2. trie：状态数不超过总字符数 + 1，goto 表中 -1 表示无边
+        int maxStates = totalChars + 1;
+        int[] delta = new int[maxStates * width];
+        Arrays.fill(delta, -1);
+        long[] output = new long[maxStates];
+        int states = 1;
+        for (int t = 0; t < names.length; t++) {
+            int state = 0;
+            for (int i = 0; i < names[t].length(); i++) {
+                int col = column(columnKeys, columnValues, names[t].charAt(i));
+                int next = delta[state * width + col];
+                if (next < 0) {
+                    next = states++;
+                    delta[state * width + col] = next;
+                }
+                state = next;
+            }
+            output[state] |= 1L << t;
+        }
+
+        // 3. BFS 计算 fail 并就地把 goto 表展开成完整 DFA；列 0（未出现的字符）总是回到根
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+        for (int col = 0; col < width; col++) {
+            int next = delta[col];
+            if (next > 0 && col > 0) {
+                fail[next] = 0;
+                queue[tail++] = next;
+            } else {
+                delta[col] = 0;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            output[state] |= output[fail[state]];
+            int row = state * width;
+            int failRow = fail[state] * width;
+            delta[row] = 0;
+            for (int col = 1; col < width; col++) {
+                int next = delta[row + col];
+                if (next > 0) {
+                    fail[next] = delta[failRow + col];
+                    queue[tail++] = next;
+                } else {
+                    delta[row + col] = delta[failRow + col];
+                }
+            }
+        }
+        return new TagMatcher(names, weights, exact, columnKeys, columnValues, width,
+                Arrays.copyOf(delta, states * width), Arrays.copyOf(output, states));
+    }
+
+    private static int weightAt(List<Integer> weights, int i) {
+        Integer w = i < weights.size() ? weights.get(i) : null;
+        return w == null ? 0 : w;
+    }
+}
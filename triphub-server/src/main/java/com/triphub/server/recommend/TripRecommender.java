@@ -0,0 +1,273 @@
+package com.triphub.server.recommend;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.triphub.common.properties.RecommendProperties;
+import com.triphub.pojo.dto.TripSummaryDTO;
+import com.triphub.pojo.entity.TripFavorite;
+import com.triphub.pojo.entity.UserProfile;
+import com.triphub.pojo.vo.RecommendedTripVO;
+import com.triphub.server.async.FanOut;
+import com.triphub.server.ranking.HotRankingKeyResolver;
+import com.triphub.server.search.TripKeywordIndex;
+import com.triphub.server.service.TripFavoriteService;
+import com.triphub.server.service.TripService;
+import com.triphub.server.service.UserProfileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * 推荐行程的计算流程（规则打分版），由推荐接口与后台预计算共用：
+ * - 从热门行程 ZSet 获取一批候选行程，再并入高权重画像标签的倒排召回（城市热门榜 + 关键词倒排）
+ *   与共同收藏召回，去重并截断；三路召回通过 {@link FanOut} 并行加载，各分支耗时单独记录；
+ * - 过滤仅保留公开行程；
+ * - 基于用户画像（tags，编译为 {@link TagMatcher}）与共同收藏相似度做规则打分与可解释排序。
+ */
+@Component
+@RequiredArgsConstructor
+public class TripRecommender {
+
+    private static final String FAN_OUT_OPERATION = "recommend";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripService tripService;
+    private final UserProfileService userProfileService;
+    private final TripFavoriteService tripFavoriteService;
+    private final ObjectMapper objectMapper;
+    private final HotRankingKeyResolver hotRankingKeyResolver;
+    private final TripKeywordIndex tripKeywordIndex;
+    private final CoFavoriteIndex coFavoriteIndex;
+    private final RecommendProperties recommendProperties;
+    private final FanOut fanOut;
+
+    /**
+     * 为指定用户计算前 limit 条推荐行程。
+     */
+    public List<RecommendedTripVO> recommend(Long userId, String period, int limit) {
+        if (userId == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // 三个分支互不依赖，并行加载：热门榜（Redis）、画像 + 标签倒排召回（DB + Redis）、共同收藏召回（DB + Redis）
+        int candidateLimit = Math.min(Math.max(limit * recommendProperties.getHotCandidateFactor(), limit),
+                recommendProperties.getHotCandidateMax());
+        CompletableFuture<Set<Long>> hotFuture = fanOut.fork(FAN_OUT_OPERATION, "hot",
+                () -> loadHotIds(period, candidateLimit));
+        CompletableFuture<TagRecall> tagFuture = fanOut.fork(FAN_OUT_OPERATION, "profile",
+                () -> loadTagRecall(userId));
+        CompletableFuture<Map<Long, Double>> cofavFuture = fanOut.fork(FAN_OUT_OPERATION, "cofav",
+                () -> coFavoriteSimilar(userId));
+
+        Set<Long> hotIds = fanOut.join(hotFuture);
+        TagRecall tagRecall = fanOut.join(tagFuture);
+        Map<Long, Double> similar = fanOut.joinOrDefault(cofavFuture, Collections.emptyMap());
+        TagMatcher matcher = tagRecall.matcher;
+
+        // 候选召回：热门榜 ∪ 高权重标签的倒排召回（城市热门榜 + 标题/城市关键词），去重后截断
+        Set<Long> candidateIds = new LinkedHashSet<>(hotIds);
+        for (Long id : tagRecall.candidates) {
+            if (candidateIds.size() >= Math.max(recommendProperties.getMaxCandidates(), hotIds.size())) {
+                break;
+            }
+            candidateIds.add(id);
+        }
+        // 共同收藏召回：以最近收藏的行程为种子，取"收藏过相同行程的人也收藏了"的行程
+        // （数量已由 cofav-candidates 限制，不占用标签召回的名额）
+        candidateIds.addAll(similar.keySet());
+        if (candidateIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(candidateIds);
+
+        List<TripSummaryDTO> candidates = tripService.listPublicTripSummariesForDiscover(ids);
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // 规则打分：热门程度（viewCount）为底分 + 画像标签命中加分 + 共同收藏相似度加分
+        List<ScoredTrip> scored = new ArrayList<>(candidates.size());
+        for (TripSummaryDTO t : candidates) {
+            if (t == null || t.getId() == null) {
+                continue;
+            }
+            int score = scoreTrip(t, matcher)
+                    + (int) Math.round(similar.getOrDefault(t.getId(), 0D) * recommendProperties.getCofavWeight());
+            scored.add(new ScoredTrip(t, score));
+        }
+        scored.sort(Comparator.comparingInt(ScoredTrip::getScore).reversed());
+
+        List<RecommendedTripVO> result = new ArrayList<>();
+        for (int i = 0; i < scored.size() && result.size() < limit; i++) {
+            TripSummaryDTO t = scored.get(i).getTrip();
+            RecommendedTripVO vo = new RecommendedTripVO();
+            vo.setTripId(t.getId());
+            vo.setTitle(t.getTitle());
+            vo.setDestinationCity(t.getDestinationCity());
+            vo.setViewCount(t.getViewCount());
+            vo.setReason(buildChineseReason(t, matcher, i + 1, hotIds.contains(t.getId()), similar.containsKey(t.getId())));
+            result.add(vo);
+        }
+        return result;
+    }
+
+    private Set<Long> loadHotIds(String period, int candidateLimit) {
+        Set<String> idSet = stringRedisTemplate.opsForZSet()
+                .reverseRange(hotRankingKeyResolver.tripKey(period), 0, candidateLimit - 1);
+        Set<Long> hotIds = new LinkedHashSet<>();
+        if (idSet != null) {
+            for (String s : idSet) {
+                try {
+                    hotIds.add(Long.valueOf(s));
+                } catch (Exception ignore) {
+                }
+            }
+        }
+        return hotIds;
+    }
+
+    /**
+     * 加载用户画像标签（用于打分与推荐理由），并按权重前 maxTags 个标签做倒排召回。
+     */
+    private TagRecall loadTagRecall(Long userId) {
+        UserProfile profile = userProfileService.getByUserId(userId);
+        List<Tag> tags = extractTags(parseProfile(profile));
+        if (tags.isEmpty()) {
+            return new TagRecall(TagMatcher.compile(List.of(), List.of()), Collections.emptyList());
+        }
+        // 标签只编译一次，候选打分与推荐理由共用同一个匹配器
+        TagMatcher matcher = TagMatcher.compile(tags.stream().map(t -> t.name).collect(Collectors.toList()),
+                tags.stream().map(t -> t.weight).collect(Collectors.toList()));
+        List<String> terms = new ArrayList<>();
+        for (int i = 0; i < tags.size() && terms.size() < recommendProperties.getMaxTags(); i++) {
+            terms.add(tags.get(i).name);
+        }
+        return new TagRecall(matcher, tripKeywordIndex.candidates(terms, recommendProperties.getTagPostingLimit()));
+    }
+
+    private Map<String, Object> parseProfile(UserProfile profile) {
+        if (profile == null || profile.getProfileJson() == null || profile.getProfileJson().isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return objectMapper.readValue(profile.getProfileJson(), new TypeReference<Map<String, Object>>() {
+            });
+        } catch (Exception e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private int scoreTrip(TripSummaryDTO trip, TagMatcher matcher) {
+        int base = trip.getViewCount() == null ? 0 : trip.getViewCount();
+        return base + matcher.score(trip.getDestinationCity(), trip.getTitle());
+    }
+
+    /**
+     * 用户最近收藏行程的共同收藏相似行程（已排除种子本身），失败时降级为空。
+     */
+    private Map<Long, Double> coFavoriteSimilar(Long userId) {
+        try {
+            List<TripFavorite> favorites = tripFavoriteService.listRecentFavorites(userId, recommendProperties.getCofavSeedTrips());
+            if (favorites == null || favorites.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            List<Long> seeds = favorites.stream().map(TripFavorite::getTripId).collect(Collectors.toList());
+            return coFavoriteIndex.similarTo(seeds, recommendProperties.getCofavPerSeed(), recommendProperties.getCofavCandidates());
+        } catch (Exception e) {
+            return Collections.emptyMap();
+        }
+    }
+
+    private String buildChineseReason(TripSummaryDTO trip, TagMatcher matcher, int rank, boolean fromHot, boolean coFavorite) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(fromHot ? "热门榜单第" : "为你推荐第").append(rank).append("名");
+        String hit = matcher.bestHit(trip.getDestinationCity(), trip.getTitle());
+        if (hit != null) {
+            sb.append("，与你偏好「").append(hit).append("」更匹配");
+        }
+        if (coFavorite) {
+            sb.append("，收藏过相同行程的人也收藏了它");
+        }
+        if (trip.getDestinationCity() != null && !trip.getDestinationCity().isEmpty()) {
+            sb.append("，目的地：").append(trip.getDestinationCity());
+        }
+        return sb.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Tag> extractTags(Map<String, Object> profileMap) {
+        if (profileMap == null) {
+            return Collections.emptyList();
+        }
+        Object tagsObj = profileMap.get("tags");
+        if (!(tagsObj instanceof List)) {
+            return Collections.emptyList();
+        }
+        List<Object> list = (List<Object>) tagsObj;
+        List<Tag> tags = new ArrayList<>();
+        for (Object o : list) {
+            if (!(o instanceof Map)) {
+                continue;
+            }
+            Map<String, Object> m = (Map<String, Object>) o;
+            Object nameObj = m.get("name");
+            String name = nameObj == null ? null : String.valueOf(nameObj);
+            Object weightObj = m.get("weight");
+            int weight = weightObj instanceof Number ? ((Number) weightObj).intValue() : 0;
+            if (name != null && !name.isEmpty()) {
+                tags.add(new Tag(name, weight));
+            }
+        }
+        // weight 降序，召回时优先取高权重标签
+        tags.sort((a, b) -> Integer.compare(b.weight, a.weight));
+        return tags;
+    }
+
+    private static final class Tag {
+        private final String name;
+        private final int weight;
+
+        private Tag(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+
+    private static final class TagRecall {
+        private final TagMatcher matcher;
+        private final List<Long> candidates;
+
+        private TagRecall(TagMatcher matcher, List<Long> candidates) {
+            this.matcher = matcher;
+            this.candidates = candidates;
+        }
+    }
+
+    private static final class ScoredTrip {
+        private final TripSummaryDTO trip;
+        private final int score;
+
+        private ScoredTrip(TripSummaryDTO trip, int score) {
+            this.trip = trip;
+            this.score = score;
+        }
+
+        private TripSummaryDTO getTrip() {
+            return trip;
+        }
+
+        private int getScore() {
+            return score;
+        }
+    }
+}
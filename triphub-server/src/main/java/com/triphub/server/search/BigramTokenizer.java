@@ -0,0 +1,87 @@
+package com.triphub.server.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 面向行程标题 / 城市 / 画像标签的轻量分词：不依赖词典，写入与查询两侧用同一套规则。
+ *
+ * - 按「字母或数字」连续段切分，其余字符（空格、标点、括号等）都是分隔符；
+ * - 中日韩文字段按相邻两字切成重叠的二元组（"成都美食" → 成都 / 都美 / 美食），单字段保留单字；
+ * - 其他文字段（拉丁字母、数字）整体转小写作为一个词。
+ *
+ * 倒排求交的候选只在查询词的每个 token 都是中日韩二元组时才覆盖全部子串匹配
+ * （查询词出现在标题中时，它的每个二元组必然也是标题的二元组）。以下情况子串命中但 token 不命中：
+ * - 单字查询词：标题只索引二元组，「湖」不会从「西湖」中召回；
+ * - 拉丁字母 / 数字词只按整词索引：「ski」不会从「skiing」中召回，词与相邻的中文连写时同理。
+ * 这些标签依赖城市热门榜等其他召回通道；最终是否命中仍由打分阶段的 contains 判断。
+ */
+public final class BigramTokenizer {
+
+    private BigramTokenizer() {
+    }
+
+    /**
+     * 去重后的 token，按首次出现顺序排列。
+     */
+    public static Set<String> tokenSet(String text) {
+        return new LinkedHashSet<>(tokens(text));
+    }
+
+    /**
+     * 全部 token（含重复），顺序与原文一致。
+     */
+    public static List<String> tokens(String text) {
+        List<String> out = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return out;
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            int cp = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            boolean cjk = isCjk(cp);
+            int start = i;
+            while (i < n) {
+                int c = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(c) || isCjk(c) != cjk) {
+                    break;
+                }
+                i += Character.charCount(c);
+            }
+            String run = text.substring(start, i);
+            if (cjk) {
+                addBigrams(run, out);
+            } else {
+                out.add(run.toLowerCase(Locale.ROOT));
+            }
+        }
+        return out;
+    }
+
+    private static void addBigrams(String run, List<String> out) {
+        int[] cps = run.codePoints().toArray();
+        if (cps.length == 1) {
+            out.add(new String(cps, 0, 1));
+            return;
+        }
+        for (int k = 0; k + 1 < cps.length; k++) {
+            out.add(new String(cps, k, 2));
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
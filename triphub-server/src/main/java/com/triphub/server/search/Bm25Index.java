@@ -0,0 +1,276 @@
+package com.triphub.server.search;
+
+import com.triphub.server.recommend.LongIntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的 BM25 倒排索引：文档为行程（标题 + 目的地城市，{@link BigramTokenizer} 分词），只支持追加。
+ *
+ * - 倒排：token -> (文档下标, 词频) 两个平行的 int 数组，文档下标按追加顺序递增，因此每条倒排链天然有序；
+ * - 查询：按文档下标对各查询词的倒排链做多路归并（document-at-a-time），逐文档累加 BM25 分数，
+ *   用大小为 K 的最小堆保留 Top K，不需要按文档总数分配累加数组；
+ * - 并发：读写锁，查询之间互不阻塞，追加时短暂独占。
+ *
+ * BM25 参数取常用值 k1 = 1.2、b = 0.75，IDF = ln(1 + (N - df + 0.5) / (df + 0.5))。
+ * 同分时新追加的文档（下标大）排在前面。
+ */
+public final class Bm25Index {
+
+    private static final float K1 = 1.2F;
+    private static final float B = 0.75F;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    /** tripId -> 文档下标 + 1 */
+    private final LongIntOpenHashMap docIndex = new LongIntOpenHashMap(INITIAL_CAPACITY);
+    private long[] tripIds = new long[INITIAL_CAPACITY];
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int docCount;
+    private long totalLength;
+
+    /**
+     * 一条查询结果。
+     */
+    public static final class Hit {
+        private final long tripId;
+        private final float score;
+
+        Hit(long tripId, float score) {
+            this.tripId = tripId;
+            this.score = score;
+        }
+
+        public long getTripId() {
+            return tripId;
+        }
+
+        public float getScore() {
+            return score;
+        }
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+                freqs = Arrays.copyOf(freqs, size << 1);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    /**
+     * 追加一个行程；已存在或没有任何 token 时返回 false。
+     */
+    public boolean add(long tripId, String title, String city) {
+        List<String> tokens = new ArrayList<>(BigramTokenizer.tokens(title));
+        tokens.addAll(BigramTokenizer.tokens(city));
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String token : tokens) {
+            freqs.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            if (docIndex.containsKey(tripId)) {
+                return false;
+            }
+            int doc = docCount;
+            if (doc == tripIds.length) {
+                tripIds = Arrays.copyOf(tripIds, doc << 1);
+                lengths = Arrays.copyOf(lengths, doc << 1);
+            }
+            tripIds[doc] = tripId;
+            lengths[doc] = tokens.size();
+            for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(doc, e.getValue());
+            }
+            docIndex.addTo(tripId, doc + 1);
+            docCount++;
+            totalLength += tokens.size();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long tripId) {
+        lock.readLock().lock();
+        try {
+            return docIndex.containsKey(tripId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按 BM25 返回前 k 个行程（分数降序）；查询词最多取前 maxTerms 个不重复 token。
+     */
+    public List<Hit> search(String query, int k, int maxTerms) {
+        Set<String> terms = BigramTokenizer.tokenSet(query);
+        if (terms.isEmpty() || k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (docCount == 0) {
+                return List.of();
+            }
+            List<Postings> lists = new ArrayList<>();
+            List<Float> idfs = new ArrayList<>();
+            for (String term : terms) {
+                if (lists.size() >= maxTerms) {
+                    break;
+                }
+                Postings p = postings.get(term);
+                if (p == null) {
+                    continue;
+                }
+                lists.add(p);
+                idfs.add((float) Math.log(1D + (docCount - p.size + 0.5D) / (p.size + 0.5D)));
+            }
+            if (lists.isEmpty()) {
+                return List.of();
+            }
+            return topK(lists, idfs, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> topK(List<Postings> lists, List<Float> idfs, int k) {
+        int n = lists.size();
+        int[] cursor = new int[n];
+        float avgLength = (float) totalLength / docCount;
+        TopK heap = new TopK(Math.min(k, docCount));
+        while (true) {
+            // 当前各倒排链头部的最小文档下标
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                Postings p = lists.get(i);
+                if (cursor[i] < p.size && p.docs[cursor[i]] < doc) {
+                    doc = p.docs[cursor[i]];
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                break;
+            }
+            float norm = K1 * (1F - B + B * lengths[doc] / avgLength);
+            float score = 0F;
+            for (int i = 0; i < n; i++) {
+                Postings p = lists.get(i);
+                if (cursor[i] < p.size && p.docs[cursor[i]] == doc) {
+                    int tf = p.freqs[cursor[i]];
+                    score += idfs.get(i) * tf * (K1 + 1F) / (tf + norm);
+                    cursor[i]++;
+                }
+            }
+            heap.offer(doc, score);
+        }
+        return heap.drain(tripIds);
+    }
+
+    /**
+     * 基于平行数组的最小堆：堆顶为当前 Top K 中最差的一个（分数最低，同分时下标最小）。
+     */
+    private static final class TopK {
+        private final int[] docs;
+        private final float[] scores;
+        private int size;
+
+        private TopK(int capacity) {
+            docs = new int[Math.max(capacity, 1)];
+            scores = new float[Math.max(capacity, 1)];
+        }
+
+        private void offer(int doc, float score) {
+            if (size < docs.length) {
+                docs[size] = doc;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (worse(docs[0], scores[0], doc, score)) {
+                docs[0] = doc;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private List<Hit> drain(long[] tripIds) {
+            Hit[] hits = new Hit[size];
+            for (int i = size - 1; i >= 0; i--) {
+                hits[i] = new Hit(tripIds[docs[0]], scores[0]);
+                size--;
+                docs[0] = docs[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+            return Arrays.asList(hits);
+        }
+
+        /** (docA, scoreA) 是否排在 (docB, scoreB) 之后 */
+        private static boolean worse(int docA, float scoreA, int docB, float scoreB) {
+            return scoreA < scoreB || (scoreA == scoreB && docA < docB);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!worse(docs[i], scores[i], docs[parent], scores[parent])) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int child = left + 1 < size && worse(docs[left + 1], scores[left + 1], docs[left], scores[left])
+                        ? left + 1 : left;
+                if (!worse(docs[child], scores[child], docs[i], scores[i])) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int d = docs[a];
+            docs[a] = docs[b];
+            docs[b] = d;
+            float s = scores[a];
+            scores[a] = scores[b];
+            scores[b] = s;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.triphub.server.search;
+
+import com.triphub.server.recommend.LongIntOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 进程内的行程分面索引：文档为公开行程，每个分面取值一张 {@link CompressedBitmap}（文档下标集合），只支持追加。
+ *
+ * - 分面：目的地城市、天数分桶（{@link #DAY_BUCKETS}）、出发月份（1 - 12）；缺失的字段不进入对应分面；
+ * - 过滤：同一分面内多个取值取并集（OR），分面之间取交集（AND）；
+ * - 分面计数：某个分面的计数只应用其他分面的条件（多选分面的常见口径），选中一个城市后仍能看到其他城市的数量；
+ * - 排序：按浏览量（进程内副本，由调用方定期刷新）或行程 id 倒序，用大小为 offset + limit 的最小堆取当前页；
+ * - 并发：读写锁，查询之间互不阻塞，追加与浏览量刷新时短暂独占。
+ */
+public final class FacetIndex {
+
+    /** 天数分桶的展示名，下标即桶号 */
+    public static final List<String> DAY_BUCKETS = List.of("1", "2", "3", "4-5", "6-7", "8+");
+
+    private static final int MONTHS = 12;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CompressedBitmap all = new CompressedBitmap();
+    private final Map<String, CompressedBitmap> byCity = new HashMap<>();
+    private final CompressedBitmap[] byDays = newBitmaps(DAY_BUCKETS.size());
+    /** 下标 0 不使用 */
+    private final CompressedBitmap[] byMonth = newBitmaps(MONTHS + 1);
+    /** tripId -> 文档下标 + 1 */
+    private final LongIntOpenHashMap docIndex = new LongIntOpenHashMap(INITIAL_CAPACITY);
+    private long[] tripIds = new long[INITIAL_CAPACITY];
+    private int[] views = new int[INITIAL_CAPACITY];
+    private int docCount;
+
+    public enum Sort {
+        VIEWS, NEWEST
+    }
+
+    /**
+     * 过滤条件：为空的集合表示该分面不限。
+     */
+    public static final class Filter {
+        private final Collection<String> cities;
+        private final Collection<String> dayBuckets;
+        private final Collection<Integer> months;
+
+        public Filter(Collection<String> cities, Collection<String> dayBuckets, Collection<Integer> months) {
+            this.cities = cities == null ? List.of() : cities;
+            this.dayBuckets = dayBuckets == null ? List.of() : dayBuckets;
+            this.months = months == null ? List.of() : months;
+        }
+    }
+
+    /**
+     * 一页查询结果与各分面计数。
+     */
+    public static final class Page {
+        private final int total;
+        private final List<Long> tripIds;
+        private final Map<String, Integer> cityCounts;
+        private final Map<String, Integer> dayCounts;
+        private final Map<Integer, Integer> monthCounts;
+
+        Page(int total, List<Long> tripIds, Map<String, Integer> cityCounts,
+             Map<String, Integer> dayCounts, Map<Integer, Integer> monthCounts) {
+            this.total = total;
+            this.tripIds = tripIds;
+            this.cityCounts = cityCounts;
+            this.dayCounts = dayCounts;
+            this.monthCounts = monthCounts;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Long> getTripIds() {
+            return tripIds;
+        }
+
+        /** 按数量降序，最多 cityLimit 个 */
+        public Map<String, Integer> getCityCounts() {
+            return cityCounts;
+        }
+
+        /** 按 {@link #DAY_BUCKETS} 顺序，含数量为 0 的桶 */
+        public Map<String, Integer> getDayCounts() {
+            return dayCounts;
+        }
+
+        /** 1 - 12 月，含数量为 0 的月份 */
+        public Map<Integer, Integer> getMonthCounts() {
+            return monthCounts;
+        }
+    }
+
+    /**
+     * 天数所在的桶号，天数缺失或非正数时返回 -1。
+     */
+    public static int dayBucket(Integer days) {
+        if (days == null || days <= 0) {
+            return -1;
+        }
+        if (days <= 3) {
+            return days - 1;
+        }
+        if (days <= 5) {
+            return 3;
+        }
+        return days <= 7 ? 4 : 5;
+    }
+
+    /**
+     * 追加一个行程；已存在时返回 false。city 为空、days 非正、startMonth 不在 1 - 12 时对应分面不收录。
+     */
+    public boolean add(long tripId, String city, Integer days, Integer startMonth, int viewCount) {
+        lock.writeLock().lock();
+        try {
+            if (docIndex.containsKey(tripId)) {
+                return false;
+            }
+            int doc = docCount;
+            if (doc == tripIds.length) {
+                tripIds = Arrays.copyOf(tripIds, doc << 1);
+                views = Arrays.copyOf(views, doc << 1);
+            }
+            tripIds[doc] = tripId;
+            views[doc] = Math.max(viewCount, 0);
+            all.add(doc);
+            if (city != null && !city.isBlank()) {
+                byCity.computeIfAbsent(city, k -> new CompressedBitmap()).add(doc);
+            }
+            int bucket = dayBucket(days);
+            if (bucket >= 0) {
+                byDays[bucket].add(doc);
+            }
+            if (startMonth != null && startMonth >= 1 && startMonth <= MONTHS) {
+                byMonth[startMonth].add(doc);
+            }
+            docIndex.addTo(tripId, doc + 1);
+            docCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 刷新浏览量副本；行程不在索引中时返回 false。
+     */
+    public boolean updateViews(long tripId, int viewCount) {
+        lock.writeLock().lock();
+        try {
+            int doc = docIndex.get(tripId) - 1;
+            if (doc < 0) {
+                return false;
+            }
+            views[doc] = Math.max(viewCount, 0);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long tripId) {
+        lock.readLock().lock();
+        try {
+            return docIndex.containsKey(tripId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按过滤条件取第 offset 条起的 limit 个行程 id，并返回命中总数与各分面计数（城市最多 cityLimit 个）。
+     */
+    public Page query(Filter filter, Sort sort, int offset, int limit, int cityLimit) {
+        lock.readLock().lock();
+        try {
+            CompressedBitmap cityClause = filter.cities.isEmpty() ? null : union(filter.cities, byCity::get);
+            CompressedBitmap dayClause = filter.dayBuckets.isEmpty() ? null
+                    : union(filter.dayBuckets, label -> {
+                        int bucket = DAY_BUCKETS.indexOf(label);
+                        return bucket < 0 ? null : byDays[bucket];
+                    });
+            CompressedBitmap monthClause = filter.months.isEmpty() ? null
+                    : union(filter.months, month -> month == null || month < 1 || month > MONTHS ? null : byMonth[month]);
+
+            CompressedBitmap matched = intersect(cityClause, dayClause, monthClause);
+            int total = matched.cardinality();
+            List<Long> page = offset >= 0 && offset < total && limit > 0
+                    ? topPage(matched, sort, offset, (int) Math.min((long) offset + limit, total))
+                    : List.of();
+            return new Page(total, page,
+                    cityCounts(intersect(null, dayClause, monthClause), cityLimit),
+                    dayCounts(intersect(cityClause, null, monthClause)),
+                    monthCounts(intersect(cityClause, dayClause, null)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> topPage(CompressedBitmap matched, Sort sort, int offset, int end) {
+        TopK heap = new TopK(end);
+        if (sort == Sort.NEWEST) {
+            matched.forEach(doc -> heap.offer(tripIds[doc]));
+        } else {
+            // 浏览量在高 32 位，同浏览量时新追加的文档在前
+            matched.forEach(doc -> heap.offer(((long) views[doc] << 32) | doc));
+        }
+        long[] keys = heap.drainDescending();
+        List<Long> ids = new ArrayList<>(keys.length - offset);
+        for (int i = offset; i < keys.length; i++) {
+            ids.add(sort == Sort.NEWEST ? keys[i] : tripIds[(int) keys[i]]);
+        }
+        return ids;
+    }
+
+    private Map<String, Integer> cityCounts(CompressedBitmap base, int cityLimit) {
+        if (cityLimit <= 0) {
+            return Collections.emptyMap();
+        }
+        List<Map.Entry<String, Integer>> counts = new ArrayList<>();
+        for (Map.Entry<String, CompressedBitmap> e : byCity.entrySet()) {
+            int count = base == all ? e.getValue().cardinality() : base.andCardinality(e.getValue());
+            if (count > 0) {
+                counts.add(Map.entry(e.getKey(), count));
+            }
+        }
+        counts.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < Math.min(cityLimit, counts.size()); i++) {
+            result.put(counts.get(i).getKey(), counts.get(i).getValue());
+        }
+        return result;
+    }
+
+    private Map<String, Integer> dayCounts(CompressedBitmap base) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int bucket = 0; bucket < DAY_BUCKETS.size(); bucket++) {
+            result.put(DAY_BUCKETS.get(bucket), count(base, byDays[bucket]));
+        }
+        return result;
+    }
+
+    private Map<Integer, Integer> monthCounts(CompressedBitmap base) {
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (int month = 1; month <= MONTHS; month++) {
+            result.put(month, count(base, byMonth[month]));
+        }
+        return result;
+    }
+
+    private int count(CompressedBitmap base, CompressedBitmap value) {
+        return base == all ? value.cardinality() : base.andCardinality(value);
+    }
+
+    /**
+     * 各分面条件的交集，null 表示不限；都不限时返回全集本身（调用方只读）。
+     */
+    private CompressedBitmap intersect(CompressedBitmap... clauses) {
+        CompressedBitmap result = all;
+        for (CompressedBitmap clause : clauses) {
+            if (clause != null) {
+                result = result == all ? clause : result.and(clause);
+            }
+        }
+        return result;
+    }
+
+    private static <T> CompressedBitmap union(Collection<T> values, Function<T, CompressedBitmap> lookup) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (T value : values) {
+            CompressedBitmap bitmap = lookup.apply(value);
+            if (bitmap != null) {
+                result = result.or(bitmap);
+            }
+        }
+        return result;
+    }
+
+    private static CompressedBitmap[] newBitmaps(int n) {
+        CompressedBitmap[] bitmaps = new CompressedBitmap[n];
+        for (int i = 0; i < n; i++) {
+            bitmaps[i] = new CompressedBitmap();
+        }
+        return bitmaps;
+    }
+
+    /**
+     * long 键的最小堆：堆顶为当前保留的最小键。
+     */
+    private static final class TopK {
+        private final long[] keys;
+        private int size;
+
+        private TopK(int capacity) {
+            keys = new long[Math.max(capacity, 1)];
+        }
+
+        private void offer(long key) {
+            if (size < keys.length) {
+                keys[size] = key;
+                siftUp(size++);
+            } else if (key > keys[0]) {
+                keys[0] = key;
+                siftDown(0);
+            }
+        }
+
+        private long[] drainDescending() {
+            long[] out = new long[size];
+            for (int i = size - 1; i >= 0; i--) {
+                out[i] = keys[0];
+                size--;
+                keys[0] = keys[size];
+                siftDown(0);
+            }
+            return out;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[i] >= keys[parent]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int left = 2 * i + 1;
+                if (left >= size) {
+                    return;
+                }
+                int child = left + 1 < size && keys[left + 1] < keys[left] ? left + 1 : left;
+                if (keys[child] >= keys[i]) {
+                    return;
+                }
+                swap(i, child);
+                i = child;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long k = keys[a];
+            keys[a] = keys[b];
+            keys[b] = k;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.triphub.server.search;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.SearchProperties;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 行程分面筛选：每个节点在进程内维护一份 {@link FacetIndex}（公开行程的目的地 / 天数分桶 / 出发月份）。
+ *
+ * - 构建：启动完成后在后台线程流式遍历公开行程全量构建，与 {@link TripSearchIndex} 相同；
+ * - 增量：创建公开行程的节点直接写入本地索引；跨节点复用 search:trip:created 通知（由 {@link TripSearchIndex} 发布），
+ *   其他节点按 id 读取行程补入。行程创建后目的地、日期与可见性不再修改，索引只追加；
+ * - 浏览量：排序用的浏览量是进程内副本，按 facet-view-refresh-millis 从 DB 的 view_count 全量刷新，
+ *   列表展示的浏览量仍由行程摘要回填，不受副本滞后影响。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripFacetIndex implements MessageListener {
+
+    private static final String JOB_FACET_INDEX = "facet_index";
+    private static final String JOB_FACET_VIEWS = "facet_views";
+
+    private final FacetIndex index = new FacetIndex();
+
+    private final TripMapper tripMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final MetricsRecorder metricsRecorder;
+    private final SearchProperties searchProperties;
+
+    /** 全量构建完成前不刷新浏览量，避免与构建同时长时间占用连接 */
+    private volatile boolean built;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!searchProperties.isEnabled()) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.SEARCH_TRIP_CHANNEL));
+        Thread builder = new Thread(this::build, "facet-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * 按分面筛选公开行程。page 从 1 开始，pageSize 与翻页深度受 facet-max-page-size / facet-max-depth 限制，
+     * 超出深度时只返回总数与分面计数。
+     */
+    public FacetIndex.Page query(FacetIndex.Filter filter, FacetIndex.Sort sort, int page, int pageSize) {
+        int size = Math.min(pageSize, searchProperties.getFacetMaxPageSize());
+        long offset = (long) (Math.max(page, 1) - 1) * size;
+        if (offset + size > searchProperties.getFacetMaxDepth()) {
+            size = 0;
+        }
+        return index.query(filter, sort, (int) Math.min(offset, Integer.MAX_VALUE), size,
+                searchProperties.getFacetCityLimit());
+    }
+
+    /**
+     * 公开行程创建后调用（调用方负责可见性判断），只写本地索引；跨节点通知由 {@link TripSearchIndex#onTripCreated} 发布。
+     */
+    public void onTripCreated(Trip trip) {
+        if (!searchProperties.isEnabled() || trip == null || trip.getId() == null) {
+            return;
+        }
+        add(trip);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        long tripId;
+        try {
+            tripId = Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        // 本节点创建的行程，或构建时已经加载过
+        if (index.contains(tripId)) {
+            return;
+        }
+        try {
+            Trip trip = tripMapper.selectById(tripId);
+            Integer visibility = trip == null ? null : trip.getVisibility();
+            if (trip != null && (visibility == null || visibility == 2)) {
+                add(trip);
+            }
+        } catch (Exception e) {
+            log.warn("按通知补入行程分面索引失败, tripId={}", tripId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${triphub.search.facet-view-refresh-millis:300000}",
+            initialDelayString = "${triphub.search.facet-view-refresh-millis:300000}")
+    public void refreshViews() {
+        if (!searchProperties.isEnabled() || !built) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Long rows = transactionTemplate.execute(status -> streamViewCounts());
+            metricsRecorder.recordReconciliation(JOB_FACET_VIEWS, "success", rows == null ? 0L : rows,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_FACET_VIEWS, "error", 0L, System.currentTimeMillis() - start);
+            log.warn("刷新分面索引浏览量失败", e);
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            Long rows = transactionTemplate.execute(status -> streamTripsIntoIndex());
+            long duration = System.currentTimeMillis() - start;
+            metricsRecorder.recordReconciliation(JOB_FACET_INDEX, "success", rows == null ? 0L : rows, duration);
+            log.info("行程分面索引构建完成, docCount={}, durationMs={}", index.size(), duration);
+            built = true;
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_FACET_INDEX, "error", index.size(), System.currentTimeMillis() - start);
+            log.error("行程分面索引构建失败, 筛选结果只包含此后创建的行程", e);
+        }
+    }
+
+    private long streamTripsIntoIndex() {
+        long rows = 0L;
+        try (Cursor<Trip> cursor = tripMapper.streamPublicTripFacets()) {
+            for (Trip trip : cursor) {
+                if (trip == null || trip.getId() == null) {
+                    continue;
+                }
+                add(trip);
+                rows++;
+            }
+        } catch (IOException e) {
+            log.warn("关闭行程流式游标失败", e);
+        }
+        return rows;
+    }
+
+    private long streamViewCounts() {
+        long rows = 0L;
+        try (Cursor<Trip> cursor = tripMapper.streamPublicTripViewCounts()) {
+            for (Trip trip : cursor) {
+                if (trip == null || trip.getId() == null || trip.getViewCount() == null) {
+                    continue;
+                }
+                if (index.updateViews(trip.getId(), trip.getViewCount())) {
+                    rows++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("关闭行程流式游标失败", e);
+        }
+        return rows;
+    }
+
+    private void add(Trip trip) {
+        Integer days = trip.getDays();
+        if (days == null && trip.getStartDate() != null && trip.getEndDate() != null) {
+            days = (int) ChronoUnit.DAYS.between(trip.getStartDate(), trip.getEndDate()) + 1;
+        }
+        Integer month = trip.getStartDate() == null ? null : trip.getStartDate().getMonthValue();
+        int views = trip.getViewCount() == null ? 0 : trip.getViewCount();
+        index.add(trip.getId(), trip.getDestinationCity(), days, month, views);
+    }
+}
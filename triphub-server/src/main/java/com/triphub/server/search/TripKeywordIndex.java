@@ -0,0 +1,277 @@
+package com.triphub.server.search;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.server.cluster.JobCoordinator;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 公开行程的关键词倒排：idx:kw:{token} -> 行程 id 集合，token 由 {@link BigramTokenizer} 从标题与目的地城市切出。
+ *
+ * - 写：创建公开行程后增量 SADD（行程创建后标题与可见性不再修改，无需回收旧 token）；
+ * - 读：推荐召回时每个画像标签切成 token，单 token 直接 SRANDMEMBER，多 token 用 Lua 做有上限的求交
+ *   （从最小的集合 SSCAN，逐个 SISMEMBER 其余集合，凑够 perTermLimit 个或扫描 {@link #INTERSECT_MAX_SCAN} 个后停止），
+ *   不把整个交集传回客户端；城市热门榜与单 token 请求放在一次 pipeline 里，所有多 token 标签合并为一次脚本调用；
+ * - 自愈：leader 每 10 分钟检查哨兵 idx:ready:kw，缺失时流式遍历公开行程全量补建（SADD 幂等，不需要临时 key）。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripKeywordIndex {
+
+    private static final String JOB_KEYWORD_INDEX = "keyword_index";
+
+    /** 补建时一次 pipeline 处理的行程数 */
+    private static final int REBUILD_CHUNK_SIZE = 500;
+
+    /** 多 token 求交时单个标签最多检查的成员数，限制常见二元组大集合上的脚本耗时 */
+    static final int INTERSECT_MAX_SCAN = 2000;
+
+    /**
+     * 有上限的多组求交。
+     * KEYS: 所有标签的 token key 依次拼接
+     * ARGV: [limit, maxScan, 第 1 组 key 数, 第 2 组 key 数, ...]
+     * 返回与分组一一对应的成员数组。
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> BOUNDED_INTERSECT_SCRIPT = new DefaultRedisScript<>(
+            "local limit = tonumber(ARGV[1]); local maxScan = tonumber(ARGV[2]); " +
+                    "local result = {}; local offset = 0; " +
+                    "for g = 3, #ARGV do " +
+                    "  local n = tonumber(ARGV[g]); local out = {}; " +
+                    "  local best = offset + 1; local bestCard = redis.call('SCARD', KEYS[best]); " +
+                    "  for i = offset + 2, offset + n do " +
+                    "    local c = redis.call('SCARD', KEYS[i]); " +
+                    "    if c < bestCard then best = i; bestCard = c; end; " +
+                    "  end; " +
+                    "  if bestCard > 0 then " +
+                    "    local cursor = '0'; local scanned = 0; " +
+                    "    repeat " +
+                    "      local page = redis.call('SSCAN', KEYS[best], cursor, 'COUNT', 100); " +
+                    "      cursor = page[1]; " +
+                    "      for _, m in ipairs(page[2]) do " +
+                    "        local hit = true; " +
+                    "        for i = offset + 1, offset + n do " +
+                    "          if i ~= best and redis.call('SISMEMBER', KEYS[i], m) == 0 then hit = false; break; end; " +
+                    "        end; " +
+                    "        if hit and #out < limit then out[#out + 1] = m; end; " +
+                    "      end; " +
+                    "      scanned = scanned + #page[2]; " +
+                    "    until cursor == '0' or #out >= limit or scanned >= maxScan; " +
+                    "  end; " +
+                    "  result[#result + 1] = out; offset = offset + n; " +
+                    "end; " +
+                    "return result;",
+            List.class
+    );
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final TripMapper tripMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final JobCoordinator jobCoordinator;
+    private final MetricsRecorder metricsRecorder;
+
+    /**
+     * 把一个公开行程写入倒排（调用方负责可见性判断）。失败只记日志，由哨兵补建兜底。
+     */
+    public void index(Trip trip) {
+        if (trip == null || trip.getId() == null) {
+            return;
+        }
+        try {
+            writePostings(List.of(trip));
+        } catch (Exception e) {
+            log.warn("写入行程关键词倒排失败, tripId={}", trip.getId(), e);
+        }
+    }
+
+    /**
+     * 按查询词召回行程 id：城市热门榜前 perTermLimit 个 + 关键词倒排（token 求交）前 perTermLimit 个，按出现顺序去重。
+     */
+    public List<Long> candidates(Collection<String> terms, int perTermLimit) {
+        if (terms == null || terms.isEmpty() || perTermLimit <= 0) {
+            return List.of();
+        }
+        // term -> token keys；没有 token 的词只查城市榜
+        Map<String, List<String>> termKeys = new LinkedHashMap<>();
+        for (String term : terms) {
+            if (term == null || term.isBlank()) {
+                continue;
+            }
+            List<String> keys = new ArrayList<>();
+            for (String token : BigramTokenizer.tokenSet(term)) {
+                keys.add(RedisConstants.IDX_KW_SET_PREFIX + token);
+            }
+            termKeys.put(term, keys);
+        }
+        if (termKeys.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Map.Entry<String, List<String>> e : termKeys.entrySet()) {
+                    operations.opsForZSet().reverseRange(RedisConstants.hotTripCityKey(e.getKey()), 0, perTermLimit - 1);
+                    List<String> keys = e.getValue();
+                    if (keys.size() == 1) {
+                        operations.opsForSet().distinctRandomMembers(keys.get(0), perTermLimit);
+                    }
+                }
+                return null;
+            }
+        });
+        List<?> intersections = boundedIntersect(termKeys.values(), perTermLimit);
+
+        Set<Long> ids = new LinkedHashSet<>();
+        int index = 0;
+        int group = 0;
+        for (List<String> keys : termKeys.values()) {
+            addIds(ids, index < results.size() ? results.get(index) : null, perTermLimit);
+            index++;
+            if (keys.size() == 1) {
+                addIds(ids, index < results.size() ? results.get(index) : null, perTermLimit);
+                index++;
+            } else if (keys.size() > 1) {
+                addIds(ids, group < intersections.size() ? intersections.get(group) : null, perTermLimit);
+                group++;
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    /**
+     * 所有多 token 标签一次脚本调用求交，每组最多返回 limit 个成员；返回顺序与多 token 标签的出现顺序一致。
+     */
+    private List<?> boundedIntersect(Collection<List<String>> groups, int limit) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(limit));
+        args.add(String.valueOf(INTERSECT_MAX_SCAN));
+        for (List<String> group : groups) {
+            if (group.size() > 1) {
+                keys.addAll(group);
+                args.add(String.valueOf(group.size()));
+            }
+        }
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        List<?> res = stringRedisTemplate.execute(BOUNDED_INTERSECT_SCRIPT, keys, args.toArray());
+        return res == null ? List.of() : res;
+    }
+
+    @Scheduled(cron = "30 */10 * * * ?")
+    public void rebuildIfLost() {
+        if (!jobCoordinator.tryRunAsLeader(JOB_KEYWORD_INDEX)) {
+            return;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisConstants.IDX_KW_READY_KEY))) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long rows;
+        try {
+            Long n = transactionTemplate.execute(status -> streamTripsIntoIndex());
+            rows = n == null ? 0L : n;
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_KEYWORD_INDEX, "error", 0L, System.currentTimeMillis() - start);
+            log.warn("补建行程关键词倒排失败, 下一轮重试", e);
+            return;
+        }
+        stringRedisTemplate.opsForValue().set(RedisConstants.IDX_KW_READY_KEY, String.valueOf(start));
+        long duration = System.currentTimeMillis() - start;
+        metricsRecorder.recordReconciliation(JOB_KEYWORD_INDEX, "success", rows, duration);
+        log.info("关键词倒排哨兵缺失, 已基于 DB 补建, tripCount={}, durationMs={}", rows, duration);
+    }
+
+    private long streamTripsIntoIndex() {
+        long rows = 0L;
+        List<Trip> buffer = new ArrayList<>(REBUILD_CHUNK_SIZE);
+        try (Cursor<Trip> cursor = tripMapper.streamPublicTripTitles()) {
+            for (Trip trip : cursor) {
+                if (trip == null || trip.getId() == null) {
+                    continue;
+                }
+                buffer.add(trip);
+                if (buffer.size() >= REBUILD_CHUNK_SIZE) {
+                    writePostings(buffer);
+                    rows += buffer.size();
+                    buffer.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("关闭行程流式游标失败", e);
+        }
+        writePostings(buffer);
+        return rows + buffer.size();
+    }
+
+    private void writePostings(List<Trip> trips) {
+        if (trips.isEmpty()) {
+            return;
+        }
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Trip trip : trips) {
+                    String member = String.valueOf(trip.getId());
+                    for (String token : tokensOf(trip)) {
+                        operations.opsForSet().add(RedisConstants.IDX_KW_SET_PREFIX + token, member);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 行程的索引 token：标题 ∪ 目的地城市。
+     */
+    static Set<String> tokensOf(Trip trip) {
+        Set<String> tokens = BigramTokenizer.tokenSet(trip.getTitle());
+        tokens.addAll(BigramTokenizer.tokenSet(trip.getDestinationCity()));
+        return tokens;
+    }
+
+    private static void addIds(Set<Long> ids, Object raw, int limit) {
+        if (!(raw instanceof Collection)) {
+            return;
+        }
+        int added = 0;
+        for (Object o : (Collection<?>) raw) {
+            if (added >= limit) {
+                break;
+            }
+            try {
+                ids.add(Long.valueOf(String.valueOf(o)));
+                added++;
+            } catch (NumberFormatException ignore) {
+                // 非法 member 跳过
+            }
+        }
+    }
+}
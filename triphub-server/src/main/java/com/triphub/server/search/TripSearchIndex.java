@@ -0,0 +1,135 @@
+package com.triphub.server.search;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.common.properties.SearchProperties;
+import com.triphub.pojo.entity.Trip;
+import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.metrics.MetricsRecorder;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * 行程全文搜索：每个节点在进程内维护一份 {@link Bm25Index}（公开行程的标题 + 目的地城市）。
+ *
+ * - 构建：启动完成后在后台线程流式遍历公开行程全量构建，构建期间的查询只覆盖已加载的部分；
+ * - 增量：创建公开行程的节点直接写入本地索引，并向 search:trip:created 发布行程 id，
+ *   其他节点收到后按 id 读取行程补入（行程创建后标题与可见性不再修改，索引只追加）；
+ *   先订阅再构建，构建与通知重叠的行程按 id 去重。
+ * - 通知丢失（节点订阅断开期间创建的行程）只影响该节点，重启后由全量构建补齐。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TripSearchIndex implements MessageListener {
+
+    private static final String JOB_SEARCH_INDEX = "search_index";
+
+    private final Bm25Index index = new Bm25Index();
+
+    private final TripMapper tripMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer redisMessageListenerContainer;
+    private final MetricsRecorder metricsRecorder;
+    private final SearchProperties searchProperties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!searchProperties.isEnabled()) {
+            return;
+        }
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(RedisConstants.SEARCH_TRIP_CHANNEL));
+        Thread builder = new Thread(this::build, "search-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * 按 BM25 搜索公开行程，结果按相关度降序，条数不超过 max-limit。
+     */
+    public List<Bm25Index.Hit> search(String query, int limit) {
+        int k = Math.min(limit, searchProperties.getMaxLimit());
+        return index.search(query, k, searchProperties.getMaxQueryTerms());
+    }
+
+    /**
+     * 公开行程创建后调用（调用方负责可见性判断）：写入本地索引并通知其他节点。失败只记日志。
+     */
+    public void onTripCreated(Trip trip) {
+        if (!searchProperties.isEnabled() || trip == null || trip.getId() == null) {
+            return;
+        }
+        index.add(trip.getId(), trip.getTitle(), trip.getDestinationCity());
+        try {
+            stringRedisTemplate.convertAndSend(RedisConstants.SEARCH_TRIP_CHANNEL, String.valueOf(trip.getId()));
+        } catch (Exception e) {
+            log.warn("发布行程搜索索引通知失败, tripId={}", trip.getId(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        long tripId;
+        try {
+            tripId = Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        // 本节点发布的通知，或构建时已经加载过
+        if (index.contains(tripId)) {
+            return;
+        }
+        try {
+            Trip trip = tripMapper.selectById(tripId);
+            Integer visibility = trip == null ? null : trip.getVisibility();
+            if (trip != null && (visibility == null || visibility == 2)) {
+                index.add(tripId, trip.getTitle(), trip.getDestinationCity());
+            }
+        } catch (Exception e) {
+            log.warn("按通知补入行程搜索索引失败, tripId={}", tripId, e);
+        }
+    }
+
+    private void build() {
+        long start = System.currentTimeMillis();
+        try {
+            Long rows = transactionTemplate.execute(status -> streamTripsIntoIndex());
+            long duration = System.currentTimeMillis() - start;
+            metricsRecorder.recordReconciliation(JOB_SEARCH_INDEX, "success", rows == null ? 0L : rows, duration);
+            log.info("行程搜索索引构建完成, docCount={}, durationMs={}", index.size(), duration);
+        } catch (Exception e) {
+            metricsRecorder.recordReconciliation(JOB_SEARCH_INDEX, "error", index.size(), System.currentTimeMillis() - start);
+            log.error("行程搜索索引构建失败, 搜索结果只包含此后创建的行程", e);
+        }
+    }
+
+    private long streamTripsIntoIndex() {
+        long rows = 0L;
+        try (Cursor<Trip> cursor = tripMapper.streamPublicTripTitles()) {
+            for (Trip trip : cursor) {
+                if (trip == null || trip.getId() == null) {
+                    continue;
+                }
+                index.add(trip.getId(), trip.getTitle(), trip.getDestinationCity());
+                rows++;
+            }
+        } catch (IOException e) {
+            log.warn("关闭行程流式游标失败", e);
+        }
+        return rows;
+    }
+}
@@ -24,6 +24,11 @@ public interface TripService extends IService<Trip> {
      * @param orderedIds 热榜/推荐候选的有序 id 列表
      */
     List<TripSummaryDTO> listPublicTripSummariesForDiscover(List<Long> orderedIds);
+
+    /**
+     * 行程新建落库后的派生数据维护：公开行程累加目的地统计（hot:dest:stats）与作者（hot:creator:stats）的公开行程数。
+     */
+    void afterTripSaved(Trip trip);
 }
 
 
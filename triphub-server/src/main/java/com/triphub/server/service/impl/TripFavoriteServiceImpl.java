@@ -8,6 +8,8 @@ import com.triphub.pojo.entity.Trip;
 import com.triphub.pojo.entity.TripFavorite;
 import com.triphub.pojo.entity.UserProfile;
 import com.triphub.server.mapper.TripFavoriteMapper;
+import com.triphub.server.ranking.CreatorRanking;
+import com.triphub.server.recommend.RecommendationCache;
 import com.triphub.server.service.TripFavoriteService;
 import com.triphub.server.service.TripService;
 import com.triphub.server.service.UserProfileService;
@@ -29,7 +31,9 @@ import java.util.stream.Collectors;
  * - addFavorite / removeFavorite 都是幂等操作；
  * - 每次收藏变更后会：
  *   1）更新 Trip.like_count 计数；
- *   2）重算该用户画像中的 stats.totalTripsFavorited / stats.topCitiesByFavorite。
+ *   2）重算该用户画像中的 stats.totalTripsFavorited / stats.topCitiesByFavorite；
+ *   3）更新行程作者在创作者榜中的收藏数；
+ *   4）失效该用户的推荐结果缓存（最近收藏是共同收藏召回的种子）。
  */
 @Service
 @RequiredArgsConstructor
@@ -40,6 +44,8 @@ public class TripFavoriteServiceImpl extends ServiceImpl<TripFavoriteMapper, Tri
     private final UserProfileService userProfileService;
     private final ObjectMapper objectMapper;
     private final StringRedisTemplate stringRedisTemplate;
+    private final CreatorRanking creatorRanking;
+    private final RecommendationCache recommendationCache;
 
     /**
      * 收藏 stats 重建是 O(n) 的扫描操作，放到异步线程里避免阻塞主请求。
@@ -75,6 +81,9 @@ public class TripFavoriteServiceImpl extends ServiceImpl<TripFavoriteMapper, Tri
         // 写后删缓存：like_count 会影响 Trip 详情展示（如果详情包含 likeCount）
         stringRedisTemplate.delete(RedisConstants.CACHE_TRIP_KEY + tripId);
 
+        creatorRanking.recordFavorite(tripService.getById(tripId), 1);
+        recommendationCache.invalidate(userId);
+
         // 重算画像统计字段（异步，最终一致）
         rebuildProfileStatsAsync(userId);
         return true;
@@ -105,6 +114,9 @@ public class TripFavoriteServiceImpl extends ServiceImpl<TripFavoriteMapper, Tri
         // 写后删缓存：like_count 变化后失效详情缓存
         stringRedisTemplate.delete(RedisConstants.CACHE_TRIP_KEY + tripId);
 
+        creatorRanking.recordFavorite(tripService.getById(tripId), -1);
+        recommendationCache.invalidate(userId);
+
         rebuildProfileStatsAsync(userId);
         return true;
     }
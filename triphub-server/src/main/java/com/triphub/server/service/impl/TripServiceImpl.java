@@ -4,37 +4,50 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.triphub.common.constant.RedisConstants;
 import com.triphub.common.context.BaseContext;
 import com.triphub.pojo.dto.TripSummaryDTO;
+import com.triphub.pojo.dto.TripViewEventDTO;
 import com.triphub.pojo.entity.Trip;
+import com.triphub.server.event.TripViewEventPublisher;
 import com.triphub.server.mapper.TripMapper;
+import com.triphub.server.ranking.CreatorRanking;
+import com.triphub.server.search.TripFacetIndex;
+import com.triphub.server.search.TripKeywordIndex;
+import com.triphub.server.search.TripSearchIndex;
 import com.triphub.server.service.TripService;
 import com.triphub.server.utils.CacheClient;
-import com.triphub.server.metrics.MetricsRecorder;
+import com.triphub.server.utils.UniqueVisitorCounter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.WeekFields;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements TripService {
 
     private final CacheClient cacheClient;
     private final StringRedisTemplate stringRedisTemplate;
-    private final MetricsRecorder metricsRecorder;
     private final ObjectMapper objectMapper;
+    private final UniqueVisitorCounter uniqueVisitorCounter;
+    private final TripViewEventPublisher tripViewEventPublisher;
+    private final CreatorRanking creatorRanking;
+    private final TripKeywordIndex tripKeywordIndex;
+    private final TripSearchIndex tripSearchIndex;
+    private final TripFacetIndex tripFacetIndex;
 
     @Override
     public Trip queryTripById(Long id) {
@@ -47,16 +60,17 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
                 TimeUnit.MINUTES,
                 RedisConstants.LOCK_TRIP_KEY
         );
-        // view_count 动态字段：把 Redis 中尚未落库的增量叠加到返回值，避免详情长期展示旧浏览量
+        // view_count 动态字段：把 Redis 中尚未落库的增量（含落库中的 processing 部分）叠加到返回值，避免详情长期展示旧浏览量
         if (trip != null && trip.getId() != null) {
-            Object deltaObj = stringRedisTemplate.opsForHash()
-                    .get(RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH, String.valueOf(trip.getId()));
-            Long delta = parseLong(deltaObj);
-            if (delta != null && delta > 0) {
+            long delta = pendingViewDeltas(Collections.singletonList(trip.getId())).get(0);
+            if (delta > 0) {
                 Integer base = trip.getViewCount() == null ? 0 : trip.getViewCount();
                 long merged = base.longValue() + delta;
                 trip.setViewCount(merged > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) merged);
             }
+            // 独立访客数：DB 中是落库任务回写的快照，这里用 HLL 实时值覆盖（all 桶 ∪ 今日桶）
+            long uv = uniqueVisitorCounter.countTrip(trip.getId(), "all");
+            trip.setUniqueVisitorCount(uv > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) uv);
         }
         return trip;
     }
@@ -70,6 +84,8 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
 
         // 抗刷（KISS）：同一用户短时间重复刷新详情不计数
         Long userId = BaseContext.getCurrentId();
+        Integer visibility = trip.getVisibility();
+        boolean isPublic = (visibility == null || visibility == 2);
         if (userId != null) {
             String dedupKey = RedisConstants.TRIP_VIEW_DEDUP_KEY_PREFIX + userId + ":" + id;
             Boolean first = stringRedisTemplate.opsForValue().setIfAbsent(
@@ -83,52 +99,21 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
             }
         }
 
-        // view_count 写放大优化：先在 Redis 记录增量，定时批量刷回 DB（最终一致）
-        stringRedisTemplate.opsForHash()
-                .increment(RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH, String.valueOf(id), 1L);
-        // 给增量 Hash 一个较长 TTL，避免冷数据长期驻留
-        stringRedisTemplate.expire(
-                RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH,
-                RedisConstants.TRIP_VIEW_COUNT_DELTA_TTL_HOURS,
-                TimeUnit.HOURS
-        );
-
-        // 热榜写入过滤：仅公开行程才进入热门行程/热门目的地榜单（与重建任务的可见性口径一致）
-        Integer visibility = trip.getVisibility();
-        boolean isPublic = (visibility == null || visibility == 2);
-        if (isPublic) {
-            // 将行程写入热门行程 ZSet，分数按浏览次数累加
-            stringRedisTemplate.opsForZSet()
-                    .incrementScore(RedisConstants.HOT_TRIP_ZSET, String.valueOf(id), 1D);
-            metricsRecorder.recordHotRankingUpdate("trip");
-
-            // 时间窗口热榜：日榜/周榜（简单替代“时间衰减”，易讲易用）
-            String dayKey = RedisConstants.HOT_TRIP_DAY_ZSET_PREFIX + todayYmd();
-            String weekKey = RedisConstants.HOT_TRIP_WEEK_ZSET_PREFIX + currentYearWeek();
-            stringRedisTemplate.opsForZSet().incrementScore(dayKey, String.valueOf(id), 1D);
-            stringRedisTemplate.opsForZSet().incrementScore(weekKey, String.valueOf(id), 1D);
-            stringRedisTemplate.expire(dayKey, RedisConstants.HOT_DAY_TTL_DAYS, TimeUnit.DAYS);
-            stringRedisTemplate.expire(weekKey, RedisConstants.HOT_WEEK_TTL_DAYS, TimeUnit.DAYS);
-        }
+        // 计数统一由浏览事件驱动：direct 模式在当前线程一次 pipeline 写完，stream 模式只 XADD 一条事件。
+        // 事件下游包括：浏览量增量 Hash（定时刷回 DB）、热门行程/目的地的 all/日/周/小时/衰减榜、独立访客 HLL。
+        // 热榜与目的地 UV 仅统计公开行程（与重建任务的可见性口径一致）
+        tripViewEventPublisher.publish(new TripViewEventDTO(
+                id,
+                isPublic ? trip.getDestinationCity() : null,
+                isPublic,
+                trip.getUserId(),
+                userId,
+                System.currentTimeMillis()
+        ));
 
         // 让当前响应的 Trip 也体现“本次 +1”（不依赖 DB 落库/缓存刷新）
         Integer vc = trip.getViewCount();
         trip.setViewCount(vc == null ? 1 : vc + 1);
-
-        // 将目的地城市写入热门目的地 ZSet，member 为 destinationCity
-        String destCity = trip.getDestinationCity();
-        if (isPublic && destCity != null && !destCity.isEmpty()) {
-            stringRedisTemplate.opsForZSet()
-                    .incrementScore(RedisConstants.HOT_DEST_ZSET, destCity, 1D);
-            metricsRecorder.recordHotRankingUpdate("dest");
-
-            String dayKey = RedisConstants.HOT_DEST_DAY_ZSET_PREFIX + todayYmd();
-            String weekKey = RedisConstants.HOT_DEST_WEEK_ZSET_PREFIX + currentYearWeek();
-            stringRedisTemplate.opsForZSet().incrementScore(dayKey, destCity, 1D);
-            stringRedisTemplate.opsForZSet().incrementScore(weekKey, destCity, 1D);
-            stringRedisTemplate.expire(dayKey, RedisConstants.HOT_DAY_TTL_DAYS, TimeUnit.DAYS);
-            stringRedisTemplate.expire(weekKey, RedisConstants.HOT_WEEK_TTL_DAYS, TimeUnit.DAYS);
-        }
     }
 
     @Override
@@ -196,21 +181,16 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
         }
 
         // 3) 叠加尚未落库的 view_count 增量（展示更实时）
-        List<Object> fields = new ArrayList<>(orderedIds.size());
-        for (Long id : orderedIds) {
-            fields.add(String.valueOf(id));
-        }
-        List<Object> deltaList = stringRedisTemplate.opsForHash()
-                .multiGet(RedisConstants.TRIP_VIEW_COUNT_DELTA_HASH, fields);
-        if (deltaList != null && !deltaList.isEmpty()) {
+        List<Long> deltaList = pendingViewDeltas(orderedIds);
+        if (!deltaList.isEmpty()) {
             for (int i = 0; i < orderedIds.size() && i < deltaList.size(); i++) {
                 Long id = orderedIds.get(i);
                 TripSummaryDTO dto = map.get(id);
                 if (dto == null) {
                     continue;
                 }
-                Long delta = parseLong(deltaList.get(i));
-                if (delta == null || delta <= 0) {
+                long delta = deltaList.get(i);
+                if (delta <= 0) {
                     continue;
                 }
                 Integer base = dto.getViewCount() == null ? 0 : dto.getViewCount();
@@ -227,9 +207,48 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
                 result.add(dto);
             }
         }
+
+        // 5) 叠加独立访客数（一次 pipeline 批量 PFCOUNT）
+        if (!result.isEmpty()) {
+            List<Long> ids = new ArrayList<>(result.size());
+            for (TripSummaryDTO dto : result) {
+                ids.add(dto.getId());
+            }
+            List<Long> uvList = uniqueVisitorCounter.countTrips(ids);
+            for (int i = 0; i < result.size() && i < uvList.size(); i++) {
+                long uv = uvList.get(i);
+                result.get(i).setUniqueVisitorCount(uv > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) uv);
+            }
+        }
         return result;
     }
 
+    @Override
+    public void afterTripSaved(Trip trip) {
+        if (trip == null || trip.getId() == null) {
+            return;
+        }
+        Integer visibility = trip.getVisibility();
+        boolean isPublic = (visibility == null || visibility == 2);
+        if (!isPublic) {
+            return;
+        }
+        creatorRanking.recordTripCreated(trip);
+        tripKeywordIndex.index(trip);
+        tripFacetIndex.onTripCreated(trip);
+        tripSearchIndex.onTripCreated(trip);
+        String destCity = trip.getDestinationCity();
+        if (destCity == null || destCity.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForHash().increment(RedisConstants.HOT_DEST_STATS_HASH, destCity, 1L);
+        } catch (Exception e) {
+            // 派生统计失败不影响创建，热榜重建任务会按 DB 校正
+            log.warn("更新目的地统计失败, tripId={}, city={}", trip.getId(), destCity, e);
+        }
+    }
+
     private TripSummaryDTO toSummary(Trip t) {
         TripSummaryDTO dto = new TripSummaryDTO();
         dto.setId(t.getId());
@@ -239,20 +258,39 @@ public class TripServiceImpl extends ServiceImpl<TripMapper, Trip> implements Tr
         dto.setEndDate(t.getEndDate());
         dto.setDays(t.getDays());
         dto.setViewCount(t.getViewCount());
+        dto.setUniqueVisitorCount(t.getUniqueVisitorCount());
         dto.setLikeCount(t.getLikeCount());
         return dto;
     }
 
-    private static String todayYmd() {
-        return LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE); // yyyyMMdd
-    }
-
-    private static String currentYearWeek() {
-        WeekFields wf = WeekFields.ISO;
-        LocalDate now = LocalDate.now();
-        int week = now.get(wf.weekOfWeekBasedYear());
-        int year = now.get(wf.weekBasedYear());
-        return String.format(Locale.ROOT, "%04d%02d", year, week); // YYYYww
+    /**
+     * 批量读取尚未落库的浏览量增量，返回顺序与入参一致。
+     * 增量 Hash 按 tripId 分片，排空后落库提交前还在 {分片}:processing 中，两处都要读（一次 pipeline）；
+     * 先读 processing 再读分片，与排空并发时宁可短暂少算也不重复计入。
+     */
+    private List<Long> pendingViewDeltas(List<Long> tripIds) {
+        List<Object> raw = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Long id : tripIds) {
+                    String field = String.valueOf(id);
+                    operations.opsForHash().get(RedisConstants.tripViewDeltaProcessingKey(id), field);
+                    operations.opsForHash().get(RedisConstants.tripViewDeltaKey(id), field);
+                }
+                return null;
+            }
+        });
+        List<Long> result = new ArrayList<>(tripIds.size());
+        for (int i = 0; i < tripIds.size(); i++) {
+            long sum = 0L;
+            for (int j = 2 * i; j <= 2 * i + 1; j++) {
+                Long v = raw == null || j >= raw.size() ? null : parseLong(raw.get(j));
+                sum += v == null ? 0L : v;
+            }
+            result.add(sum);
+        }
+        return result;
     }
 
     private Long parseLong(Object obj) {
@@ -3,7 +3,9 @@ package com.triphub.server.service.impl;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.triphub.pojo.entity.UserProfile;
 import com.triphub.server.mapper.UserProfileMapper;
+import com.triphub.server.recommend.RecommendationCache;
 import com.triphub.server.service.UserProfileService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 /**
@@ -11,8 +13,11 @@ import org.springframework.stereotype.Service;
  * Simple user profile service based on user_id lookup.
  */
 @Service
+@RequiredArgsConstructor
 public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserProfile> implements UserProfileService {
 
+    private final RecommendationCache recommendationCache;
+
     @Override
     public UserProfile getByUserId(Long userId) {
         if (userId == null) {
@@ -30,6 +35,8 @@ public class UserProfileServiceImpl extends ServiceImpl<UserProfileMapper, UserP
         }
         // 直接走 DB Upsert，消除并发下 “先查再插/更” 的竞态
         baseMapper.upsertProfile(userId, profileJson);
+        // 画像变更后失效该用户的推荐结果缓存
+        recommendationCache.invalidate(userId);
     }
 }
 
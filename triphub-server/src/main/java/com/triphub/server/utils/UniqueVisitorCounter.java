@@ -0,0 +1,275 @@
+package com.triphub.server.utils;
+
+import com.triphub.common.constant.RedisConstants;
+import com.triphub.pojo.dto.TripViewEventDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 Redis HyperLogLog 的独立访客（UV）计数器。
+ *
+ * 设计：
+ * - 写：每次有效浏览 PFADD 到行程/目的地的「日桶」uv:trip:{id}:{yyyyMMdd}，日桶带 TTL，只覆盖周窗口；
+ * - 读：周窗口 = PFCOUNT 最近 7 个日桶（服务端合并）；全量 = PFCOUNT(all 桶, 今日桶)；
+ * - all 桶由落库任务按 dirty 集合做 PFMERGE，避免请求路径多写一个 key。
+ *
+ * 内存：Redis 对基数较小的 HLL 使用稀疏编码（默认 hll-sparse-max-bytes=3000），
+ * 冷门行程只占几十到几百字节；超过阈值后转为稠密编码，固定约 12KB，不随访客数增长。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UniqueVisitorCounter {
+
+    /** 周窗口覆盖的日桶数量 */
+    private static final int WEEK_DAYS = 7;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 批量记录访问：同一访客在同一天对同一行程/目的地只计一次。
+     * 所有 PFADD / EXPIRE / SADD 在一次 pipeline 内发出；按处理当天落桶，与 all 桶合并口径一致。
+     */
+    public void recordAll(List<TripViewEventDTO> events) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        String today = todayYmd();
+        stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (TripViewEventDTO event : events) {
+                    if (event == null || event.getTripId() == null || event.getUserId() == null) {
+                        continue;
+                    }
+                    String visitor = String.valueOf(event.getUserId());
+                    String tripDayKey = tripKey(event.getTripId(), today);
+                    operations.opsForHyperLogLog().add(tripDayKey, visitor);
+                    operations.expire(tripDayKey, RedisConstants.UV_DAY_TTL_DAYS, TimeUnit.DAYS);
+                    operations.opsForSet().add(RedisConstants.UV_DIRTY_TRIP_SET, String.valueOf(event.getTripId()));
+
+                    // 目的地 UV 与热榜口径一致，仅统计公开行程
+                    String destCity = event.getDestCity();
+                    if (event.isPublicTrip() && destCity != null && !destCity.isEmpty()) {
+                        String destDayKey = destKey(destCity, today);
+                        operations.opsForHyperLogLog().add(destDayKey, visitor);
+                        operations.expire(destDayKey, RedisConstants.UV_DAY_TTL_DAYS, TimeUnit.DAYS);
+                        operations.opsForSet().add(RedisConstants.UV_DIRTY_DEST_SET, destCity);
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 单个行程的独立访客数。
+     *
+     * @param period all / week / day
+     */
+    public long countTrip(Long tripId, String period) {
+        if (tripId == null) {
+            return 0L;
+        }
+        Long size = stringRedisTemplate.opsForHyperLogLog().size(tripKeys(tripId, period));
+        return size == null ? 0L : size;
+    }
+
+    /**
+     * 目的地的独立访客数。
+     *
+     * @param period all / week / day
+     */
+    public long countDestination(String destCity, String period) {
+        if (destCity == null || destCity.isEmpty()) {
+            return 0L;
+        }
+        Long size = stringRedisTemplate.opsForHyperLogLog().size(destKeys(destCity, period));
+        return size == null ? 0L : size;
+    }
+
+    /**
+     * 批量读取行程全量独立访客数：一次 pipeline 完成所有 PFCOUNT，返回顺序与入参一致。
+     */
+    public List<Long> countTrips(List<Long> tripIds) {
+        if (tripIds == null || tripIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> raw = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) throws DataAccessException {
+                for (Long id : tripIds) {
+                    operations.opsForHyperLogLog().size((Object[]) tripKeys(id, "all"));
+                }
+                return null;
+            }
+        });
+        List<Long> result = new ArrayList<>(tripIds.size());
+        for (int i = 0; i < tripIds.size(); i++) {
+            Object o = (raw == null || i >= raw.size()) ? null : raw.get(i);
+            result.add(o instanceof Number ? ((Number) o).longValue() : 0L);
+        }
+        return result;
+    }
+
+    /**
+     * 把 dirty 行程的日桶合并进 all 桶，并返回合并后的全量 UV，供落库任务批量回写 DB。
+     * dirty 集合用 SPOP 出队：合并失败时本方法把出队的 id 放回，落库失败时由调用方 {@link #requeueDirtyTrips} 放回。
+     *
+     * @param batchSize 单次最多处理的行程数，剩余的留给下一轮
+     */
+    public Map<Long, Long> mergeDirtyTrips(int batchSize) {
+        List<String> members = stringRedisTemplate.opsForSet().pop(RedisConstants.UV_DIRTY_TRIP_SET, batchSize);
+        if (members == null || members.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        List<Long> ids = new ArrayList<>(members.size());
+        for (String m : members) {
+            try {
+                ids.add(Long.valueOf(m));
+            } catch (Exception ignore) {
+                // ignore bad member
+            }
+        }
+        String today = todayYmd();
+        String yesterday = LocalDate.now().minusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        // 同时合并昨日桶：避免跨零点时昨日最后一批访客没来得及并入 all 桶（HLL 合并幂等）
+        List<Object> raw;
+        try {
+            raw = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (Long id : ids) {
+                        String allKey = tripKey(id, RedisConstants.UV_ALL_BUCKET);
+                        operations.opsForHyperLogLog().union(allKey, allKey, tripKey(id, today), tripKey(id, yesterday));
+                        operations.opsForHyperLogLog().size(allKey);
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            requeue(RedisConstants.UV_DIRTY_TRIP_SET, members);
+            throw e;
+        }
+        Map<Long, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            // pipeline 结果按命令顺序排列：[union, size, union, size, ...]
+            int idx = i * 2 + 1;
+            Object o = (raw == null || idx >= raw.size()) ? null : raw.get(idx);
+            if (o instanceof Number) {
+                result.put(ids.get(i), ((Number) o).longValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 落库失败时把已出队的行程放回 dirty 集合，下一轮重新合并回写（合并幂等）。
+     */
+    public void requeueDirtyTrips(Collection<Long> tripIds) {
+        List<String> members = new ArrayList<>(tripIds.size());
+        for (Long id : tripIds) {
+            members.add(String.valueOf(id));
+        }
+        requeue(RedisConstants.UV_DIRTY_TRIP_SET, members);
+    }
+
+    /**
+     * 把 dirty 目的地的日桶合并进 all 桶（目的地 UV 只在 Redis 中维护，不落库）；合并失败时把出队的目的地放回。
+     */
+    public int mergeDirtyDestinations(int batchSize) {
+        List<String> cities = stringRedisTemplate.opsForSet().pop(RedisConstants.UV_DIRTY_DEST_SET, batchSize);
+        if (cities == null || cities.isEmpty()) {
+            return 0;
+        }
+        String today = todayYmd();
+        String yesterday = LocalDate.now().minusDays(1).format(DateTimeFormatter.BASIC_ISO_DATE);
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String city : cities) {
+                        String allKey = destKey(city, RedisConstants.UV_ALL_BUCKET);
+                        operations.opsForHyperLogLog().union(allKey, allKey, destKey(city, today), destKey(city, yesterday));
+                    }
+                    return null;
+                }
+            });
+        } catch (RuntimeException e) {
+            requeue(RedisConstants.UV_DIRTY_DEST_SET, cities);
+            throw e;
+        }
+        return cities.size();
+    }
+
+    private void requeue(String dirtyKey, List<String> members) {
+        if (members.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.opsForSet().add(dirtyKey, members.toArray(new String[0]));
+        } catch (Exception e) {
+            log.warn("放回 UV dirty 集合失败, 等待下次访问重新标记, key={}, count={}", dirtyKey, members.size(), e);
+        }
+    }
+
+    private String[] tripKeys(Long tripId, String period) {
+        return windowKeys(RedisConstants.UV_TRIP_KEY_PREFIX + tripId + ":", period);
+    }
+
+    private String[] destKeys(String destCity, String period) {
+        return windowKeys(RedisConstants.UV_DEST_KEY_PREFIX + destCity + ":", period);
+    }
+
+    /**
+     * 按窗口生成需要合并计数的 HLL key 列表（PFCOUNT 多 key 即并集基数）。
+     */
+    private String[] windowKeys(String prefix, String period) {
+        String p = period == null ? "all" : period.trim().toLowerCase(Locale.ROOT);
+        LocalDate today = LocalDate.now();
+        if ("day".equals(p)) {
+            return new String[]{prefix + today.format(DateTimeFormatter.BASIC_ISO_DATE)};
+        }
+        if ("week".equals(p)) {
+            String[] keys = new String[WEEK_DAYS];
+            for (int i = 0; i < WEEK_DAYS; i++) {
+                keys[i] = prefix + today.minusDays(i).format(DateTimeFormatter.BASIC_ISO_DATE);
+            }
+            return keys;
+        }
+        // all 桶可能尚未合并今日访客，读时与今日桶取并集
+        return new String[]{prefix + RedisConstants.UV_ALL_BUCKET, prefix + today.format(DateTimeFormatter.BASIC_ISO_DATE)};
+    }
+
+    private static String tripKey(Long tripId, String bucket) {
+        return RedisConstants.UV_TRIP_KEY_PREFIX + tripId + ":" + bucket;
+    }
+
+    private static String destKey(String destCity, String bucket) {
+        return RedisConstants.UV_DEST_KEY_PREFIX + destCity + ":" + bucket;
+    }
+
+    private static String todayYmd() {
+        return LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE); // yyyyMMdd
+    }
+}
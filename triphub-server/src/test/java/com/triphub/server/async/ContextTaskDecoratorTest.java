@@ -0,0 +1,63 @@
+package com.triphub.server.async;
+
+import com.triphub.common.context.BaseContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * ContextTaskDecorator 单元测试：提交时的 MDC 与 BaseContext 在执行时可见，执行后恢复线程原有的值。
+ */
+class ContextTaskDecoratorTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+        BaseContext.clear();
+    }
+
+    @Test
+    void shouldPropagateSubmitterContext() throws InterruptedException {
+        MDC.put("traceId", "t-1");
+        BaseContext.setCurrentId(42L);
+        Runnable decorated = new ContextTaskDecorator().decorate(() -> {
+            assertEquals("t-1", MDC.get("traceId"));
+            assertEquals(42L, BaseContext.getCurrentId());
+        });
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread worker = new Thread(() -> {
+            try {
+                decorated.run();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+            // 执行后工作线程不应残留提交线程的上下文
+            if (MDC.get("traceId") != null || BaseContext.getCurrentId() != null) {
+                failure.compareAndSet(null, new AssertionError("context leaked"));
+            }
+        });
+        worker.start();
+        worker.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    void shouldRestorePreviousContextOnCallerThread() {
+        MDC.put("traceId", "submitter");
+        BaseContext.setCurrentId(1L);
+        Runnable decorated = new ContextTaskDecorator().decorate(() -> assertEquals(1L, BaseContext.getCurrentId()));
+
+        // 模拟 CallerRunsPolicy 之外、线程已有上下文的情况
+        MDC.put("traceId", "worker");
+        BaseContext.setCurrentId(2L);
+        decorated.run();
+        assertEquals("worker", MDC.get("traceId"));
+        assertEquals(2L, BaseContext.getCurrentId());
+    }
+}
@@ -0,0 +1,40 @@
+package com.triphub.server.consistency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * AdaptiveFlushInterval 单元测试：积压时缩短、空闲/失败时放大、受耗时下限与 [min, max] 约束。
+ */
+class AdaptiveFlushIntervalTest {
+
+    @Test
+    void backlogShouldHalveIntervalDownToMin() {
+        AdaptiveFlushInterval interval = new AdaptiveFlushInterval(1_000L, 30_000L, 5_000, 10_000L);
+
+        assertEquals(5_000L, interval.onSuccess(5_000, 10L));
+        assertEquals(2_500L, interval.onSuccess(8_000, 10L));
+        assertEquals(1_250L, interval.onSuccess(8_000, 10L));
+        assertEquals(1_000L, interval.onSuccess(8_000, 10L));
+    }
+
+    @Test
+    void idleOrFailureShouldBackOffUpToMax() {
+        AdaptiveFlushInterval interval = new AdaptiveFlushInterval(1_000L, 30_000L, 5_000, 10_000L);
+
+        assertEquals(20_000L, interval.onSuccess(0, 5L));
+        assertEquals(30_000L, interval.onFailure());
+        assertEquals(30_000L, interval.onSuccess(0, 5L));
+    }
+
+    @Test
+    void moderateLoadShouldHoldAndSlowFlushShouldStretch() {
+        AdaptiveFlushInterval interval = new AdaptiveFlushInterval(1_000L, 30_000L, 5_000, 10_000L);
+
+        assertEquals(10_000L, interval.onSuccess(2_000, 100L));
+        assertEquals(15_000L, interval.onSuccess(100, 100L));
+        // 即使积压，间隔也不小于本轮耗时的 2 倍
+        assertEquals(12_000L, interval.onSuccess(9_000, 6_000L));
+    }
+}
@@ -0,0 +1,111 @@
+package com.triphub.server.ranking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HeavyHitterSketch 的基础单元测试：
+ * - 估计值不低估真实频次；
+ * - 少量高频 item 混在大量长尾噪声中时能出现在 Top K 前列；
+ * - 候选表频繁淘汰后不出现重复成员，高频 item 仍能留在候选里；
+ * - 多线程并发写入不丢计数；
+ * - awaitWriters 等待已登记的写入完成。
+ */
+class HeavyHitterSketchTest {
+
+    @Test
+    void estimateShouldNeverUnderestimate() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4, 1024, 10, 4);
+        for (int i = 0; i < 500; i++) {
+            sketch.add(42L);
+        }
+        for (long i = 0; i < 5_000; i++) {
+            sketch.add(1_000 + i);
+        }
+        assertTrue(sketch.estimate(42L) >= 500);
+    }
+
+    @Test
+    void topKShouldSurfaceHeavyHittersAmongNoise() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4, 2048, 5, 4);
+        Random random = new Random(7);
+        for (int round = 0; round < 300; round++) {
+            sketch.add(1L);
+            sketch.add(1L);
+            sketch.add(2L);
+            for (int n = 0; n < 20; n++) {
+                sketch.add(10_000L + random.nextInt(50_000));
+            }
+        }
+        List<long[]> top = sketch.topK();
+        assertEquals(5, top.size());
+        assertEquals(1L, top.get(0)[0]);
+        assertEquals(2L, top.get(1)[0]);
+        assertTrue(top.get(0)[1] >= 600);
+    }
+
+    @Test
+    void evictionShouldKeepCandidatesConsistent() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4, 4096, 4, 1);
+        Random random = new Random(11);
+        for (int round = 0; round < 2_000; round++) {
+            sketch.add(round % 4 == 0 ? 5L : 100L + random.nextInt(300));
+            if (round % 3 == 0) {
+                sketch.add(6L);
+            }
+        }
+        List<long[]> top = sketch.topK();
+        Set<Long> items = new HashSet<>();
+        for (long[] e : top) {
+            assertTrue(items.add(e[0]), "duplicate candidate " + e[0]);
+        }
+        assertEquals(4, top.size());
+        assertEquals(6L, top.get(0)[0]);
+        assertEquals(5L, top.get(1)[0]);
+    }
+
+    @Test
+    void concurrentAddsShouldNotLoseCounts() throws Exception {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4, 1024, 10, 8);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sketch.add(7L);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(40_000L, sketch.estimate(7L));
+    }
+
+    @Test
+    void awaitWritersShouldBlockUntilRegisteredWritersExit() throws Exception {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(4, 1024, 10, 8);
+        sketch.enter(3L);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            sketch.awaitWriters();
+            done.countDown();
+        });
+        waiter.start();
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        sketch.add(3L);
+        sketch.exit(3L);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1L, sketch.estimate(3L));
+    }
+}
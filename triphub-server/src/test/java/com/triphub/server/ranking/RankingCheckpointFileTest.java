@@ -0,0 +1,108 @@
+package com.triphub.server.ranking;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * RankingCheckpointFile 的编解码单元测试：
+ * - 三种条目往返一致（含超过缓冲区大小的 ZSet 与多字节字符），只读文件头也能取到 createdAt；
+ * - 任意字节损坏或文件截断时整体拒绝；
+ * - commit 后不残留临时文件。
+ */
+class RankingCheckpointFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripShouldPreserveAllEntries() throws IOException {
+        Path file = dir.resolve("ranking.ckpt");
+        Map<String, Double> trips = new LinkedHashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            trips.put(String.valueOf(i), i * 1.5D);
+        }
+        Map<String, String> stats = new LinkedHashMap<>();
+        stats.put("成都", "12");
+        stats.put("杭州", "7");
+
+        try (RankingCheckpointFile.Writer writer = RankingCheckpointFile.open(file, 123L)) {
+            writer.append(RankingCheckpointFile.Entry.zset("hot:trip", -1L, trips));
+            writer.append(RankingCheckpointFile.Entry.hash("hot:dest:stats", 5_000L, stats));
+            writer.append(RankingCheckpointFile.Entry.string("hot:trending:epoch", -1L, "1700000000"));
+            writer.commit();
+        }
+
+        List<RankingCheckpointFile.Entry> entries = new ArrayList<>();
+        long createdAt = RankingCheckpointFile.read(file, (at, e) -> entries.add(e));
+
+        assertEquals(123L, createdAt);
+        assertEquals(123L, RankingCheckpointFile.readCreatedAt(file));
+        assertEquals(3, entries.size());
+        assertEquals("hot:trip", entries.get(0).getKey());
+        assertEquals(trips, entries.get(0).getScores());
+        assertEquals(-1L, entries.get(0).getTtlMillis());
+        assertEquals(stats, entries.get(1).getFields());
+        assertEquals(5_000L, entries.get(1).getTtlMillis());
+        assertEquals("1700000000", entries.get(2).getValue());
+        assertFalse(Files.exists(dir.resolve("ranking.ckpt.tmp")));
+    }
+
+    @Test
+    void corruptedOrTruncatedFileShouldBeRejected() throws IOException {
+        Path file = dir.resolve("ranking.ckpt");
+        Map<String, Double> trips = new LinkedHashMap<>();
+        trips.put("1", 10D);
+        trips.put("2", 20D);
+        try (RankingCheckpointFile.Writer writer = RankingCheckpointFile.open(file, 1L)) {
+            writer.append(RankingCheckpointFile.Entry.zset("hot:trip", -1L, trips));
+            writer.commit();
+        }
+        byte[] original = Files.readAllBytes(file);
+
+        byte[] flipped = original.clone();
+        flipped[original.length / 2] ^= 0x01;
+        Path corrupted = dir.resolve("corrupted.ckpt");
+        Files.write(corrupted, flipped);
+        assertThrows(IOException.class, () -> RankingCheckpointFile.read(corrupted, (at, e) -> { }));
+
+        Path truncated = dir.resolve("truncated.ckpt");
+        try (FileChannel ch = FileChannel.open(truncated, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ch.write(java.nio.ByteBuffer.wrap(original, 0, original.length - 3));
+        }
+        assertThrows(IOException.class, () -> RankingCheckpointFile.read(truncated, (at, e) -> { }));
+    }
+
+    @Test
+    void uncommittedWriterShouldNotReplaceExistingFile() throws IOException {
+        Path file = dir.resolve("ranking.ckpt");
+        Map<String, Double> v1 = new LinkedHashMap<>();
+        v1.put("1", 1D);
+        try (RankingCheckpointFile.Writer writer = RankingCheckpointFile.open(file, 1L)) {
+            writer.append(RankingCheckpointFile.Entry.zset("hot:trip", -1L, v1));
+            writer.commit();
+        }
+        try (RankingCheckpointFile.Writer writer = RankingCheckpointFile.open(file, 2L)) {
+            writer.append(RankingCheckpointFile.Entry.zset("hot:trip", -1L, new LinkedHashMap<>()));
+            // 未 commit：模拟写到一半失败
+        }
+
+        List<RankingCheckpointFile.Entry> entries = new ArrayList<>();
+        assertEquals(1L, RankingCheckpointFile.read(file, (at, e) -> entries.add(e)));
+        assertEquals(v1, entries.get(0).getScores());
+        assertFalse(Files.exists(dir.resolve("ranking.ckpt.tmp")));
+    }
+}
@@ -0,0 +1,89 @@
+package com.triphub.server.recommend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * LongIntOpenHashMap 与 CoFavoriteMatrix 的单元测试：
+ * - 开放寻址表与 HashMap 行为一致（含 key 0、扩容与按值删除）；
+ * - 共现计数、余弦相似度与 Top K 排序；
+ * - 分区只保存归属本分区的行；超过单元格上限时裁剪低频配对。
+ */
+class CoFavoriteMatrixTest {
+
+    @Test
+    void openHashMapShouldMatchHashMap() {
+        LongIntOpenHashMap map = new LongIntOpenHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(5_000) - 10L;
+            int delta = random.nextInt(3) + 1;
+            assertEquals(expected.merge(key, delta, Integer::sum), map.addTo(key, delta));
+        }
+        assertEquals(expected.size(), map.size());
+        expected.forEach((k, v) -> assertEquals(v, map.get(k)));
+        assertEquals(0, map.get(123_456L));
+
+        long removed = expected.values().stream().filter(v -> v < 30).count();
+        assertEquals(removed, map.removeBelow(30));
+        expected.values().removeIf(v -> v < 30);
+        assertEquals(expected.size(), map.size());
+        map.forEach((k, v) -> assertEquals(expected.get(k), v));
+    }
+
+    @Test
+    void topKShouldRankByCosineSimilarity() {
+        CoFavoriteMatrix matrix = new CoFavoriteMatrix(1, 0, 100, 1_000_000L);
+        // 行程 1 与 2 被 3 人共同收藏，与 3 被 1 人共同收藏；3 本身很热门
+        matrix.addBasket(new long[]{1, 2}, 2);
+        matrix.addBasket(new long[]{1, 2, 3}, 3);
+        matrix.addBasket(new long[]{2, 1}, 2);
+        for (int i = 0; i < 20; i++) {
+            matrix.addBasket(new long[]{3, 100 + i}, 2);
+        }
+
+        Map<Long, List<CoFavoriteMatrix.Neighbor>> result = new HashMap<>();
+        matrix.forEachTopK(2, 1, result::put);
+
+        List<CoFavoriteMatrix.Neighbor> similarToOne = result.get(1L);
+        assertEquals(2, similarToOne.size());
+        assertEquals(2L, similarToOne.get(0).getTripId());
+        assertEquals(3, similarToOne.get(0).getCoCount());
+        assertEquals(1.0D, similarToOne.get(0).getScore(), 1e-9);
+        assertEquals(3L, similarToOne.get(1).getTripId());
+        assertEquals(1.0D / Math.sqrt(3 * 21), similarToOne.get(1).getScore(), 1e-9);
+
+        Map<Long, List<CoFavoriteMatrix.Neighbor>> strict = new HashMap<>();
+        matrix.forEachTopK(10, 2, strict::put);
+        assertEquals(1, strict.get(1L).size());
+    }
+
+    @Test
+    void partitionAndCellCapShouldBoundRows() {
+        CoFavoriteMatrix even = new CoFavoriteMatrix(2, 0, 100, 1_000_000L);
+        even.addBasket(new long[]{1, 2, 3, 4}, 4);
+        assertEquals(2, even.rowCount());
+        assertTrue(even.owns(4L));
+
+        CoFavoriteMatrix capped = new CoFavoriteMatrix(1, 0, 100, 10L);
+        capped.addBasket(new long[]{1, 2}, 2);
+        capped.addBasket(new long[]{1, 2}, 2);
+        for (int i = 0; i < 5; i++) {
+            capped.addBasket(new long[]{10 + i, 20 + i}, 2);
+        }
+        // 低频配对被裁剪，高频配对保留
+        assertTrue(capped.cells() <= 10L);
+        assertTrue(capped.pruneFloor() >= 1);
+        Map<Long, List<CoFavoriteMatrix.Neighbor>> result = new HashMap<>();
+        capped.forEachTopK(5, 1, result::put);
+        assertEquals(2L, result.get(1L).get(0).getTripId());
+    }
+}
@@ -0,0 +1,145 @@
+package com.triphub.server.recommend;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * TagMatcher 与逐个标签 equals / contains 写法的打分耗时对比（手动运行，不参与单元测试）：
+ *
+ * <pre>
+ * mvn -o -q -pl triphub-server test-compile
+ * java -cp triphub-server/target/test-classes:triphub-server/target/classes \
+ *      com.triphub.server.recommend.TagMatcherBenchmark
+ * </pre>
+ *
+ * 先预热再取多轮中位数，输出每个候选的平均纳秒数、一次编译的耗时，以及「编译 + 全部候选打分」与原写法的总耗时对比。
+ */
+public final class TagMatcherBenchmark {
+
+    private static final String[] CITIES = {"成都", "重庆", "北京", "上海", "杭州", "西安", "厦门", "大理", "三亚", "拉萨"};
+    private static final String[] WORDS = {"美食", "火锅", "古镇", "海边", "徒步", "亲子", "周末", "自驾", "夜景", "博物馆",
+            "小众", "摄影", "露营", "温泉", "雪山", "citywalk", "三日游", "五日游", "攻略", "打卡"};
+
+    private static volatile long sink;
+
+    private TagMatcherBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        List<String> names = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add(i % 2 == 0 ? CITIES[random.nextInt(CITIES.length)] : WORDS[random.nextInt(WORDS.length)]);
+            weights.add(1 + random.nextInt(10));
+        }
+        // 原写法在请求内只排序一次，这里同样预先排好
+        sortByWeightDesc(names, weights);
+        // 编译单独计时：线上每个请求编译一次，早已被 JIT 预热，这里同样充分预热后再测
+        double compileNs = median(() -> {
+            long acc = 0;
+            for (int i = 0; i < 1_000; i++) {
+                acc += TagMatcher.compile(names, weights).size();
+            }
+            sink = acc;
+        }, 1_000, 20, 15);
+        TagMatcher matcher = TagMatcher.compile(names, weights);
+        for (int candidates : new int[]{1_000, 10_000}) {
+            String[] cities = new String[candidates];
+            String[] titles = new String[candidates];
+            for (int i = 0; i < candidates; i++) {
+                cities[i] = CITIES[random.nextInt(CITIES.length)];
+                titles[i] = cities[i] + WORDS[random.nextInt(WORDS.length)] + WORDS[random.nextInt(WORDS.length)]
+                        + WORDS[random.nextInt(WORDS.length)];
+            }
+            double naive = median(() -> {
+                long acc = 0;
+                for (int i = 0; i < candidates; i++) {
+                    acc += naiveScore(names, weights, cities[i], titles[i]);
+                }
+                sink = acc;
+            }, candidates, 300, 15);
+            double compiled = median(() -> {
+                long acc = 0;
+                for (int i = 0; i < candidates; i++) {
+                    acc += matcher.score(cities[i], titles[i]);
+                }
+                sink = acc;
+            }, candidates, 300, 15);
+            double naiveTotalUs = naive * candidates / 1000D;
+            double compiledTotalUs = (compiled * candidates + compileNs) / 1000D;
+            System.out.printf("candidates=%d, tags=%d: naive %.1f ns/op, matcher %.1f ns/op + compile %.1f us;"
+                            + " total %.1f us vs %.1f us (%.1fx)%n",
+                    candidates, names.size(), naive, compiled, compileNs / 1000D,
+                    naiveTotalUs, compiledTotalUs, naiveTotalUs / compiledTotalUs);
+        }
+    }
+
+    /**
+     * 原写法：逐个标签判断目的地相等 / 标题包含（names / weights 已按权重降序排列）。
+     */
+    static int naiveScore(List<String> names, List<Integer> weights, String city, String title) {
+        int score = 0;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            int w = Math.max(weights.get(i), 0);
+            if (city != null && city.equals(name)) {
+                score += w * 100;
+            } else if (title != null && title.contains(name)) {
+                score += w * 10;
+            }
+        }
+        return score;
+    }
+
+    static String naiveBestHit(List<String> names, List<Integer> weights, String city, String title) {
+        String best = null;
+        int bestWeight = 0;
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            boolean hit = (city != null && city.equals(name)) || (title != null && title.contains(name));
+            if (hit && (best == null || weights.get(i) > bestWeight)) {
+                best = name;
+                bestWeight = weights.get(i);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按权重降序稳定排序（与 TripRecommender 解析画像标签后的顺序一致）。
+     */
+    static void sortByWeightDesc(List<String> names, List<Integer> weights) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            order.add(i);
+        }
+        order.sort((a, b) -> Integer.compare(weights.get(b), weights.get(a)));
+        List<String> sortedNames = new ArrayList<>();
+        List<Integer> sortedWeights = new ArrayList<>();
+        for (int i : order) {
+            sortedNames.add(names.get(i));
+            sortedWeights.add(weights.get(i));
+        }
+        names.clear();
+        names.addAll(sortedNames);
+        weights.clear();
+        weights.addAll(sortedWeights);
+    }
+
+    private static double median(Runnable body, int ops, int warmup, int rounds) {
+        for (int i = 0; i < warmup; i++) {
+            body.run();
+        }
+        double[] samples = new double[rounds];
+        for (int r = 0; r < samples.length; r++) {
+            long start = System.nanoTime();
+            body.run();
+            samples[r] = (System.nanoTime() - start) / (double) ops;
+        }
+        Arrays.sort(samples);
+        return samples[samples.length / 2];
+    }
+}
@@ -0,0 +1,70 @@
+package com.triphub.server.recommend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * TagMatcher 单元测试：与逐个标签 equals / contains 的写法结果一致（含重叠、fail 链、同名标签与负权重）。
+ */
+class TagMatcherTest {
+
+    @Test
+    void overlappingPatternsShouldAllMatch() {
+        TagMatcher matcher = TagMatcher.compile(Arrays.asList("he", "she", "hers", "成都", "都市"),
+                Arrays.asList(1, 2, 3, 4, 5));
+        // "ushers" 命中 she / he / hers；"成都市" 命中 成都 / 都市（靠 fail 链）
+        assertEquals(10 * (1 + 2 + 3), matcher.score(null, "ushers"));
+        assertEquals(10 * (4 + 5), matcher.score(null, "成都市"));
+        assertEquals("hers", matcher.bestHit(null, "ushers"));
+        assertEquals("都市", matcher.bestHit(null, "成都市"));
+    }
+
+    @Test
+    void cityMatchShouldTakePrecedenceOverTitle() {
+        TagMatcher matcher = TagMatcher.compile(Arrays.asList("成都", "美食", "成都"), Arrays.asList(3, 5, -1));
+        // 同名标签都按目的地命中计分，负权重按 0 计；不再重复计入标题命中
+        assertEquals(300 + 50, matcher.score("成都", "成都美食三日游"));
+        assertEquals("美食", matcher.bestHit("成都", "成都美食三日游"));
+        assertEquals(0, matcher.score("重庆", "火锅"));
+        assertNull(matcher.bestHit("重庆", "火锅"));
+        assertNull(TagMatcher.compile(List.of(), List.of()).bestHit("成都", "成都"));
+    }
+
+    @Test
+    void shouldMatchNaiveImplementationOnRandomInput() {
+        Random random = new Random(7);
+        String alphabet = "成都重庆美食火锅古镇海边abcAB ";
+        for (int round = 0; round < 200; round++) {
+            int tagCount = 1 + random.nextInt(12);
+            List<String> names = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            for (int i = 0; i < tagCount; i++) {
+                names.add(randomText(random, alphabet, 1 + random.nextInt(3)));
+                weights.add(random.nextInt(10) - 2);
+            }
+            TagMatcherBenchmark.sortByWeightDesc(names, weights);
+            TagMatcher matcher = TagMatcher.compile(names, weights);
+            for (int c = 0; c < 50; c++) {
+                String city = random.nextBoolean() ? names.get(random.nextInt(tagCount)) : randomText(random, alphabet, 2);
+                String title = randomText(random, alphabet, random.nextInt(20));
+                assertEquals(TagMatcherBenchmark.naiveScore(names, weights, city, title), matcher.score(city, title));
+                assertEquals(TagMatcherBenchmark.naiveBestHit(names, weights, city, title), matcher.bestHit(city, title));
+            }
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
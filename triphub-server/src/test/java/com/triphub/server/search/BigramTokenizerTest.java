@@ -0,0 +1,35 @@
+package com.triphub.server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * BigramTokenizer 单元测试：中文二元组、拉丁词整体小写、分隔符与单字处理。
+ */
+class BigramTokenizerTest {
+
+    @Test
+    void cjkRunShouldBeSplitIntoOverlappingBigrams() {
+        assertEquals(Arrays.asList("成都", "都美", "美食"), BigramTokenizer.tokens("成都美食"));
+    }
+
+    @Test
+    void mixedTextShouldSplitOnScriptAndPunctuation() {
+        assertEquals(Arrays.asList("成都", "3", "日行", "ai", "推荐"),
+                BigramTokenizer.tokens("成都 3日行（AI推荐）"));
+        assertEquals(Arrays.asList("tokyo", "东京", "citywalk"), BigramTokenizer.tokens("Tokyo·东京 CityWalk"));
+    }
+
+    @Test
+    void singleCharRunAndEmptyInputShouldBeHandled() {
+        assertEquals(Collections.singletonList("海"), BigramTokenizer.tokens("海!"));
+        assertTrue(BigramTokenizer.tokens(null).isEmpty());
+        assertTrue(BigramTokenizer.tokens(" ，。").isEmpty());
+        assertEquals(2, BigramTokenizer.tokenSet("美食美食").size());
+    }
+}
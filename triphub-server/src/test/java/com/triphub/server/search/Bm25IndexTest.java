@@ -0,0 +1,119 @@
+package com.triphub.server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bm25Index 单元测试：
+ * - 命中更多查询词、词更稀有、文档更短的行程排在前面；
+ * - 重复追加被忽略，同分时新行程在前；
+ * - 多路归并 + Top K 堆与逐文档暴力打分后排序的结果一致。
+ */
+class Bm25IndexTest {
+
+    @Test
+    void shouldRankByBm25() {
+        Bm25Index index = new Bm25Index();
+        assertTrue(index.add(1L, "成都美食三日游", "成都"));
+        assertTrue(index.add(2L, "重庆火锅一日游", "重庆"));
+        assertTrue(index.add(3L, "成都周末", "成都"));
+        assertTrue(index.add(4L, "成都美食", "成都"));
+        assertFalse(index.add(4L, "成都美食", "成都"));
+        assertFalse(index.add(5L, "!!", null));
+        assertEquals(4, index.size());
+
+        List<Long> ids = ids(index.search("成都美食", 10, 16));
+        // 4 与 1 都命中「成都 / 都美 / 美食」，4 更短；3 只命中「成都」
+        assertEquals(List.of(4L, 1L, 3L), ids);
+        assertEquals(List.of(2L), ids(index.search("火锅", 10, 16)));
+        assertTrue(index.search("拉萨", 10, 16).isEmpty());
+        assertTrue(index.search("  ", 10, 16).isEmpty());
+    }
+
+    @Test
+    void tiesShouldPreferNewerTrips() {
+        Bm25Index index = new Bm25Index();
+        for (long id = 1; id <= 5; id++) {
+            index.add(id, "大理古城", "大理");
+        }
+        assertEquals(List.of(5L, 4L), ids(index.search("大理", 2, 16)));
+    }
+
+    @Test
+    void topKShouldMatchBruteForce() {
+        String[] words = {"成都", "重庆", "美食", "火锅", "古镇", "海边", "徒步", "亲子", "周末", "自驾", "citywalk", "tokyo"};
+        Random random = new Random(11);
+        Bm25Index index = new Bm25Index();
+        List<String[]> docs = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            StringBuilder title = new StringBuilder();
+            int n = 1 + random.nextInt(4);
+            for (int i = 0; i < n; i++) {
+                title.append(words[random.nextInt(words.length)]).append(' ');
+            }
+            String city = words[random.nextInt(2)];
+            index.add(id, title.toString(), city);
+            docs.add(new String[]{title.toString(), city});
+        }
+        for (int q = 0; q < 50; q++) {
+            String query = words[random.nextInt(words.length)] + words[random.nextInt(words.length)];
+            List<Bm25Index.Hit> hits = index.search(query, 20, 16);
+            List<double[]> expected = bruteForce(docs, query);
+            assertEquals(Math.min(20, expected.size()), hits.size());
+            for (int i = 0; i < hits.size(); i++) {
+                assertEquals((long) expected.get(i)[0], hits.get(i).getTripId(), "query=" + query + ", rank=" + i);
+            }
+        }
+    }
+
+    private static List<Long> ids(List<Bm25Index.Hit> hits) {
+        return hits.stream().map(Bm25Index.Hit::getTripId).collect(Collectors.toList());
+    }
+
+    /**
+     * 逐文档计算 BM25 后排序，返回 [tripId, score]。
+     */
+    private static List<double[]> bruteForce(List<String[]> docs, String query) {
+        List<List<String>> tokenized = new ArrayList<>();
+        long total = 0;
+        for (String[] d : docs) {
+            List<String> tokens = new ArrayList<>(BigramTokenizer.tokens(d[0]));
+            tokens.addAll(BigramTokenizer.tokens(d[1]));
+            tokenized.add(tokens);
+            total += tokens.size();
+        }
+        float avg = (float) total / docs.size();
+        List<double[]> scored = new ArrayList<>();
+        for (int doc = 0; doc < tokenized.size(); doc++) {
+            List<String> tokens = tokenized.get(doc);
+            float score = 0F;
+            boolean hit = false;
+            for (String term : BigramTokenizer.tokenSet(query)) {
+                int tf = (int) tokens.stream().filter(term::equals).count();
+                if (tf == 0) {
+                    continue;
+                }
+                hit = true;
+                long df = tokenized.stream().filter(t -> t.contains(term)).count();
+                float idf = (float) Math.log(1D + (docs.size() - df + 0.5D) / (df + 0.5D));
+                float norm = 1.2F * (1F - 0.75F + 0.75F * tokens.size() / avg);
+                score += idf * tf * (1.2F + 1F) / (tf + norm);
+            }
+            if (hit) {
+                scored.add(new double[]{doc + 1, score});
+            }
+        }
+        scored.sort(Comparator.<double[]>comparingDouble(a -> a[1]).reversed()
+                .thenComparing(Comparator.<double[]>comparingDouble(a -> a[0]).reversed()));
+        return scored;
+    }
+}
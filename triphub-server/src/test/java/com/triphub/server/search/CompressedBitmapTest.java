@@ -0,0 +1,89 @@
+package com.triphub.server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CompressedBitmap 单元测试：数组容器与位图容器互相转换时，add / and / or / andCardinality 与 java.util.BitSet 结果一致。
+ */
+class CompressedBitmapTest {
+
+    @Test
+    void shouldConvertBetweenContainers() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        assertTrue(bitmap.isEmpty());
+        for (int i = 0; i <= CompressedBitmap.ARRAY_MAX; i++) {
+            assertTrue(bitmap.add(i * 2));
+        }
+        assertFalse(bitmap.add(0));
+        assertEquals(CompressedBitmap.ARRAY_MAX + 1, bitmap.cardinality());
+        assertTrue(bitmap.contains(2 * CompressedBitmap.ARRAY_MAX));
+        assertFalse(bitmap.contains(1));
+
+        // 与一个稀疏位图求交后回到数组容器
+        CompressedBitmap sparse = new CompressedBitmap();
+        sparse.add(4);
+        sparse.add(5);
+        sparse.add(70_000);
+        CompressedBitmap and = bitmap.and(sparse);
+        assertEquals(List.of(4), values(and));
+        assertEquals(1, bitmap.andCardinality(sparse));
+        assertEquals(CompressedBitmap.ARRAY_MAX + 3, bitmap.or(sparse).cardinality());
+    }
+
+    @Test
+    void shouldMatchBitSetOnRandomInput() {
+        Random random = new Random(17);
+        for (int round = 0; round < 30; round++) {
+            // 每轮随机稀疏 / 稠密，跨越多个 65536 分块
+            int range = 1 + random.nextInt(300_000);
+            BitSet expectedA = new BitSet();
+            BitSet expectedB = new BitSet();
+            CompressedBitmap a = fill(random, range, random.nextInt(20_000), expectedA);
+            CompressedBitmap b = fill(random, range, random.nextInt(20_000), expectedB);
+
+            BitSet and = (BitSet) expectedA.clone();
+            and.and(expectedB);
+            BitSet or = (BitSet) expectedA.clone();
+            or.or(expectedB);
+
+            assertEquals(expectedA.cardinality(), a.cardinality());
+            assertEquals(toList(and), values(a.and(b)));
+            assertEquals(toList(or), values(a.or(b)));
+            assertEquals(and.cardinality(), a.andCardinality(b));
+            assertEquals(and.cardinality(), b.andCardinality(a));
+            // 参与运算的位图不被修改
+            assertEquals(toList(expectedA), values(a));
+        }
+    }
+
+    private static CompressedBitmap fill(Random random, int range, int count, BitSet expected) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < count; i++) {
+            int v = random.nextInt(range);
+            assertEquals(!expected.get(v), bitmap.add(v));
+            expected.set(v);
+        }
+        return bitmap;
+    }
+
+    private static List<Integer> values(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+
+    private static List<Integer> toList(BitSet bits) {
+        List<Integer> values = new ArrayList<>();
+        bits.stream().forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,80 @@
+package com.triphub.server.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FacetIndex 单元测试：
+ * - 分面内 OR、分面间 AND，分面计数不应用自身条件；
+ * - 按浏览量 / 最新排序与翻页，浏览量刷新后排序随之变化。
+ */
+class FacetIndexTest {
+
+    @Test
+    void shouldFilterAndCountFacets() {
+        FacetIndex index = sample();
+        assertFalse(index.add(1L, "成都", 3, 4, 0));
+        assertEquals(5, index.size());
+
+        FacetIndex.Page page = index.query(new FacetIndex.Filter(List.of("成都"), List.of("3", "4-5"), null),
+                FacetIndex.Sort.VIEWS, 0, 10, 10);
+        assertEquals(2, page.getTotal());
+        assertEquals(List.of(4L, 1L), page.getTripIds());
+        // 城市计数只应用天数条件：成都 2、重庆 1（2 天的成都行程不计）
+        assertEquals(Map.of("成都", 2, "重庆", 1), page.getCityCounts());
+        // 天数计数只应用城市条件
+        assertEquals(1, page.getDayCounts().get("2"));
+        assertEquals(1, page.getDayCounts().get("3"));
+        assertEquals(1, page.getDayCounts().get("4-5"));
+        assertEquals(0, page.getDayCounts().get("8+"));
+        assertEquals(1, page.getMonthCounts().get(4));
+        assertEquals(1, page.getMonthCounts().get(10));
+
+        FacetIndex.Page none = index.query(new FacetIndex.Filter(List.of("拉萨"), null, null),
+                FacetIndex.Sort.VIEWS, 0, 10, 10);
+        assertEquals(0, none.getTotal());
+        assertTrue(none.getTripIds().isEmpty());
+    }
+
+    @Test
+    void shouldSortAndPage() {
+        FacetIndex index = sample();
+        FacetIndex.Filter all = new FacetIndex.Filter(null, null, null);
+        assertEquals(List.of(4L, 1L, 3L, 5L, 2L), index.query(all, FacetIndex.Sort.VIEWS, 0, 10, 0).getTripIds());
+        assertEquals(List.of(3L, 5L), index.query(all, FacetIndex.Sort.VIEWS, 2, 2, 0).getTripIds());
+        assertEquals(List.of(5L, 4L), index.query(all, FacetIndex.Sort.NEWEST, 0, 2, 0).getTripIds());
+        assertTrue(index.query(all, FacetIndex.Sort.VIEWS, 5, 2, 0).getTripIds().isEmpty());
+        assertTrue(index.query(all, FacetIndex.Sort.VIEWS, 0, 10, 0).getCityCounts().isEmpty());
+
+        assertTrue(index.updateViews(2L, 1_000));
+        assertFalse(index.updateViews(99L, 1));
+        assertEquals(List.of(2L, 4L), index.query(all, FacetIndex.Sort.VIEWS, 0, 2, 0).getTripIds());
+    }
+
+    @Test
+    void shouldBucketDays() {
+        assertEquals(-1, FacetIndex.dayBucket(null));
+        assertEquals(-1, FacetIndex.dayBucket(0));
+        assertEquals("1", FacetIndex.DAY_BUCKETS.get(FacetIndex.dayBucket(1)));
+        assertEquals("3", FacetIndex.DAY_BUCKETS.get(FacetIndex.dayBucket(3)));
+        assertEquals("4-5", FacetIndex.DAY_BUCKETS.get(FacetIndex.dayBucket(5)));
+        assertEquals("6-7", FacetIndex.DAY_BUCKETS.get(FacetIndex.dayBucket(6)));
+        assertEquals("8+", FacetIndex.DAY_BUCKETS.get(FacetIndex.dayBucket(30)));
+    }
+
+    private static FacetIndex sample() {
+        FacetIndex index = new FacetIndex();
+        assertTrue(index.add(1L, "成都", 3, 4, 50));
+        assertTrue(index.add(2L, "成都", 2, 4, 5));
+        assertTrue(index.add(3L, "重庆", 4, 10, 30));
+        assertTrue(index.add(4L, "成都", 5, 10, 80));
+        assertTrue(index.add(5L, null, null, null, 10));
+        return index;
+    }
+}